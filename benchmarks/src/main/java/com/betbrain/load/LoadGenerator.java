@@ -0,0 +1,296 @@
+package com.betbrain.load;
+
+import com.betbrain.BettingServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end HTTP load generator.
+ * <p>
+ * Starts a BettingServer on a local port (or targets --url) and drives a
+ * configurable mix of /session, /stake and /highstakes calls from many
+ * concurrent client connections. Customers and bets are drawn from Zipf
+ * distributions. Latencies are recorded per operation in HdrHistograms and
+ * reported as throughput and p50/p99/p99.9/max.
+ * <p>
+ * The clients run a closed loop, so latency under overload is
+ * understated (coordinated omission); compare runs at equal load only.
+ * <p>
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.betbrain.load.LoadGenerator [options]
+ * <pre>
+ *   --url=http://host:port  target an already running server (default: start one)
+ *   --port=18001            port of the embedded server
+ *   --connections=64        concurrent client connections
+ *   --warmup=5              warm-up seconds, not recorded
+ *   --duration=30           measured seconds
+ *   --mix=10,60,30          percent of session,stake,highstakes calls
+ *   --customers=100000      distinct customers
+ *   --bets=1000             distinct bets
+ *   --skew=1.0              Zipf exponent for customers and bets (0 = uniform)
+ *   --maxAmount=100000      upper bound of stake amounts
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private enum Operation { SESSION, STAKE, HIGHSTAKES }
+
+    private final String baseUrl;
+    private final int connections;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final int sessionPercent;
+    private final int stakePercent;
+    private final int maxAmount;
+    private final ZipfSampler customers;
+    private final ZipfSampler bets;
+
+    private final ConcurrentHashMap<Integer, String> sessionKeys = new ConcurrentHashMap<>();
+    private final Map<Operation, Recorder> recorders = new HashMap<>();
+    private final Map<Operation, LongAdder> errors = new HashMap<>();
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    private LoadGenerator(Map<String, String> options, String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.connections = intOption(options, "connections", 64);
+        this.warmupSeconds = intOption(options, "warmup", 5);
+        this.durationSeconds = intOption(options, "duration", 30);
+        String[] mix = options.getOrDefault("mix", "10,60,30").split(",");
+        this.sessionPercent = Integer.parseInt(mix[0].trim());
+        this.stakePercent = Integer.parseInt(mix[1].trim());
+        this.maxAmount = intOption(options, "maxAmount", 100_000);
+        double skew = Double.parseDouble(options.getOrDefault("skew", "1.0"));
+        this.customers = new ZipfSampler(intOption(options, "customers", 100_000), skew);
+        this.bets = new ZipfSampler(intOption(options, "bets", 1000), skew);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(TimeUnit.SECONDS.toNanos(60), 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        // HttpURLConnection keeps only 5 idle connections per server by default, so most
+        // workers would reconnect for every request; the limit is read once, before any request
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(intOption(options, "connections", 64)));
+        }
+        BettingServer server = null;
+        String baseUrl = options.get("url");
+        if (baseUrl == null) {
+            int port = intOption(options, "port", 18001);
+            System.setProperty("betting.port", String.valueOf(port));
+            server = new BettingServer();
+            server.start();
+            baseUrl = "http://localhost:" + port;
+        }
+
+        try {
+            new LoadGenerator(options, baseUrl).run();
+        } finally {
+            if (server != null) {
+                server.shutdown();
+            }
+        }
+    }
+
+    private void run() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (running) {
+                        execute(pickOperation());
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        for (Recorder recorder : recorders.values()) {
+            recorder.reset();
+        }
+        for (LongAdder counter : errors.values()) {
+            counter.reset();
+        }
+        recording = true;
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        recording = false;
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        running = false;
+        done.await(10, TimeUnit.SECONDS);
+
+        report(elapsedSeconds);
+    }
+
+    private Operation pickOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        if (roll < sessionPercent) {
+            return Operation.SESSION;
+        }
+        return roll < sessionPercent + stakePercent ? Operation.STAKE : Operation.HIGHSTAKES;
+    }
+
+    private void execute(Operation operation) {
+        int customerId = customers.next();
+        String sessionKey = null;
+        if (operation == Operation.STAKE) {
+            sessionKey = sessionKeys.get(customerId);
+            if (sessionKey == null) {
+                // A customer must log in before staking; time that call as a session call
+                operation = Operation.SESSION;
+            }
+        }
+
+        long begin = System.nanoTime();
+        int status;
+        try {
+            switch (operation) {
+                case SESSION:
+                    Response session = call("GET", "/" + customerId + "/session", null);
+                    status = session.status;
+                    if (status == 200) {
+                        sessionKeys.put(customerId, session.body);
+                    }
+                    break;
+                case STAKE:
+                    int amount = 1 + ThreadLocalRandom.current().nextInt(maxAmount);
+                    status = call("POST", "/" + bets.next() + "/stake?sessionkey=" + sessionKey,
+                            String.valueOf(amount)).status;
+                    if (status == 401) {
+                        sessionKeys.remove(customerId, sessionKey);
+                    }
+                    break;
+                default:
+                    status = call("GET", "/" + bets.next() + "/highstakes", null).status;
+                    break;
+            }
+        } catch (IOException e) {
+            status = -1;
+        }
+        long latency = System.nanoTime() - begin;
+
+        if (recording) {
+            recorders.get(operation).recordValue(Math.min(latency, TimeUnit.SECONDS.toNanos(60)));
+            if (status != 200) {
+                errors.get(operation).increment();
+            }
+        }
+    }
+
+    /**
+     * Status and body of one call
+     */
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Performs one request over the JDK's pooled keep-alive connections
+     * @return Response status and body
+     */
+    private Response call(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        if (body != null) {
+            connection.setDoOutput(true);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            connection.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(bytes);
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream is = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (is == null) {
+            return new Response(status, "");
+        }
+        // Drain fully so the connection returns to the keep-alive pool
+        try (InputStream in = is) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new Response(status, out.toString("UTF-8"));
+        }
+    }
+
+    private void report(double elapsedSeconds) {
+        System.out.printf("%nTarget %s, %d connections, %.1f s measured%n", baseUrl, connections, elapsedSeconds);
+        System.out.printf("%-11s %10s %10s %10s %10s %10s %10s %8s%n",
+                "operation", "count", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        Histogram total = null;
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            long operationErrors = errors.get(operation).sum();
+            print(operation.name().toLowerCase(), histogram, elapsedSeconds, operationErrors);
+            if (total == null) {
+                total = histogram.copy();
+            } else {
+                total.add(histogram);
+            }
+            totalErrors += operationErrors;
+        }
+        print("total", total, elapsedSeconds, totalErrors);
+    }
+
+    private static void print(String label, Histogram histogram, double elapsedSeconds, long errorCount) {
+        System.out.printf("%-11s %10d %10.0f %10.3f %10.3f %10.3f %10.3f %8d%n",
+                label,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / elapsedSeconds,
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMaxValue() / 1e6,
+                errorCount);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
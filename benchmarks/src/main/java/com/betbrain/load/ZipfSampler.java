@@ -0,0 +1,41 @@
+package com.betbrain.load;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ids 0..n-1 with Zipf-distributed popularity, so a few customers
+ * and bets receive most of the traffic. Exponent 0 gives a uniform draw.
+ */
+public class ZipfSampler {
+
+    private final double[] cumulative;
+
+    /**
+     * @param n Number of distinct ids
+     * @param exponent Skew; around 1.0 is typical for betting traffic
+     */
+    public ZipfSampler(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Sampler size must be positive");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * @return Next id, lower ids being more popular
+     */
+    public int next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        int index = Arrays.binarySearch(cumulative, u);
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,107 @@
+package com.betbrain.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BetEvent hot paths: recording stakes under different customer
+ * distributions and ranking modes, and reading the leaderboard.
+ * Stakes that raise a customer's maximum and stakes that are rejected as
+ * not higher are measured separately, since only raises touch the ranking,
+ * and raises below the leaderboard cutoff are also measured from several
+ * threads at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BetEventBenchmark {
+
+    private static final int CUSTOMERS = 100_000;
+    private static final int HOT_CUSTOMERS = 100;
+    private static final int MAX_AMOUNT = 1_000_000;
+
+    /**
+     * uniform - every customer equally likely; hot - 90% of stakes from 100 customers
+     */
+    @Param({"uniform", "hot"})
+    public String distribution;
+
+    @Param({"FULL", "TOP_K"})
+    public String ranking;
+
+    private BetEvent event;
+    private boolean hot;
+
+    /**
+     * Amounts above every seeded stake, increasing so each raise is accepted
+     */
+    private int nextRaise;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hot = "hot".equals(distribution);
+        event = new BetEvent(new RankingPolicy(RankingPolicy.Mode.valueOf(ranking), RankingPolicy.DEFAULT_K));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            event.updateStake(i, 1 + random.nextInt(MAX_AMOUNT));
+        }
+        nextRaise = MAX_AMOUNT;
+    }
+
+    @Benchmark
+    public boolean raiseStake() {
+        return event.updateStake(nextCustomer(), ++nextRaise);
+    }
+
+    @Benchmark
+    public boolean rejectStake() {
+        // Every customer holds at least 1, so the stake is never higher
+        return event.updateStake(nextCustomer(), 1);
+    }
+
+    /**
+     * Raises stay below the cutoff except for customers already near the top,
+     * so this mostly contends on the stripe locks
+     */
+    @Benchmark
+    @Threads(4)
+    public boolean raiseStakeContended() {
+        int customerId = nextCustomer();
+        return event.updateStake(customerId, event.getMaxStake(customerId) + 1);
+    }
+
+    @Benchmark
+    public byte[] getTop20Encoded() {
+        return event.getTop20Snapshot().getEncoded();
+    }
+
+    @Benchmark
+    public void getTop20Entries(Blackhole blackhole) {
+        blackhole.consume(event.getTop20());
+    }
+
+    private int nextCustomer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return hot && random.nextInt(10) != 0
+                ? random.nextInt(HOT_CUSTOMERS)
+                : random.nextInt(CUSTOMERS);
+    }
+}
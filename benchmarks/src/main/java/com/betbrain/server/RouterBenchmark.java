@@ -0,0 +1,47 @@
+package com.betbrain.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route dispatch for the production route table
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouterBenchmark {
+
+    @Param({"/123456/session", "/987654/stake", "/42/highstakes", "/42/unknown"})
+    public String path;
+
+    private Router router;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Handler handler = (exchange, params) -> { };
+        router = new Router();
+        router.addRoute("/{customerId:int}/session", handler);
+        router.addRoute("/{betId:int}/stake", handler);
+        router.addRoute("/{betId:int}/highstakes", handler);
+    }
+
+    @Benchmark
+    public Handler dispatch() {
+        return router.findMatchingHandler(path, new PathParams(1));
+    }
+}
@@ -0,0 +1,70 @@
+package com.betbrain.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session lookups used to authenticate every stake, at growing session counts.
+ * Each parameter value runs in its own fork, so the singleton starts empty.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SessionServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int sessions;
+
+    private SessionService sessionService;
+    private String[] sessionKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionService = SessionService.getInstance();
+        sessionKeys = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            sessionKeys[i] = sessionService.getOrCreateSession(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SessionService.shutdown();
+    }
+
+    @Benchmark
+    public int getCustomerIdBySessionKey() {
+        return sessionService.getCustomerIdBySessionKey(randomKey());
+    }
+
+    @Benchmark
+    public int authenticate() {
+        return sessionService.authenticate(randomKey());
+    }
+
+    @Benchmark
+    public int authenticateUnknownKey() {
+        return sessionService.authenticate("UNKNOWN");
+    }
+
+    private String randomKey() {
+        return sessionKeys[ThreadLocalRandom.current().nextInt(sessionKeys.length)];
+    }
+}
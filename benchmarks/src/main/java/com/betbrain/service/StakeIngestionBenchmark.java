@@ -0,0 +1,82 @@
+package com.betbrain.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stake throughput of StakeService.recordStake with the direct and the
+ * sharded ingestion engine, with most stakes going to a few hot bets.
+ * The rest of the stake path runs as configured by default: the customer
+ * indexes are fed, journaling and snapshots are off unless enabled through
+ * -jvmArgsAppend. Each parameter value runs in its own fork, so the
+ * singleton is created with that engine.
+ * <p>
+ * The sharded engine's queues fill within the first milliseconds, so the
+ * measured rate is close to the applied rate. A stake refused by a full
+ * queue only returns after the offer timeout, so refusals lower the score.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class StakeIngestionBenchmark {
+
+    private static final int BETS = 1000;
+    private static final int HOT_BETS = 4;
+    private static final int HOT_PERCENT = 80;
+    private static final int CUSTOMERS = 100_000;
+
+    @Param({"direct", "sharded"})
+    public String ingestion;
+
+    private StakeService stakeService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("betting.ingestion", ingestion);
+        stakeService = StakeService.getInstance();
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() throws InterruptedException {
+        stakeService.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stakeService.shutdown();
+    }
+
+    /**
+     * @return false if the stake was refused
+     */
+    @Benchmark
+    public boolean recordStake() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int betId = random.nextInt(100) < HOT_PERCENT ? random.nextInt(HOT_BETS) : random.nextInt(BETS);
+        try {
+            stakeService.recordStake(betId, random.nextInt(CUSTOMERS), 1 + random.nextInt(1_000_000));
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.betbrain.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session key generation, single-threaded and under a simulated login storm,
+ * compared with the former stream-based generator on one shared SecureRandom
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionKeyGeneratorBenchmark {
+
+    private static final String CHARACTER_POOL = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final SecureRandom SHARED_RANDOM = new SecureRandom();
+
+    @Benchmark
+    public String generate() {
+        return SessionKeyGenerator.generate();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String generateContended() {
+        return SessionKeyGenerator.generate();
+    }
+
+    @Benchmark
+    public String generateStream() {
+        return streamGenerate();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String generateStreamContended() {
+        return streamGenerate();
+    }
+
+    private static String streamGenerate() {
+        return SHARED_RANDOM.ints(7, 0, CHARACTER_POOL.length())
+                .mapToObj(CHARACTER_POOL::charAt)
+                .collect(StringBuilder::new, StringBuilder::append, StringBuilder::append)
+                .toString();
+    }
+}
@@ -1,15 +1,32 @@
 package com.betbrain;
 
+import com.betbrain.handler.BatchStakeHandler;
+import com.betbrain.handler.CustomerStakesHandler;
 import com.betbrain.handler.HighStakesHandler;
+import com.betbrain.handler.LeaderboardStreamHandler;
+import com.betbrain.handler.MetricsHandler;
 import com.betbrain.handler.SessionHandler;
+import com.betbrain.handler.ShardHandler;
 import com.betbrain.handler.StakeHandler;
+import com.betbrain.handler.TopStakesHandler;
+import com.betbrain.metrics.MetricsRegistry;
+import com.betbrain.server.AdmissionController;
+import com.betbrain.server.ExecutionModel;
+import com.betbrain.server.ExecutorFactory;
 import com.betbrain.server.Router;
-import com.betbrain.handler.ServiceUnavailableRejectionHandler;
+import com.betbrain.server.nio.NioHttpServer;
+import com.betbrain.service.LeaderboardPushService;
 import com.betbrain.service.SessionService;
+import com.betbrain.service.StakeService;
+import com.betbrain.util.AsyncLogHandler;
+import com.betbrain.util.ConfigUtil;
 import com.sun.net.httpserver.HttpServer;
 
 import java.net.InetSocketAddress;
-import java.util.concurrent.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,46 +36,136 @@ import java.util.logging.Logger;
 public class BettingServer {
 
     private static final Logger logger = Logger.getLogger(BettingServer.class.getName());
-    private static final int PORT = 8001;
+    private static final int PORT = ConfigUtil.getInt("betting.port", 8001);
+
+    /**
+     * HTTP transport: jdk (com.sun.net.httpserver) or nio
+     */
+    private static final String TRANSPORT = ConfigUtil.getString("betting.transport", "jdk");
     private static volatile boolean isShuttingDown = false;
 
     private HttpServer server;
-    private ThreadPoolExecutor executor;
+    private NioHttpServer nioServer;
+    private ExecutorService executor;
+    private AdmissionController admissionController;
+    private AsyncLogHandler asyncLog;
 
     /**
      * Initializes and starts the HTTP server
      */
     public void start() throws Exception {
-        initializeServer();
-        configureRoutes();
+        asyncLog = AsyncLogHandler.install();
         setupThreadPool();
-        server.start();
-        logger.log(Level.INFO, "Server started on port {0}", PORT);
+        admissionController = new AdmissionController(configureRoutes());
+        registerMetrics();
+        initializeServer();
+        if (nioServer != null) {
+            nioServer.start();
+        } else {
+            server.start();
+        }
+        logger.log(Level.INFO, "Server started on port {0} using {1} transport", new Object[]{PORT, TRANSPORT});
         registerShutdownHook();
     }
 
     private void initializeServer() throws Exception {
+        if ("nio".equalsIgnoreCase(TRANSPORT)) {
+            nioServer = new NioHttpServer(new InetSocketAddress("0.0.0.0", PORT), admissionController,
+                    admissionController.wrap(executor));
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            NioHttpServer nio = nioServer;
+            metrics.gauge("betting_nio_connections", "Open client connections", nio::getOpenConnections);
+            metrics.gauge("betting_nio_pooled_buffers", "Direct buffers idle in the pool", nio::getPooledBuffers);
+            return;
+        }
+        // Small responses otherwise wait out Nagle against the client's delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
         server = HttpServer.create(new InetSocketAddress("0.0.0.0", PORT), 0);
-        server.setExecutor(executor);
+        server.setExecutor(admissionController.wrap(executor));
+        server.createContext("/", admissionController);
     }
 
-    private void configureRoutes() {
+    private Router configureRoutes() {
         Router router = new Router();
-        router.addRoute("/\\d+/session", new SessionHandler());
-        router.addRoute("/\\d+/stake", new StakeHandler());
-        router.addRoute("/\\d+/highstakes", new HighStakesHandler());
-        server.createContext("/", router);
+        router.addRoute("/{customerId:int}/session", new SessionHandler());
+        router.addRoute("/{betId:int}/stake", new StakeHandler());
+        router.addRoute("/stakes", new BatchStakeHandler());
+        router.addRoute("/{betId:int}/highstakes", new HighStakesHandler());
+        router.addRoute("/{betId:int}/highstakes/stream", new LeaderboardStreamHandler());
+        router.addRoute("/highstakes", new TopStakesHandler());
+        router.addRoute("/{customerId:int}/bets", new CustomerStakesHandler());
+        router.addRoute("/metrics", new MetricsHandler());
+        router.addRoute("/shard/{betId:int}/stakes", new ShardHandler(ShardHandler.Operation.STAKES));
+        router.addRoute("/shard/{betId:int}/highstakes", new ShardHandler(ShardHandler.Operation.HIGHSTAKES));
+        router.addRoute("/shard/topology", new ShardHandler(ShardHandler.Operation.TOPOLOGY));
+        router.addRoute("/shard/local", new ShardHandler(ShardHandler.Operation.LOCAL_SHARDS));
+        router.addRoute("/shard/top", new ShardHandler(ShardHandler.Operation.TOP));
+        router.addRoute("/shard/customer/{customerId:int}", new ShardHandler(ShardHandler.Operation.CUSTOMER));
+        return router;
     }
 
+    /**
+     * Creates the request executor for the configured execution model.
+     * Must run before initializeServer so the HttpServer receives it.
+     */
     private void setupThreadPool() {
-        int corePoolSize = Runtime.getRuntime().availableProcessors();
-        executor = new ThreadPoolExecutor(
-                corePoolSize,
-                corePoolSize * 2,
-                60, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(5000),
-                new ServiceUnavailableRejectionHandler()
-        );
+        ExecutionModel model = ExecutorFactory.configuredModel();
+        executor = ExecutorFactory.create(model);
+        sizeKeepAlivePool();
+    }
+
+    /**
+     * Lets HttpURLConnection keep an idle connection per request thread to
+     * each shard node; with its default of 5, most forwarded stakes would
+     * open a new connection. Must run before the first outgoing request, as
+     * the JDK reads the limit once. An explicit http.maxConnections wins.
+     */
+    private void sizeKeepAlivePool() {
+        if (System.getProperty("http.maxConnections") != null) {
+            return;
+        }
+        int threads;
+        if (executor instanceof ThreadPoolExecutor) {
+            threads = ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+        } else if (executor instanceof ForkJoinPool) {
+            threads = ((ForkJoinPool) executor).getParallelism();
+        } else {
+            // Virtual threads: as many requests as admission control lets in
+            threads = ConfigUtil.getInt("betting.admission.maxInFlight", 1024);
+        }
+        System.setProperty("http.maxConnections", Integer.toString(threads));
+    }
+
+    /**
+     * Exposes executor, admission and logging state. Values are read when scraped,
+     * so the request path pays nothing for them.
+     */
+    private void registerMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            metrics.gauge("betting_executor_queue_depth", "Requests waiting for a worker thread",
+                    () -> pool.getQueue().size());
+            metrics.gauge("betting_executor_active_threads", "Worker threads running a request",
+                    pool::getActiveCount);
+            metrics.gauge("betting_executor_pool_size", "Worker threads in the pool", pool::getPoolSize);
+            metrics.counter("betting_executor_completed_total", "Requests completed by the worker pool",
+                    pool::getCompletedTaskCount);
+        }
+        AdmissionController admission = admissionController;
+        metrics.gauge("betting_admission_in_flight", "Requests admitted and not yet finished",
+                admission::getInFlight);
+        metrics.counter("betting_admission_admitted_total", "Requests admitted", admission::getAdmittedCount);
+        metrics.counter("betting_admission_shed_total", "Requests shed by admission control", "kind", "read",
+                admission::getShedReadCount);
+        metrics.counter("betting_admission_shed_total", "Requests shed by admission control", "kind", "write",
+                admission::getShedWriteCount);
+        metrics.counter("betting_admission_shed_total", "Requests shed by admission control", "kind", "queue_full",
+                admission::getQueueFullRejectionCount);
+        metrics.counter("betting_log_dropped_total", "Log records dropped because the log queue was full",
+                AsyncLogHandler::getDroppedCount);
     }
 
     /**
@@ -70,8 +177,13 @@ public class BettingServer {
 
         logger.info("Initiating graceful shutdown...");
 
-        // Step 1: Stop accepting new requests
-        server.stop(0);
+        // Step 1: End open leaderboard streams and stop accepting new requests
+        LeaderboardPushService.getInstance().shutdown();
+        if (nioServer != null) {
+            nioServer.stop(0);
+        } else {
+            server.stop(0);
+        }
 
         // Step 2: Shutdown thread pool
         executor.shutdown();
@@ -85,11 +197,16 @@ public class BettingServer {
             executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        admissionController.shutdown();
 
         // Step 3: Cleanup services
+        StakeService.getInstance().shutdown();
         SessionService.shutdown();
 
         logger.info("Server shutdown complete.");
+        if (asyncLog != null) {
+            asyncLog.flush();
+        }
     }
 
     private void registerShutdownHook() {
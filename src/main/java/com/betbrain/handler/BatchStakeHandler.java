@@ -0,0 +1,53 @@
+package com.betbrain.handler;
+
+import com.betbrain.model.StakeBatch;
+import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
+import com.betbrain.service.SessionService;
+import com.betbrain.service.StakeService;
+import com.betbrain.util.ConfigUtil;
+import com.betbrain.util.HttpUtil;
+import com.betbrain.util.ParamUtil;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handles batch stake submission: many "betId,amount" lines under one
+ * session key, answered with one status line per item
+ */
+public class BatchStakeHandler implements Handler {
+
+    private static final Logger logger = Logger.getLogger(BatchStakeHandler.class.getName());
+    private static final int MAX_ITEMS = ConfigUtil.getInt("betting.batch.maxItems", 10000);
+
+    private final SessionService sessionService = SessionService.getInstance();
+    private final StakeService stakeService = StakeService.getInstance();
+
+    @Override
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
+        try {
+            String sessionKey = ParamUtil.extractSessionKey(exchange);
+
+            // Authenticate once for the whole batch
+            int customerId = sessionService.authenticate(sessionKey);
+            if (customerId == -1) {
+                throw new SecurityException("Invalid session");
+            }
+
+            StakeBatch batch = ParamUtil.readStakeBatch(exchange, MAX_ITEMS);
+            stakeService.recordStakeBatch(customerId, batch);
+
+            HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, batch.encodeStatuses());
+        } catch (IllegalArgumentException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, "Invalid request: " + e.getMessage());
+        } catch (SecurityException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.UNAUTHORIZED, HttpUtil.MESSAGE_AUTHENTICATION_FAILED);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Batch stake processing error", e);
+            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.betbrain.handler;
+
+import com.betbrain.model.RankedStake;
+import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
+import com.betbrain.service.StakeService;
+import com.betbrain.util.AsciiBuffer;
+import com.betbrain.util.HttpUtil;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handles requests for a customer's highest stake on every betting event,
+ * answered with one "betId,customerId,amount" line per event
+ */
+public class CustomerStakesHandler implements Handler {
+
+    private static final Logger logger = Logger.getLogger(CustomerStakesHandler.class.getName());
+    private final StakeService stakeService = StakeService.getInstance();
+
+    @Override
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
+        try {
+            int customerId = params.getInt("customerId");
+            HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK,
+                    RankedStake.writeLines(AsciiBuffer.forThread(), stakeService.getCustomerStakes(customerId)));
+        } catch (IllegalArgumentException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, HttpUtil.MESSAGE_INVALID_CUSTOMER_ID);
+        } catch (IllegalStateException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error processing request", e);
+            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.betbrain.handler;
 
+import com.betbrain.model.LeaderboardSnapshot;
 import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
 import com.betbrain.service.StakeService;
+import com.betbrain.util.AsciiBuffer;
 import com.betbrain.util.HttpUtil;
-import com.betbrain.util.ParamUtil;
+import com.betbrain.util.LogRateLimiter;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
@@ -16,25 +19,34 @@ import java.util.logging.Logger;
 public class HighStakesHandler implements Handler {
 
     private static final Logger logger = Logger.getLogger(HighStakesHandler.class.getName());
+    private static final LogRateLimiter invalidRequestLog = LogRateLimiter.forCategory("invalid-request", 10);
     private final StakeService stakeService = StakeService.getInstance();
 
     /**
      * Processes requests for top stakes data
      * @param exchange HTTP exchange containing request details
+     * @param params Path parameters containing the bet ID
      */
     @Override
-    public void handle(HttpExchange exchange) throws IOException {
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
         try {
-            int betId = ParamUtil.parseBetIdFromPath(exchange);
-            String response = stakeService.getTop20Stakes(betId);
-            HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, response);
+            int betId = params.getInt("betId");
+            LeaderboardSnapshot snapshot = stakeService.getTop20Snapshot(betId);
+            if (snapshot == null) {
+                HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK,
+                        StakeService.writeNoStakesMessage(AsciiBuffer.forThread(), betId));
+            } else {
+                HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, snapshot.getEncoded());
+            }
             logger.info(() -> "Successfully returned top stakes for bet ID: " + betId);
         } catch (IllegalArgumentException e) {
-            HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, "Invalid bet ID format");
-            logger.warning("Invalid request: " + e.getMessage());
+            HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, HttpUtil.MESSAGE_INVALID_BET_ID);
+            if (invalidRequestLog.tryAcquire()) {
+                logger.warning("Invalid request: " + e.getMessage());
+            }
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error processing request", e);
-            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, "Internal server error");
+            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
         }
     }
 
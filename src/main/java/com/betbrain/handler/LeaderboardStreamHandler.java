@@ -0,0 +1,70 @@
+package com.betbrain.handler;
+
+import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
+import com.betbrain.server.nio.NioHttpServer;
+import com.betbrain.service.LeaderboardPushService;
+import com.betbrain.service.StakeService;
+import com.betbrain.util.HttpUtil;
+import com.betbrain.util.LogRateLimiter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handles subscriptions to the top 20 stakes of an event, streamed as
+ * server-sent events whenever the ranking changes. In a cluster the client
+ * is redirected to the node owning the event.
+ * <p>
+ * Streams need the NIO transport ({@code betting.transport=nio}): on the JDK
+ * transport a client that stops reading would block a writer thread for
+ * good, so those requests are answered with 501.
+ */
+public class LeaderboardStreamHandler implements Handler {
+
+    private static final Logger logger = Logger.getLogger(LeaderboardStreamHandler.class.getName());
+    private static final LogRateLimiter invalidRequestLog = LogRateLimiter.forCategory("invalid-request", 10);
+    private static final byte[] MESSAGE_NIO_REQUIRED = HttpUtil.encode("Leaderboard streams require betting.transport=nio");
+    private final StakeService stakeService = StakeService.getInstance();
+
+    /**
+     * Starts the stream and returns while it stays open
+     * @param exchange HTTP exchange containing request details
+     * @param params Path parameters containing the bet ID
+     */
+    @Override
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
+        try {
+            int betId = params.getInt("betId");
+            String owner = stakeService.getOwnerUrl(betId);
+            if (owner != null) {
+                exchange.getResponseHeaders().set("Location", owner + "/" + betId + "/highstakes/stream");
+                HttpUtil.sendResponse(exchange, 307, (byte[]) null, 0);
+                return;
+            }
+            if (!NioHttpServer.isNioExchange(exchange)) {
+                HttpUtil.sendResponse(exchange, HttpUtil.NOT_IMPLEMENTED, MESSAGE_NIO_REQUIRED);
+                return;
+            }
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            // Keeps reverse proxies from buffering the stream
+            exchange.getResponseHeaders().set("X-Accel-Buffering", "no");
+            LeaderboardPushService.getInstance().subscribe(betId, exchange);
+        } catch (IllegalArgumentException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, HttpUtil.MESSAGE_INVALID_BET_ID);
+            if (invalidRequestLog.tryAcquire()) {
+                logger.warning("Invalid request: " + e.getMessage());
+            }
+        } catch (IllegalStateException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Leaderboard stream failed to start", e);
+            exchange.close();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error processing request", e);
+            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.betbrain.handler;
+
+import com.betbrain.metrics.MetricsRegistry;
+import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
+import com.betbrain.util.HttpUtil;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves the server's metrics in the Prometheus text format
+ */
+public class MetricsHandler implements Handler {
+
+    private static final Logger logger = Logger.getLogger(MetricsHandler.class.getName());
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+
+    /**
+     * Renders all registered metrics
+     * @param exchange HTTP exchange containing request details
+     * @param params Unused, the route has no parameters
+     */
+    @Override
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
+        byte[] body;
+        try {
+            body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Error collecting metrics", e);
+            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
+            return;
+        }
+        try (OutputStream out = HttpUtil.startStreamingResponse(exchange, HttpUtil.HTTP_OK, CONTENT_TYPE)) {
+            out.write(body);
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package com.betbrain.handler;
 
-import com.betbrain.util.HttpUtil;
-import com.sun.net.httpserver.HttpExchange;
-import java.io.IOException;
-import java.io.OutputStream;
+import com.betbrain.server.AdmissionController;
+
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -17,39 +15,23 @@ public class ServiceUnavailableRejectionHandler implements RejectedExecutionHand
     private static final Logger logger = Logger.getLogger(ServiceUnavailableRejectionHandler.class.getName());
 
     /**
-     * Handles rejected HTTP requests when the server is at capacity
+     * Handles rejected HTTP requests when the server is at capacity.
+     * The executor only sees the HTTP server's internal task, not the exchange,
+     * so the task is handed to the admission stage's rejection threads, which
+     * answer it with 503 without blocking the calling dispatcher. Anything else,
+     * or a rejected task those threads cannot take, is rejected with an
+     * exception, which makes the HTTP server close the connection instead of
+     * leaving the client hanging.
      * @param r The rejected Runnable task
      * @param executor The executing thread pool
      */
     @Override
     public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-        if (r instanceof HttpExchange) {
-            HttpExchange exchange = (HttpExchange) r;
-            sendServiceUnavailableResponse(exchange);
-        } else {
-            logger.warning("Rejected non-HTTP task: " + r.getClass().getName());
-        }
-    }
-
-    /**
-     * Sends standardized 503 Service Unavailable response
-     * @param exchange The HTTP exchange to respond to
-     */
-    private void sendServiceUnavailableResponse(HttpExchange exchange) {
-        try {
-            logger.log(Level.WARNING, "Rejecting request due to server overload: {0}",
-                    exchange.getRequestURI());
-
-            byte[] response = HttpUtil.ERROR_MESSAGE_INTERNAL_SERVER_ERROR.getBytes();
-            exchange.sendResponseHeaders(HttpUtil.INTERNAL_SERVER_ERROR, response.length);
-
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(response);
-            }
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to send rejection response", e);
-        } finally {
-            exchange.close();
+        if (!executor.isShutdown() && r instanceof AdmissionController.QueuedTask) {
+            ((AdmissionController.QueuedTask) r).runRejected();
+            return;
         }
+        logger.warning("Rejected task: " + r.getClass().getName());
+        throw new RejectedExecutionException("Server overloaded");
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,9 @@
 package com.betbrain.handler;
 
 import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
 import com.betbrain.service.SessionService;
 import com.betbrain.util.HttpUtil;
-import com.betbrain.util.ParamUtil;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
@@ -22,20 +22,21 @@ public class SessionHandler implements Handler {
      * Processes session-related HTTP requests
      *
      * @param exchange HTTP exchange containing request/response objects
+     * @param params Path parameters containing the customer ID
      */
     @Override
-    public void handle(HttpExchange exchange) throws IOException {
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
         try {
-            int customerId = ParamUtil.extractCustomerId(exchange);
+            int customerId = params.getInt("customerId");
             String sessionKey = sessionService.getOrCreateSession(customerId);
             HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, sessionKey);
         } catch (IllegalArgumentException e) {
-            HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, "Invalid customer ID format");
+            HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, HttpUtil.MESSAGE_INVALID_CUSTOMER_ID);
         } catch (IllegalStateException e) {
-            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, "Service unavailable");
+            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_SERVICE_UNAVAILABLE);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Unexpected error handling session request", e);
-            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, "Internal server error");
+            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
         }
     }
 
@@ -0,0 +1,152 @@
+package com.betbrain.handler;
+
+import com.betbrain.model.LeaderboardSnapshot;
+import com.betbrain.model.RankedStake;
+import com.betbrain.model.StakeBatch;
+import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
+import com.betbrain.service.StakeService;
+import com.betbrain.util.AsciiBuffer;
+import com.betbrain.util.ConfigUtil;
+import com.betbrain.util.HttpUtil;
+import com.betbrain.util.ParamUtil;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handles the internal API between shard nodes. Every request must carry the
+ * shared secret configured in {@code betting.shards.secret}; the API is
+ * disabled when no secret is set.
+ * <ul>
+ *     <li>{@link Operation#STAKES} - "customerId,amount" lines recorded on this node</li>
+ *     <li>{@link Operation#HIGHSTAKES} - ranking held by this node, 204 if there is none</li>
+ *     <li>{@link Operation#TOPOLOGY} - new node list, one base URL per line</li>
+ *     <li>{@link Operation#LOCAL_SHARDS} - new number of in-process shards</li>
+ *     <li>{@link Operation#TOP} - highest stakes across the events held by this node</li>
+ *     <li>{@link Operation#CUSTOMER} - a customer's stakes on the events held by this node</li>
+ * </ul>
+ */
+public class ShardHandler implements Handler {
+
+    private static final Logger logger = Logger.getLogger(ShardHandler.class.getName());
+
+    public enum Operation { STAKES, HIGHSTAKES, TOPOLOGY, LOCAL_SHARDS, TOP, CUSTOMER }
+
+    private final StakeService stakeService = StakeService.getInstance();
+    private final Operation operation;
+    private final byte[] secret;
+
+    /**
+     * @param operation Operation served by this route
+     */
+    public ShardHandler(Operation operation) {
+        this.operation = operation;
+        this.secret = HttpUtil.encode(ConfigUtil.getString("betting.shards.secret", ""));
+    }
+
+    @Override
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
+        try {
+            String presented = exchange.getRequestHeaders().getFirst(HttpUtil.HEADER_SHARD_SECRET);
+            if (secret.length == 0 || presented == null
+                    || !MessageDigest.isEqual(secret, HttpUtil.encode(presented))) {
+                throw new SecurityException("Invalid shard secret");
+            }
+            switch (operation) {
+                case STAKES:
+                    importStakes(exchange, params.getInt("betId"));
+                    break;
+                case HIGHSTAKES:
+                    sendRanking(exchange, params.getInt("betId"));
+                    break;
+                case TOPOLOGY:
+                    updateTopology(exchange);
+                    break;
+                case TOP:
+                    HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK,
+                            RankedStake.writeLines(AsciiBuffer.forThread(), stakeService.getLocalTopStakes()));
+                    break;
+                case CUSTOMER:
+                    HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, RankedStake.writeLines(AsciiBuffer.forThread(),
+                            stakeService.getLocalCustomerStakes(params.getInt("customerId"))));
+                    break;
+                default:
+                    resizeLocalShards(exchange);
+            }
+        } catch (IllegalArgumentException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, "Invalid request: " + e.getMessage());
+        } catch (SecurityException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.UNAUTHORIZED, HttpUtil.MESSAGE_AUTHENTICATION_FAILED);
+        } catch (IllegalStateException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Shard request error", e);
+            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private void importStakes(HttpExchange exchange, int betId) throws IOException {
+        if (betId < 0) {
+            throw new IllegalArgumentException("Invalid bet ID");
+        }
+        // The batch parser reads "customerId,amount" into its bet ID column
+        StakeBatch stakes = ParamUtil.readStakeBatch(exchange, StakeService.MAX_IMPORT_ITEMS);
+        for (int i = 0; i < stakes.size(); i++) {
+            if (stakes.getStatus(i) != StakeBatch.PENDING) {
+                throw new IllegalArgumentException("Malformed stake line " + (i + 1));
+            }
+        }
+        for (int i = 0; i < stakes.size(); i++) {
+            stakeService.recordLocalStake(betId, stakes.getBetId(i), stakes.getAmount(i));
+        }
+        HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, (byte[]) null, 0);
+    }
+
+    private void sendRanking(HttpExchange exchange, int betId) throws IOException {
+        LeaderboardSnapshot snapshot = stakeService.getLocalTop20Snapshot(betId);
+        if (snapshot == null) {
+            HttpUtil.sendResponse(exchange, 204, (byte[]) null, 0);
+            return;
+        }
+        exchange.getResponseHeaders().set(HttpUtil.HEADER_LEADERBOARD_VERSION, Long.toString(snapshot.getVersion()));
+        HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, snapshot.getEncoded());
+    }
+
+    private void updateTopology(HttpExchange exchange) throws IOException, InterruptedException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, String.join("\n", stakeService.getNodes()));
+            return;
+        }
+        List<String> nodes = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    nodes.add(line.trim());
+                }
+            }
+        }
+        int moved = stakeService.updateNodes(nodes);
+        HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, "Moved " + moved + " events");
+    }
+
+    private void resizeLocalShards(HttpExchange exchange) throws IOException, InterruptedException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, Integer.toString(stakeService.getLocalShardCount()));
+            return;
+        }
+        int count = ParamUtil.readStakeAmount(exchange);
+        int moved = stakeService.resizeLocalShards(count);
+        HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, "Moved " + moved + " events");
+    }
+}
@@ -1,15 +1,15 @@
 package com.betbrain.handler;
 
 import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
 import com.betbrain.service.SessionService;
 import com.betbrain.service.StakeService;
 import com.betbrain.util.HttpUtil;
+import com.betbrain.util.LogRateLimiter;
 import com.betbrain.util.ParamUtil;
 import com.sun.net.httpserver.HttpExchange;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,15 +20,16 @@ public class StakeHandler implements Handler {
 
     private static final Logger logger = Logger.getLogger(StakeHandler.class.getName());
 
+    private static final LogRateLimiter authFailureLog = LogRateLimiter.forCategory("auth-failure", 10);
+
     private final SessionService sessionService = SessionService.getInstance();
     private final StakeService stakeService = StakeService.getInstance();
 
     @Override
-    public void handle(HttpExchange exchange) throws IOException {
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
         try {
             // Validate request structure
-            String path = exchange.getRequestURI().getPath();
-            int betId = ParamUtil.parseBetIdFromPath(path);
+            int betId = params.getInt("betId");
             String sessionKey = ParamUtil.extractSessionKey(exchange);
 
             // Authenticate session
@@ -40,23 +41,30 @@ public class StakeHandler implements Handler {
             // Record the stake
             stakeService.recordStake(betId, customerId, stakeAmount);
 
-            HttpUtil.sendResponse(exchange,HttpUtil.HTTP_OK,null);
-            logger.log(Level.INFO, "Stake recorded - BetID: {0}, Customer: {1}, Amount: {2}",
-                    new Object[]{betId, customerId, stakeAmount});
+            HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK, (byte[]) null);
+            if (logger.isLoggable(Level.INFO)) {
+                logger.log(Level.INFO, "Stake recorded - BetID: {0}, Customer: {1}, Amount: {2}",
+                        new Object[]{betId, customerId, stakeAmount});
+            }
         } catch (IllegalArgumentException e) {
             HttpUtil.sendResponse(exchange, HttpUtil.BAD_REQUEST, "Invalid request: " + e.getMessage());
         } catch (SecurityException e) {
-            HttpUtil.sendResponse(exchange, HttpUtil.UNAUTHORIZED, "Authentication failed");
+            HttpUtil.sendResponse(exchange, HttpUtil.UNAUTHORIZED, HttpUtil.MESSAGE_AUTHENTICATION_FAILED);
+        } catch (IllegalStateException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_SERVICE_UNAVAILABLE);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Stake processing error", e);
-            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, "Internal server error");
+            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
         }
     }
 
     private int validateSession(String sessionKey) {
-        int customerId = sessionService.getCustomerIdBySessionKey(sessionKey);
-        if (customerId == -1 || !sessionService.isValidSession(sessionKey)) {
-            logger.warning("Invalid session attempt: " + sessionKey);
+        int customerId = sessionService.authenticate(sessionKey);
+        if (customerId == -1) {
+            // Never log the presented key: it is attacker-controlled and may be a valid key of someone else
+            if (authFailureLog.tryAcquire()) {
+                logger.warning("Invalid session attempt");
+            }
             throw new SecurityException("Invalid session");
         }
         return customerId;
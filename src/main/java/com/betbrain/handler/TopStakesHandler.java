@@ -0,0 +1,36 @@
+package com.betbrain.handler;
+
+import com.betbrain.model.RankedStake;
+import com.betbrain.server.Handler;
+import com.betbrain.server.PathParams;
+import com.betbrain.service.StakeService;
+import com.betbrain.util.AsciiBuffer;
+import com.betbrain.util.HttpUtil;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handles requests for the highest stakes across all betting events,
+ * answered with one "betId,customerId,amount" line per stake
+ */
+public class TopStakesHandler implements Handler {
+
+    private static final Logger logger = Logger.getLogger(TopStakesHandler.class.getName());
+    private final StakeService stakeService = StakeService.getInstance();
+
+    @Override
+    public void handle(HttpExchange exchange, PathParams params) throws IOException {
+        try {
+            HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK,
+                    RankedStake.writeLines(AsciiBuffer.forThread(), stakeService.getTopStakes()));
+        } catch (IllegalStateException e) {
+            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error processing request", e);
+            HttpUtil.sendResponse(exchange, HttpUtil.INTERNAL_SERVER_ERROR, HttpUtil.MESSAGE_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
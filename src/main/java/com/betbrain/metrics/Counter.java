@@ -0,0 +1,33 @@
+package com.betbrain.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter. Increments go to a striped {@link LongAdder}, so
+ * concurrent request threads do not contend on one cache line.
+ */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * @param amount Non-negative amount to add
+     */
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    /**
+     * @return Current total
+     */
+    public long get() {
+        return value.sum();
+    }
+}
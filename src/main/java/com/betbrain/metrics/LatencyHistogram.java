@@ -0,0 +1,98 @@
+package com.betbrain.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two buckets from about 1 µs to 17 s.
+ * <p>
+ * Recording finds the bucket with a leading-zero count and increments a
+ * striped counter; there is no lock and no allocation. Buckets are only
+ * summed into the cumulative Prometheus form when scraped.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Upper bound of the first bucket is 2^10 ns, of the last finite one 2^34 ns
+     */
+    static final int MIN_SHIFT = 10;
+    static final int MAX_SHIFT = 34;
+    private static final int FINITE_BUCKETS = MAX_SHIFT - MIN_SHIFT + 1;
+
+    /**
+     * Non-cumulative counts; the last slot holds values above the largest bound
+     */
+    private final LongAdder[] buckets = new LongAdder[FINITE_BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one duration
+     * @param nanos Duration in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucketIndex(value)].increment();
+        sumNanos.add(value);
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} reading
+     * @param startNanos Value of System.nanoTime() when the operation started
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return Sum of recorded values in nanoseconds
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos <= 1L << MIN_SHIFT) {
+            return 0;
+        }
+        // Smallest power of two not below the value
+        int shift = 64 - Long.numberOfLeadingZeros(nanos - 1);
+        return Math.min(shift - MIN_SHIFT, FINITE_BUCKETS);
+    }
+
+    /**
+     * Appends the bucket, sum and count lines in Prometheus text format
+     */
+    void write(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < FINITE_BUCKETS; i++) {
+            cumulative += buckets[i].sum();
+            writeBucket(out, name, labels, Double.toString((1L << (MIN_SHIFT + i)) / 1e9), cumulative);
+        }
+        cumulative += buckets[FINITE_BUCKETS].sum();
+        writeBucket(out, name, labels, "+Inf", cumulative);
+        MetricsRegistry.writeSample(out, name + "_sum", labels, Double.toString(sumNanos.sum() / 1e9));
+        MetricsRegistry.writeSample(out, name + "_count", labels, Long.toString(cumulative));
+    }
+
+    private static void writeBucket(StringBuilder out, String name, String labels, String bound, long count) {
+        String le = "le=\"" + bound + "\"";
+        MetricsRegistry.writeSample(out, name + "_bucket", labels.isEmpty() ? le : labels + "," + le,
+                Long.toString(count));
+    }
+}
@@ -0,0 +1,193 @@
+package com.betbrain.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the server's metrics, rendered in the Prometheus text format.
+ * <p>
+ * Counters and histograms are updated on request threads without locks.
+ * Gauges and externally maintained counters are registered as suppliers
+ * and only evaluated when the metrics are scraped. Registering a metric
+ * that already exists returns the existing counter or histogram, and
+ * replaces a supplier, so components created more than once (e.g. a
+ * restarted server) keep reporting under the same name.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    /**
+     * Metric families by name, kept sorted for a stable scrape output
+     */
+    private final ConcurrentSkipListMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param name Metric name, by convention ending in _total
+     * @param help Description shown in the scrape output
+     * @return Counter registered under the name
+     */
+    public Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    /**
+     * @param name Metric name, by convention ending in _total
+     * @param help Description shown in the scrape output
+     * @param label Label name, e.g. "route"
+     * @param labelValue Label value
+     * @return Counter registered under the name and label
+     */
+    public Counter counter(String name, String help, String label, String labelValue) {
+        return family(name, help, "counter").child(labels(label, labelValue), Counter.class, Counter::new);
+    }
+
+    /**
+     * Exposes a count maintained elsewhere, e.g. an existing LongAdder
+     * @param name Metric name, by convention ending in _total
+     * @param help Description shown in the scrape output
+     * @param value Read when scraped
+     */
+    public void counter(String name, String help, LongSupplier value) {
+        counter(name, help, null, null, value);
+    }
+
+    /**
+     * Exposes a labelled count maintained elsewhere
+     * @param name Metric name, by convention ending in _total
+     * @param help Description shown in the scrape output
+     * @param label Label name
+     * @param labelValue Label value
+     * @param value Read when scraped
+     */
+    public void counter(String name, String help, String label, String labelValue, LongSupplier value) {
+        family(name, help, "counter").children.put(labels(label, labelValue), value);
+    }
+
+    /**
+     * @param name Metric name, by convention ending in _seconds
+     * @param help Description shown in the scrape output
+     * @return Histogram registered under the name
+     */
+    public LatencyHistogram histogram(String name, String help) {
+        return histogram(name, help, null, null);
+    }
+
+    /**
+     * @param name Metric name, by convention ending in _seconds
+     * @param help Description shown in the scrape output
+     * @param label Label name, e.g. "route"
+     * @param labelValue Label value
+     * @return Histogram registered under the name and label
+     */
+    public LatencyHistogram histogram(String name, String help, String label, String labelValue) {
+        return family(name, help, "histogram")
+                .child(labels(label, labelValue), LatencyHistogram.class, LatencyHistogram::new);
+    }
+
+    /**
+     * @param name Metric name
+     * @param help Description shown in the scrape output
+     * @param value Read when scraped
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        family(name, help, "gauge").children.put("", value);
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format (version 0.0.4)
+     * @param out Receives the output
+     */
+    public void write(StringBuilder out) {
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                Object metric = child.getValue();
+                if (metric instanceof Counter) {
+                    writeSample(out, name, child.getKey(), Long.toString(((Counter) metric).get()));
+                } else if (metric instanceof LatencyHistogram) {
+                    ((LatencyHistogram) metric).write(out, name, child.getKey());
+                } else {
+                    writeSample(out, name, child.getKey(), Long.toString(((LongSupplier) metric).getAsLong()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Every metric in the Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        write(out);
+        return out.toString();
+    }
+
+    static void writeSample(StringBuilder out, String name, String labels, String value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+        }
+        return family;
+    }
+
+    private static String labels(String label, String labelValue) {
+        if (label == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(label).append("=\"");
+        for (int i = 0; i < labelValue.length(); i++) {
+            char c = labelValue.charAt(i);
+            if (c == '\\' || c == '"') {
+                escaped.append('\\').append(c);
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.append('"').toString();
+    }
+
+    /**
+     * Metrics sharing a name, keyed by their rendered labels
+     */
+    private static final class Family {
+        private final String help;
+        private final String type;
+        private final ConcurrentSkipListMap<String, Object> children = new ConcurrentSkipListMap<>();
+
+        private Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+
+        private <T> T child(String labels, Class<T> kind, Supplier<T> factory) {
+            Object existing = children.computeIfAbsent(labels, l -> factory.get());
+            if (!kind.isInstance(existing)) {
+                throw new IllegalArgumentException("Metric is already registered with a value supplier");
+            }
+            return kind.cast(existing);
+        }
+    }
+}
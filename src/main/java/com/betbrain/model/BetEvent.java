@@ -1,60 +1,272 @@
 package com.betbrain.model;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import com.betbrain.util.IntIntHashMap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Contains all stake records for a single betting event
+ * Contains all stake records for a single betting event.
+ * <p>
+ * Storage is primitive end to end: customer maximums live in lock-striped
+ * open-addressing int maps, and the ranking holds (amount, customerId) pairs
+ * packed into longs. Recording a stake never boxes.
+ * <p>
+ * The ranking is chosen by the {@link RankingPolicy}. In
+ * {@link RankingPolicy.Mode#FULL} mode every customer is kept sorted in a full
+ * ranking per stripe, updated under the stripe lock, and the leaderboard is
+ * merged from the top of every stripe. In {@link RankingPolicy.Mode#TOP_K}
+ * mode only the best K stakes are kept, in one ranking behind the ranking lock.
+ * Either way stakes below the volatile cutoff never take the ranking lock, and
+ * the published leaderboard is the top {@value RankingPolicy#LEADERBOARD_SIZE}.
  */
 public class BetEvent {
 
+    private static final int STRIPE_COUNT = 16;
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+    private static final int NO_STAKE = 0;
+
+    /**
+     * Maximum stake amounts per customer, striped by customer ID:
+     * Key - Customer ID
+     * Value - Highest stake amount
+     */
+    private final IntIntHashMap[] customerMaxAmounts = new IntIntHashMap[STRIPE_COUNT];
+
+    /**
+     * Full rankings of each stripe's customers, guarded by the stripe lock;
+     * null in top-K mode
+     */
+    private final Ranking[] stripeRankings;
+
+    /**
+     * Best K stakes ordered by packed (amount, customerId); null in full mode
+     */
+    private final Ranking ranking;
+
     /**
-     * Maximum stake amounts per customer:
-     * Key - Customer ID (Integer)
-     * Value - Highest stake amount (Integer)
+     * Serializes snapshot rebuilds. Top-K mode takes it inside a stripe lock,
+     * full mode takes the stripe locks inside it.
      */
-    private final ConcurrentHashMap<Integer, Integer> customerMaxAmounts = new ConcurrentHashMap<>();
+    private final Object rankingLock = new Object();
 
     /**
-     * Stake amounts sorted descendingly:
-     * Key - Stake amount (Integer)
-     * Value - Customer IDs with this amount (Set<Integer>)
+     * Entries the cutoff is taken from: K in top-K mode, the leaderboard size in full mode
      */
-    private final ConcurrentSkipListMap<Integer, Set<Integer>> amountToCustomers =
-            new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+    private final int rankingDepth;
+
+    /**
+     * Lowest amount that can still enter the ranked entries, Integer.MIN_VALUE
+     * while there are fewer of them than the ranking depth
+     */
+    private volatile int cutoff = Integer.MIN_VALUE;
+
+    /**
+     * Cached leaderboard, rebuilt only by updates that can change it
+     */
+    private volatile LeaderboardSnapshot snapshot = LeaderboardSnapshot.EMPTY;
+
+    /**
+     * Notified when the cached leaderboard changes, null when nobody listens
+     */
+    private volatile LeaderboardListener listener;
+
+    /**
+     * Creates an event using the configured default ranking policy
+     */
+    public BetEvent() {
+        this(RankingPolicy.defaultPolicy());
+    }
+
+    /**
+     * Creates an event with an explicit ranking policy
+     * @param policy Ranking mode and depth
+     */
+    public BetEvent(RankingPolicy policy) {
+        boolean full = policy.getMode() == RankingPolicy.Mode.FULL;
+        this.rankingDepth = full ? RankingPolicy.LEADERBOARD_SIZE : policy.getK();
+        this.ranking = full ? null : new TopKRanking(rankingDepth);
+        this.stripeRankings = full ? new Ranking[STRIPE_COUNT] : null;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            customerMaxAmounts[i] = new IntIntHashMap(INITIAL_STRIPE_CAPACITY, NO_STAKE);
+            if (stripeRankings != null) {
+                stripeRankings[i] = new FullRanking();
+            }
+        }
+    }
 
     /**
      * Updates customer's maximum stake amount
      * @param customerId ID of the customer
      * @param newAmount New stake amount to record
+     * @return true if the amount raised the customer's maximum
      */
-    public void updateStake(int customerId, int newAmount) {
-        customerMaxAmounts.compute(customerId, (id, currentMax) -> {
-            if (currentMax != null && newAmount <= currentMax) {
-                return currentMax;
+    public boolean updateStake(int customerId, int newAmount) {
+        int stripeIndex = stripeIndex(customerId);
+        IntIntHashMap stripe = customerMaxAmounts[stripeIndex];
+        synchronized (stripe) {
+            int currentMax = stripe.get(customerId);
+            if (newAmount <= currentMax) {
+                return false;
             }
-
-            if (currentMax != null) {
-                amountToCustomers.compute(currentMax, (amount, customers) -> {
-                    if (customers != null) {
-                        customers.remove(id);
-                        return customers.isEmpty() ? null : customers;
+            stripe.put(customerId, newAmount);
+            if (stripeRankings != null) {
+                stripeRankings[stripeIndex].raise(customerId, currentMax, newAmount);
+            } else {
+                // Amounts only grow, so anything below the current cutoff can never enter the ranking
+                if (newAmount >= cutoff) {
+                    synchronized (rankingLock) {
+                        if (newAmount >= cutoff) {
+                            ranking.raise(customerId, currentMax, newAmount);
+                            refreshSnapshot();
+                        }
                     }
-                    return null;
-                });
+                }
+                return true;
             }
+        }
 
-            amountToCustomers.compute(newAmount, (amount, customers) -> {
-                if (customers == null) {
-                    customers = ConcurrentHashMap.newKeySet();
+        // The full-mode merge reads every stripe, so it runs after this stripe's lock is released
+        if (newAmount >= cutoff) {
+            synchronized (rankingLock) {
+                if (newAmount >= cutoff) {
+                    refreshSnapshot();
                 }
-                customers.add(id);
-                return customers;
-            });
+            }
+        }
+        return true;
+    }
 
-            return newAmount;
-        });
+    /**
+     * Gets a customer's highest stake
+     * @param customerId ID of the customer
+     * @return Highest stake amount, or 0 if the customer has no stake
+     */
+    public int getMaxStake(int customerId) {
+        IntIntHashMap stripe = customerMaxAmounts[stripeIndex(customerId)];
+        synchronized (stripe) {
+            return stripe.get(customerId);
+        }
+    }
+
+    /**
+     * @return Number of customers with a stake on this event
+     */
+    public int getCustomerCount() {
+        int count = 0;
+        for (IntIntHashMap stripe : customerMaxAmounts) {
+            synchronized (stripe) {
+                count += stripe.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies every customer's maximum stake. Stripes are copied one at a time
+     * under their own lock, so ingestion into the other stripes continues; a
+     * stake applied concurrently may or may not be included.
+     * @return Customer IDs and amounts as parallel columns
+     */
+    public StakeColumns exportStakes() {
+        int[] customerIds = new int[0];
+        int[] amounts = new int[0];
+        int size = 0;
+        for (IntIntHashMap stripe : customerMaxAmounts) {
+            synchronized (stripe) {
+                int needed = size + stripe.size();
+                if (needed > customerIds.length) {
+                    int capacity = Math.max(needed, customerIds.length + (customerIds.length >> 1));
+                    customerIds = Arrays.copyOf(customerIds, capacity);
+                    amounts = Arrays.copyOf(amounts, capacity);
+                }
+                size = stripe.copyTo(customerIds, amounts, size);
+            }
+        }
+        return new StakeColumns(customerIds, amounts, size);
+    }
+
+    /**
+     * Updates the cutoff and rebuilds the leaderboard snapshot from the
+     * ranking. Caller holds rankingLock and, in top-K mode only, a stripe lock.
+     */
+    private void refreshSnapshot() {
+        long[] top = new long[rankingDepth];
+        int depth = stripeRankings != null
+                ? copyStripesDescending(top)
+                : ranking.copyDescending(top, rankingDepth);
+        cutoff = depth == rankingDepth ? (int) (top[depth - 1] >>> 32) : Integer.MIN_VALUE;
+
+        int size = Math.min(depth, RankingPolicy.LEADERBOARD_SIZE);
+        int[] customerIds = new int[size];
+        int[] amounts = new int[size];
+        for (int i = 0; i < size; i++) {
+            amounts[i] = (int) (top[i] >>> 32);
+            customerIds[i] = (int) top[i];
+        }
+
+        LeaderboardSnapshot current = snapshot;
+        if (!current.sameRanking(customerIds, amounts, size)) {
+            LeaderboardSnapshot updated = new LeaderboardSnapshot(current.getVersion() + 1,
+                    customerIds, amounts, size, RankingPolicy.LEADERBOARD_SIZE);
+            snapshot = updated;
+            LeaderboardListener notify = listener;
+            if (notify != null) {
+                notify.leaderboardChanged(updated);
+            }
+        }
+    }
+
+    /**
+     * Merges the highest entries of every stripe's full ranking, taking
+     * each stripe lock in turn
+     * @param top Destination array, filled in descending order
+     * @return Number of entries copied
+     */
+    private int copyStripesDescending(long[] top) {
+        int limit = top.length;
+        long[] stripeTop = new long[limit];
+        long[] merged = new long[STRIPE_COUNT * limit];
+        int count = 0;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            int copied;
+            synchronized (customerMaxAmounts[i]) {
+                copied = stripeRankings[i].copyDescending(stripeTop, limit);
+            }
+            System.arraycopy(stripeTop, 0, merged, count, copied);
+            count += copied;
+        }
+        Arrays.sort(merged, 0, count);
+        int size = Math.min(limit, count);
+        for (int i = 0; i < size; i++) {
+            top[i] = merged[count - 1 - i];
+        }
+        return size;
+    }
+
+    /**
+     * Lowest amount that can still reach the ranked entries
+     * @return Cutoff, Integer.MIN_VALUE while anything qualifies
+     */
+    int getCutoff() {
+        return cutoff;
+    }
+
+    /**
+     * Sets the listener notified of leaderboard changes
+     * @param listener Listener, or null to stop notifications
+     */
+    public void setLeaderboardListener(LeaderboardListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the cached top 20 leaderboard; costs a single volatile read
+     * @return Immutable snapshot of the highest stakes
+     */
+    public LeaderboardSnapshot getTop20Snapshot() {
+        return snapshot;
     }
 
     /**
@@ -64,16 +276,33 @@ public class BetEvent {
      *     Value - Stake amount
      */
     public List<Map.Entry<Integer, Integer>> getTop20() {
-        List<Map.Entry<Integer, Integer>> results = new ArrayList<>(20);
-        for (Map.Entry<Integer, Set<Integer>> entry : amountToCustomers.entrySet()) {
-            int amount = entry.getKey();
-            for (int customerId : entry.getValue()) {
-                results.add(new AbstractMap.SimpleEntry<>(customerId, amount));
-                if (results.size() >= 20) {
-                    return results;
+        return snapshot.toEntries();
+    }
+
+    /**
+     * @return Approximate heap used by the primitive backing arrays in bytes
+     */
+    long backingBytes() {
+        long bytes = 0;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            IntIntHashMap stripe = customerMaxAmounts[i];
+            synchronized (stripe) {
+                bytes += stripe.backingBytes();
+                if (stripeRankings != null) {
+                    bytes += stripeRankings[i].backingBytes();
                 }
             }
         }
-        return results;
+        if (ranking == null) {
+            return bytes;
+        }
+        synchronized (rankingLock) {
+            return bytes + ranking.backingBytes();
+        }
+    }
+
+    private static int stripeIndex(int customerId) {
+        int h = customerId * 0x9E3779B9;
+        return (h >>> 28) & (STRIPE_COUNT - 1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.betbrain.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from customer ID to the customer's highest stake on every event.
+ * <p>
+ * Each customer maps to an immutable array of (betId, amount) pairs packed
+ * into longs and sorted by bet ID. The single writer replaces the array on
+ * every change, so readers never lock and always see a consistent list.
+ */
+public class CustomerStakeIndex {
+
+    private final ConcurrentHashMap<Integer, long[]> stakesByCustomer = new ConcurrentHashMap<>();
+
+    /**
+     * Records a customer's new highest stake on an event. Writer thread only.
+     * @param betId ID of the betting event
+     * @param customerId ID of the customer
+     * @param amount New highest stake
+     */
+    public void update(int betId, int customerId, int amount) {
+        long packed = ((long) betId << 32) | (amount & 0xFFFFFFFFL);
+        long[] current = stakesByCustomer.get(customerId);
+        if (current == null) {
+            stakesByCustomer.put(customerId, new long[]{packed});
+            return;
+        }
+        // Bet IDs are non-negative, so signed order of the packed values is bet ID order
+        int pos = Arrays.binarySearch(current, (long) betId << 32);
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        long[] updated;
+        if (pos < current.length && (int) (current[pos] >>> 32) == betId) {
+            if ((int) current[pos] >= amount) {
+                return;
+            }
+            updated = current.clone();
+        } else {
+            updated = new long[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, pos);
+            System.arraycopy(current, pos, updated, pos + 1, current.length - pos);
+        }
+        updated[pos] = packed;
+        stakesByCustomer.put(customerId, updated);
+    }
+
+    /**
+     * @param customerId ID of the customer
+     * @return Highest stake per event, ordered by bet ID
+     */
+    public List<RankedStake> getStakes(int customerId) {
+        long[] stakes = stakesByCustomer.get(customerId);
+        if (stakes == null) {
+            return Collections.emptyList();
+        }
+        List<RankedStake> result = new ArrayList<>(stakes.length);
+        for (long packed : stakes) {
+            result.add(new RankedStake((int) (packed >>> 32), customerId, (int) packed));
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of customers with at least one stake
+     */
+    public int getCustomerCount() {
+        return stakesByCustomer.size();
+    }
+}
@@ -0,0 +1,29 @@
+package com.betbrain.model;
+
+import com.betbrain.util.SortedLongSet;
+
+/**
+ * Ranking holding every customer's maximum in a sorted set
+ */
+class FullRanking implements Ranking {
+
+    private final SortedLongSet entries = new SortedLongSet();
+
+    @Override
+    public void raise(int customerId, int previousAmount, int newAmount) {
+        if (previousAmount > 0) {
+            entries.remove(Ranking.pack(previousAmount, customerId));
+        }
+        entries.add(Ranking.pack(newAmount, customerId));
+    }
+
+    @Override
+    public int copyDescending(long[] out, int limit) {
+        return entries.copyDescending(out, limit);
+    }
+
+    @Override
+    public long backingBytes() {
+        return entries.backingBytes();
+    }
+}
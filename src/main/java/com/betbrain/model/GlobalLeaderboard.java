@@ -0,0 +1,88 @@
+package com.betbrain.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Highest stakes across all betting events, one entry per (event, customer).
+ * <p>
+ * Only the best K entries are kept. Since a customer's stake on an event only
+ * grows, an entry pushed out of the top K can only return through a later
+ * raise, which is offered again. Updated by a single writer thread; readers
+ * get an immutable list published after each batch of updates.
+ */
+public class GlobalLeaderboard {
+
+    private final int capacity;
+    private final TreeSet<RankedStake> top = new TreeSet<>(RankedStake.BY_AMOUNT_DESC);
+
+    /**
+     * Entries currently in the top K, keyed by packed (betId, customerId)
+     */
+    private final Map<Long, RankedStake> members = new HashMap<>();
+    private boolean changed;
+    private volatile List<RankedStake> published = Collections.emptyList();
+
+    /**
+     * @param capacity Number of entries kept (K)
+     */
+    public GlobalLeaderboard(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Offers a customer's new highest stake on an event. Writer thread only.
+     * @param betId ID of the betting event
+     * @param customerId ID of the customer
+     * @param amount New highest stake
+     */
+    public void offer(int betId, int customerId, int amount) {
+        if (top.size() == capacity && amount <= top.last().getAmount()) {
+            return;
+        }
+        Long key = ((long) betId << 32) | (customerId & 0xFFFFFFFFL);
+        RankedStake previous = members.get(key);
+        if (previous != null) {
+            if (previous.getAmount() >= amount) {
+                return;
+            }
+            top.remove(previous);
+        }
+        RankedStake entry = new RankedStake(betId, customerId, amount);
+        top.add(entry);
+        members.put(key, entry);
+        if (top.size() > capacity) {
+            RankedStake evicted = top.pollLast();
+            members.remove(((long) evicted.getBetId() << 32) | (evicted.getCustomerId() & 0xFFFFFFFFL));
+        }
+        changed = true;
+    }
+
+    /**
+     * Makes the updates since the last call visible to readers. Writer thread only.
+     */
+    public void publish() {
+        if (changed) {
+            published = Collections.unmodifiableList(new ArrayList<>(top));
+            changed = false;
+        }
+    }
+
+    /**
+     * @return Highest stakes, largest first
+     */
+    public List<RankedStake> getTop() {
+        return published;
+    }
+
+    /**
+     * @return Number of entries kept (K)
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
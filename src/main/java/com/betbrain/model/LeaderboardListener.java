@@ -0,0 +1,15 @@
+package com.betbrain.model;
+
+/**
+ * Receives leaderboard changes of a betting event
+ */
+@FunctionalInterface
+public interface LeaderboardListener {
+
+    /**
+     * Called by the thread that changed the ranking while it holds the
+     * event's ranking lock, so implementations must only record the change
+     * @param snapshot New leaderboard
+     */
+    void leaderboardChanged(LeaderboardSnapshot snapshot);
+}
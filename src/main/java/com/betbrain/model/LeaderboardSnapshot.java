@@ -0,0 +1,137 @@
+package com.betbrain.model;
+
+import com.betbrain.util.AsciiBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of the highest stakes of a betting event,
+ * including the pre-encoded "customerId=amount,..." response body
+ */
+public class LeaderboardSnapshot {
+
+    /**
+     * Snapshot of an event without stakes
+     */
+    public static final LeaderboardSnapshot EMPTY = new LeaderboardSnapshot(0, new int[0], new int[0], 0, 0);
+
+    private final long version;
+    private final int capacity;
+    private final int[] customerIds;
+    private final int[] amounts;
+    private final byte[] encoded;
+
+    /**
+     * Creates a snapshot from entries sorted by amount descendingly
+     * @param version Monotonic version, incremented whenever the ranking changes
+     * @param customerIds Customer IDs, first size entries are used
+     * @param amounts Stake amounts matching customerIds
+     * @param size Number of valid entries
+     * @param capacity Maximum number of entries the ranking holds
+     */
+    public LeaderboardSnapshot(long version, int[] customerIds, int[] amounts, int size, int capacity) {
+        this.version = version;
+        this.capacity = capacity;
+        this.customerIds = Arrays.copyOf(customerIds, size);
+        this.amounts = Arrays.copyOf(amounts, size);
+        this.encoded = encode(this.customerIds, this.amounts);
+    }
+
+    private static byte[] encode(int[] customerIds, int[] amounts) {
+        AsciiBuffer buffer = AsciiBuffer.forThread();
+        for (int i = 0; i < customerIds.length; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            buffer.appendInt(customerIds[i]).append('=').appendInt(amounts[i]);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @return Version of the ranking this snapshot represents
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Number of entries in the snapshot
+     */
+    public int size() {
+        return customerIds.length;
+    }
+
+    /**
+     * Lowest amount that can still enter the ranking. While the ranking is
+     * not full every amount qualifies.
+     * @return Amount of the last entry, or Integer.MIN_VALUE if not full
+     */
+    public int getCutoff() {
+        return customerIds.length == 0 || customerIds.length < capacity
+                ? Integer.MIN_VALUE : amounts[amounts.length - 1];
+    }
+
+    /**
+     * @param index Position in the ranking
+     * @return Customer ID at the given position
+     */
+    public int getCustomerId(int index) {
+        return customerIds[index];
+    }
+
+    /**
+     * @param index Position in the ranking
+     * @return Stake amount at the given position
+     */
+    public int getAmount(int index) {
+        return amounts[index];
+    }
+
+    /**
+     * Checks whether this snapshot holds the same ranking as the given arrays
+     */
+    boolean sameRanking(int[] otherIds, int[] otherAmounts, int otherSize) {
+        if (otherSize != customerIds.length) {
+            return false;
+        }
+        for (int i = 0; i < otherSize; i++) {
+            if (customerIds[i] != otherIds[i] || amounts[i] != otherAmounts[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Pre-encoded UTF-8 response body. Shared between readers, must not be modified.
+     * @return Comma-separated "customerId=amount" pairs
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * @return Entries as customer ID to amount pairs
+     */
+    public List<Map.Entry<Integer, Integer>> toEntries() {
+        List<Map.Entry<Integer, Integer>> results = new ArrayList<>(customerIds.length);
+        for (int i = 0; i < customerIds.length; i++) {
+            results.add(new AbstractMap.SimpleEntry<>(customerIds[i], amounts[i]));
+        }
+        return results;
+    }
+
+    /**
+     * @return Comma-separated "customerId=amount" pairs
+     */
+    @Override
+    public String toString() {
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,92 @@
+package com.betbrain.model;
+
+import com.betbrain.util.AsciiBuffer;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A customer's highest stake on one betting event, as returned by the
+ * cross-event queries
+ */
+public final class RankedStake {
+
+    /**
+     * Highest amount first; ties by bet ID, then customer ID
+     */
+    public static final Comparator<RankedStake> BY_AMOUNT_DESC = (a, b) -> {
+        if (a.amount != b.amount) {
+            return Integer.compare(b.amount, a.amount);
+        }
+        if (a.betId != b.betId) {
+            return Integer.compare(a.betId, b.betId);
+        }
+        return Integer.compare(a.customerId, b.customerId);
+    };
+
+    /**
+     * Ascending bet ID
+     */
+    public static final Comparator<RankedStake> BY_BET_ID = (a, b) -> Integer.compare(a.betId, b.betId);
+
+    private final int betId;
+    private final int customerId;
+    private final int amount;
+
+    /**
+     * @param betId ID of the betting event
+     * @param customerId ID of the customer
+     * @param amount Highest stake of the customer on the event
+     */
+    public RankedStake(int betId, int customerId, int amount) {
+        this.betId = betId;
+        this.customerId = customerId;
+        this.amount = amount;
+    }
+
+    public int getBetId() {
+        return betId;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Writes stakes as "betId,customerId,amount" lines
+     * @param buffer Receives the lines
+     * @param stakes Stakes to write
+     * @return The buffer
+     */
+    public static AsciiBuffer writeLines(AsciiBuffer buffer, List<RankedStake> stakes) {
+        for (RankedStake stake : stakes) {
+            buffer.appendInt(stake.betId).append(',')
+                    .appendInt(stake.customerId).append(',')
+                    .appendInt(stake.amount).append('\n');
+        }
+        return buffer;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RankedStake)) {
+            return false;
+        }
+        RankedStake other = (RankedStake) o;
+        return betId == other.betId && customerId == other.customerId && amount == other.amount;
+    }
+
+    @Override
+    public int hashCode() {
+        return (betId * 31 + customerId) * 31 + amount;
+    }
+
+    @Override
+    public String toString() {
+        return betId + "," + customerId + "," + amount;
+    }
+}
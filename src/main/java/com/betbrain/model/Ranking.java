@@ -0,0 +1,38 @@
+package com.betbrain.model;
+
+/**
+ * Ordered stake storage behind a BetEvent. Entries are (amount, customerId)
+ * pairs packed into longs, so they sort by amount and then by customer ID.
+ * Implementations are not thread-safe; BetEvent guards each one with a lock.
+ */
+interface Ranking {
+
+    /**
+     * Moves a customer to a higher amount
+     * @param customerId ID of the customer
+     * @param previousAmount Previous maximum, 0 if the customer had no stake
+     * @param newAmount New maximum
+     */
+    void raise(int customerId, int previousAmount, int newAmount);
+
+    /**
+     * Copies the highest entries in descending order
+     * @param out Destination array
+     * @param limit Maximum number of entries to copy
+     * @return Number of entries copied
+     */
+    int copyDescending(long[] out, int limit);
+
+    /**
+     * @return Approximate heap used by the backing arrays in bytes
+     */
+    long backingBytes();
+
+    /**
+     * Packs amount and customer ID so that longs sort by amount first.
+     * Both are non-negative, so the customer ID fits in the low 32 bits.
+     */
+    static long pack(int amount, int customerId) {
+        return ((long) amount << 32) | (customerId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,88 @@
+package com.betbrain.model;
+
+import com.betbrain.util.ConfigUtil;
+
+/**
+ * Describes how a betting event ranks its stakes.
+ * <p>
+ * Configuration of the default policy (system properties):
+ * <ul>
+ *     <li>{@code betting.ranking.mode} - full | topk (default full)</li>
+ *     <li>{@code betting.ranking.k} - number of best stakes kept in top-K
+ *     mode (default 20, raised to 20 if lower)</li>
+ * </ul>
+ * The published leaderboard always holds the top {@value #LEADERBOARD_SIZE}
+ * stakes, served from the structure the mode selects: in full mode it is
+ * merged from the sorted rankings of all customers and K is not used, in
+ * top-K mode a larger K only deepens the ranking it is cut from.
+ */
+public class RankingPolicy {
+
+    /**
+     * Ranking modes
+     */
+    public enum Mode {
+        /**
+         * Keeps every customer's maximum in sorted per-stripe rankings and
+         * serves the leaderboard from them
+         */
+        FULL,
+
+        /**
+         * Keeps only the best K stakes; lower stakes are rejected against a volatile cutoff
+         */
+        TOP_K
+    }
+
+    /**
+     * Number of entries in every published leaderboard
+     */
+    public static final int LEADERBOARD_SIZE = 20;
+
+    public static final int DEFAULT_K = LEADERBOARD_SIZE;
+
+    private static final RankingPolicy DEFAULT = fromConfig();
+
+    private final Mode mode;
+    private final int k;
+
+    /**
+     * @param mode Ranking mode
+     * @param k Number of best stakes ranked (at least the leaderboard size)
+     * @throws IllegalArgumentException if k is below the leaderboard size
+     */
+    public RankingPolicy(Mode mode, int k) {
+        if (k < LEADERBOARD_SIZE) {
+            throw new IllegalArgumentException("Ranking depth must be at least " + LEADERBOARD_SIZE);
+        }
+        this.mode = mode;
+        this.k = k;
+    }
+
+    /**
+     * @return Policy configured through system properties
+     */
+    public static RankingPolicy defaultPolicy() {
+        return DEFAULT;
+    }
+
+    private static RankingPolicy fromConfig() {
+        String name = ConfigUtil.getString("betting.ranking.mode", "full");
+        Mode mode = "topk".equalsIgnoreCase(name) || "top_k".equalsIgnoreCase(name) ? Mode.TOP_K : Mode.FULL;
+        return new RankingPolicy(mode, Math.max(LEADERBOARD_SIZE, ConfigUtil.getInt("betting.ranking.k", DEFAULT_K)));
+    }
+
+    /**
+     * @return Ranking mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return Number of best stakes ranked
+     */
+    public int getK() {
+        return k;
+    }
+}
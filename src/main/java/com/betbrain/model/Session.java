@@ -9,6 +9,11 @@ public class Session {
      */
     private final String sessionKey;
 
+    /**
+     * Customer owning this session
+     */
+    private final int customerId;
+
     /**
      * Expiration timestamp in milliseconds since epoch
      */
@@ -17,10 +22,12 @@ public class Session {
     /**
      * Creates a new session instance
      * @param sessionKey Unique session authentication key
+     * @param customerId ID of the customer owning the session
      * @param expireTime Session expiration timestamp (milliseconds)
      */
-    public Session(String sessionKey, long expireTime) {
+    public Session(String sessionKey, int customerId, long expireTime) {
         this.sessionKey = sessionKey;
+        this.customerId = customerId;
         this.expireTime = expireTime;
     }
 
@@ -31,10 +38,17 @@ public class Session {
         return sessionKey;
     }
 
+    /**
+     * @return ID of the customer owning the session
+     */
+    public int getCustomerId() {
+        return customerId;
+    }
+
     /**
      * @return Expiration timestamp in milliseconds
      */
     public long getExpireTime() {
         return expireTime;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.betbrain.model;
+
+import java.util.Arrays;
+
+/**
+ * Stakes submitted together under one session, in request order, with a
+ * status per item
+ */
+public class StakeBatch {
+
+    /**
+     * Status of an item that has not been processed yet
+     */
+    public static final int PENDING = 0;
+
+    private int[] betIds;
+    private int[] amounts;
+    private int[] statuses;
+    private int size;
+
+    /**
+     * @param initialCapacity Expected number of items
+     */
+    public StakeBatch(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        betIds = new int[capacity];
+        amounts = new int[capacity];
+        statuses = new int[capacity];
+    }
+
+    /**
+     * Appends a well-formed stake
+     * @param betId ID of the betting event
+     * @param amount Stake amount
+     */
+    public void add(int betId, int amount) {
+        append(betId, amount, PENDING);
+    }
+
+    /**
+     * Appends an item that was rejected while parsing
+     * @param status HTTP status reported for the item
+     */
+    public void reject(int status) {
+        append(-1, 0, status);
+    }
+
+    private void append(int betId, int amount, int status) {
+        if (size == betIds.length) {
+            int capacity = size << 1;
+            betIds = Arrays.copyOf(betIds, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+        betIds[size] = betId;
+        amounts[size] = amount;
+        statuses[size++] = status;
+    }
+
+    /**
+     * @return Number of items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index Position in the batch
+     * @return Bet ID of the item, -1 if it was rejected while parsing
+     */
+    public int getBetId(int index) {
+        return betIds[index];
+    }
+
+    /**
+     * @param index Position in the batch
+     * @return Stake amount of the item
+     */
+    public int getAmount(int index) {
+        return amounts[index];
+    }
+
+    /**
+     * @param index Position in the batch
+     * @return HTTP status of the item, or PENDING
+     */
+    public int getStatus(int index) {
+        return statuses[index];
+    }
+
+    /**
+     * @param index Position in the batch
+     * @param status HTTP status reported for the item
+     */
+    public void setStatus(int index, int status) {
+        statuses[index] = status;
+    }
+
+    /**
+     * Encodes the item statuses, one three-digit HTTP status per line in request order
+     * @return ASCII response body
+     */
+    public byte[] encodeStatuses() {
+        byte[] body = new byte[size * 4];
+        for (int i = 0, position = 0; i < size; i++) {
+            int status = statuses[i];
+            body[position++] = (byte) ('0' + status / 100 % 10);
+            body[position++] = (byte) ('0' + status / 10 % 10);
+            body[position++] = (byte) ('0' + status % 10);
+            body[position++] = '\n';
+        }
+        return body;
+    }
+}
@@ -0,0 +1,45 @@
+package com.betbrain.model;
+
+/**
+ * Customer maximum stakes of one betting event stored as parallel int columns
+ */
+public class StakeColumns {
+
+    private final int[] customerIds;
+    private final int[] amounts;
+    private final int size;
+
+    /**
+     * @param customerIds Customer IDs, only the first size entries are used
+     * @param amounts Highest stake of the customer at the same position
+     * @param size Number of entries
+     */
+    public StakeColumns(int[] customerIds, int[] amounts, int size) {
+        this.customerIds = customerIds;
+        this.amounts = amounts;
+        this.size = size;
+    }
+
+    /**
+     * @return Number of customers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index Position in the columns
+     * @return Customer ID at the given position
+     */
+    public int getCustomerId(int index) {
+        return customerIds[index];
+    }
+
+    /**
+     * @param index Position in the columns
+     * @return Highest stake of the customer at the given position
+     */
+    public int getAmount(int index) {
+        return amounts[index];
+    }
+}
@@ -0,0 +1,62 @@
+package com.betbrain.model;
+
+/**
+ * Ranking holding only the best K entries in a small descending array.
+ * <p>
+ * Amounts only grow, so a customer outside the top K can only enter it by
+ * raising above the current cutoff; BetEvent rejects every other stake
+ * without reaching this structure. A customer already in the top K who
+ * raises is moved up instead of being inserted twice.
+ */
+class TopKRanking implements Ranking {
+
+    private final long[] entries;
+    private int size;
+
+    TopKRanking(int k) {
+        this.entries = new long[k];
+    }
+
+    @Override
+    public void raise(int customerId, int previousAmount, int newAmount) {
+        int pos = previousAmount > 0 ? indexOf(Ranking.pack(previousAmount, customerId)) : -1;
+        if (pos < 0) {
+            if (size == entries.length) {
+                // Replace the lowest entry if the new one outranks it
+                if (Ranking.pack(newAmount, customerId) < entries[size - 1]) {
+                    return;
+                }
+                size--;
+            }
+            pos = size++;
+        }
+
+        long packed = Ranking.pack(newAmount, customerId);
+        while (pos > 0 && entries[pos - 1] < packed) {
+            entries[pos] = entries[pos - 1];
+            pos--;
+        }
+        entries[pos] = packed;
+    }
+
+    private int indexOf(long packed) {
+        for (int i = 0; i < size; i++) {
+            if (entries[i] == packed) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int copyDescending(long[] out, int limit) {
+        int count = Math.min(limit, size);
+        System.arraycopy(entries, 0, out, 0, count);
+        return count;
+    }
+
+    @Override
+    public long backingBytes() {
+        return 8L * entries.length;
+    }
+}
@@ -0,0 +1,120 @@
+package com.betbrain.persistence;
+
+import com.betbrain.model.Session;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persists active sessions to a compact binary file.
+ * <p>
+ * Layout (big-endian): magic, version, session count, then per session the
+ * customer ID, the expiry timestamp, the key length and the ASCII key bytes.
+ * Files are written to a temporary file, synced and atomically renamed.
+ */
+public class SessionStore {
+
+    private static final int MAGIC = 0x42425353;
+    private static final int VERSION = 1;
+
+    /**
+     * Customer ID, expiry timestamp and key length of a session without its key
+     */
+    private static final int RECORD_HEADER_BYTES = 4 + 8 + 1;
+
+    private final File file;
+
+    /**
+     * @param file Session file; its directory is created if missing
+     */
+    public SessionStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes all given sessions, replacing the previous file
+     * @param sessions Sessions to persist
+     * @return Number of sessions written
+     * @throws IOException if the file cannot be written
+     */
+    public int save(Collection<Session> sessions) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create session directory " + directory);
+        }
+        File temp = new File(directory, file.getName() + ".tmp");
+        int count = 0;
+        try (FileOutputStream stream = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0); // session count, patched below
+            for (Session session : sessions) {
+                byte[] key = session.getSessionKey().getBytes(StandardCharsets.US_ASCII);
+                out.writeInt(session.getCustomerId());
+                out.writeLong(session.getExpireTime());
+                out.writeByte(key.length);
+                out.write(key);
+                count++;
+            }
+            out.flush();
+            stream.getChannel().position(8);
+            out.writeInt(count);
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Reads the persisted sessions that are still valid
+     * @param now Current time in milliseconds; sessions expiring before it are skipped
+     * @return Unexpired sessions, empty if no file exists
+     * @throws IOException if the file cannot be read, is not a session file or is truncated
+     */
+    public List<Session> load(long now) throws IOException {
+        if (!file.isFile()) {
+            return new ArrayList<>();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a session file: " + file);
+        }
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / RECORD_HEADER_BYTES) {
+            throw new IOException("Corrupt session file " + file + ": " + count + " sessions announced");
+        }
+        byte[] bytes = buffer.array();
+        List<Session> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < RECORD_HEADER_BYTES) {
+                throw new IOException("Truncated session file " + file + " at session " + i);
+            }
+            int customerId = buffer.getInt();
+            long expireTime = buffer.getLong();
+            int keyLength = buffer.get() & 0xFF;
+            if (buffer.remaining() < keyLength) {
+                throw new IOException("Truncated session file " + file + " at session " + i);
+            }
+            int keyOffset = buffer.position();
+            buffer.position(keyOffset + keyLength);
+            if (expireTime >= now) {
+                sessions.add(new Session(new String(bytes, keyOffset, keyLength, StandardCharsets.US_ASCII),
+                        customerId, expireTime));
+            }
+        }
+        return sessions;
+    }
+}
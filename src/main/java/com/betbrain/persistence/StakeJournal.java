@@ -0,0 +1,530 @@
+package com.betbrain.persistence;
+
+import com.betbrain.service.StakeApplier;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-ahead journal of accepted stakes.
+ * <p>
+ * Stakes are appended as fixed-width 24 byte records
+ * (betId, customerId, amount, checksum, timestamp) to memory-mapped segment
+ * files that are rolled when full. A background flusher forces written pages
+ * to disk; in {@link Durability#GROUP} mode appenders wait for the next
+ * force, so concurrent appends share one fsync (group commit).
+ * <p>
+ * On startup the segments are replayed in parallel. Decoders split the
+ * segments into chunks and read every record once, sorting it into the
+ * partition of its bet ID; each applier owns one partition and applies its
+ * records chunk by chunk in journal order, so no two appliers touch the same
+ * betting event.
+ */
+public class StakeJournal implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(StakeJournal.class.getName());
+
+    static final int RECORD_SIZE = 24;
+    private static final int CHECKSUM_SEED = 0x5EED_B375;
+    private static final String SEGMENT_PREFIX = "stakes-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * Records decoded by one replay task
+     */
+    static final int REPLAY_CHUNK_RECORDS = 1 << 18;
+
+    /**
+     * Decoded chunks held in memory per partition while appliers catch up
+     */
+    private static final int REPLAY_WINDOW_PER_PARTITION = 4;
+
+    /**
+     * When appenders consider a stake durable
+     */
+    public enum Durability {
+        /**
+         * Append waits until the record has been forced to disk together with concurrent appends
+         */
+        GROUP,
+
+        /**
+         * Append returns once the record is in the mapped page cache; forced periodically
+         */
+        ASYNC
+    }
+
+    private final File directory;
+    private final int segmentRecords;
+    private final Durability durability;
+    private final long syncIntervalNanos;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<MappedByteBuffer> pendingForce = new ConcurrentLinkedQueue<>();
+    private final Object syncMonitor = new Object();
+    private final Thread flusher;
+
+    /**
+     * Guarded by appendLock
+     */
+    private long nextSegmentId;
+    private MappedByteBuffer current;
+    private int positionInSegment;
+    private long written;
+    private boolean closed;
+
+    /**
+     * Highest record count known to be on disk, guarded by syncMonitor
+     */
+    private long synced;
+
+    /**
+     * Set when the flusher died; appends are refused from then on
+     */
+    private volatile Throwable flusherFailure;
+
+    /**
+     * Opens a journal directory. Existing segments are kept for replay and new
+     * records always go to a fresh segment.
+     * @param directory Journal directory, created if missing
+     * @param segmentBytes Size of each segment file
+     * @param durability When appends are acknowledged
+     * @param syncIntervalMs Maximum time between forces
+     * @throws IOException if the directory or first segment cannot be created
+     */
+    public StakeJournal(File directory, long segmentBytes, Durability durability, long syncIntervalMs)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentRecords = (int) Math.max(1, Math.min(Integer.MAX_VALUE / RECORD_SIZE, segmentBytes / RECORD_SIZE));
+        this.durability = durability;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, syncIntervalMs));
+
+        File[] existing = listSegments();
+        nextSegmentId = existing.length == 0 ? 0 : segmentId(existing[existing.length - 1]) + 1;
+        current = mapNewSegment();
+
+        flusher = new Thread(this::flushLoop, "stake-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Appends a stake record
+     * @param betId ID of the betting event
+     * @param customerId ID of the customer
+     * @param amount Stake amount
+     * @throws IllegalStateException if the journal is closed or cannot be written
+     */
+    public void append(int betId, int customerId, int amount) {
+        long sequence;
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Stake journal closed");
+            }
+            Throwable failure = flusherFailure;
+            if (failure != null) {
+                throw new IllegalStateException("Stake journal cannot be forced to disk", failure);
+            }
+            if (positionInSegment == segmentRecords) {
+                roll();
+            }
+            int offset = positionInSegment * RECORD_SIZE;
+            long timestamp = System.currentTimeMillis();
+            current.putInt(offset, betId);
+            current.putInt(offset + 4, customerId);
+            current.putInt(offset + 12, checksum(betId, customerId, amount, timestamp));
+            current.putLong(offset + 16, timestamp);
+            // Amount last: a non-zero amount marks the record as complete
+            current.putInt(offset + 8, amount);
+            positionInSegment++;
+            sequence = ++written;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot roll journal segment", e);
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (durability == Durability.GROUP) {
+            LockSupport.unpark(flusher);
+            awaitSynced(sequence);
+        }
+    }
+
+    /**
+     * Replays every journaled stake
+     * @param applier Receives the stakes
+     * @param parallelism Number of bet ID partitions replayed concurrently
+     * @return Number of records replayed
+     * @throws IOException if a segment cannot be read
+     */
+    public long replay(StakeApplier applier, int parallelism) throws IOException {
+        return replay(applier, parallelism, 0);
+    }
+
+    /**
+     * Replays journaled stakes starting at a segment, e.g. the one recorded by a snapshot
+     * @param applier Receives the stakes
+     * @param parallelism Number of bet ID partitions replayed concurrently
+     * @param fromSegment Segments with a lower ID are skipped
+     * @return Number of records replayed
+     * @throws IOException if a segment cannot be read
+     */
+    public long replay(StakeApplier applier, int parallelism, long fromSegment) throws IOException {
+        return replay(applier, parallelism, fromSegment, REPLAY_CHUNK_RECORDS);
+    }
+
+    long replay(StakeApplier applier, int parallelism, long fromSegment, int chunkRecords) throws IOException {
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        List<ReplayChunk> chunks = new ArrayList<>();
+        for (File segment : listSegments()) {
+            if (segmentId(segment) < fromSegment) {
+                continue;
+            }
+            MappedByteBuffer buffer;
+            try (RandomAccessFile file = new RandomAccessFile(segment, "r");
+                 FileChannel channel = file.getChannel()) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            int records = buffer.capacity() / RECORD_SIZE;
+            for (int start = 0; start < records; start += chunkRecords) {
+                chunks.add(new ReplayChunk(buffers.size(), start, Math.min(records, start + chunkRecords)));
+            }
+            buffers.add(buffer);
+        }
+
+        int partitions = Math.max(1, parallelism);
+        Semaphore window = new Semaphore(REPLAY_WINDOW_PER_PARTITION * partitions);
+        ExecutorService decoders = Executors.newFixedThreadPool(partitions);
+        ExecutorService appliers = Executors.newFixedThreadPool(partitions);
+        try {
+            List<Future<Long>> results = new ArrayList<>(partitions);
+            for (int p = 0; p < partitions; p++) {
+                final int partition = p;
+                results.add(appliers.submit(() -> applyPartition(chunks, applier, partition, window)));
+            }
+            for (ReplayChunk chunk : chunks) {
+                while (!window.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    // Surfaces a failed applier instead of waiting for it forever
+                    for (Future<Long> result : results) {
+                        if (result.isDone()) {
+                            result.get();
+                        }
+                    }
+                }
+                decoders.execute(() -> chunk.decode(buffers.get(chunk.segment), partitions));
+            }
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get();
+            }
+            logger.log(Level.INFO, "Replayed {0} journaled stakes from {1} segments",
+                    new Object[]{total, buffers.size()});
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Journal replay interrupted", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IOException("Journal replay failed", e.getCause());
+        } finally {
+            decoders.shutdownNow();
+            appliers.shutdownNow();
+        }
+    }
+
+    /**
+     * Applies one partition's records of every chunk in journal order
+     */
+    private static long applyPartition(List<ReplayChunk> chunks, StakeApplier applier, int partition,
+                                       Semaphore window) throws Exception {
+        long count = 0;
+        int tornSegment = -1;
+        for (ReplayChunk chunk : chunks) {
+            ReplayChunk.Decoded decoded = chunk.decoded.get();
+            if (chunk.segment != tornSegment) {
+                int[] records = decoded.records[partition];
+                int size = decoded.sizes[partition];
+                for (int i = 0; i < size; i += 3) {
+                    applier.apply(records[i], records[i + 1], records[i + 2]);
+                }
+                count += size / 3;
+                if (decoded.torn) {
+                    // Later chunks of the segment lie beyond its end
+                    tornSegment = chunk.segment;
+                }
+            }
+            if (chunk.pendingPartitions.decrementAndGet() == 0) {
+                decoded.records = null;
+                window.release();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A range of records of one segment, decoded once and split by partition
+     */
+    private static final class ReplayChunk {
+        private final int segment;
+        private final int start;
+        private final int end;
+        private final CompletableFuture<Decoded> decoded = new CompletableFuture<>();
+        private final AtomicInteger pendingPartitions = new AtomicInteger();
+
+        private static final class Decoded {
+            /**
+             * (betId, customerId, amount) triples per partition, dropped once every partition applied them
+             */
+            private int[][] records;
+            private final int[] sizes;
+            private final boolean torn;
+
+            private Decoded(int[][] records, int[] sizes, boolean torn) {
+                this.records = records;
+                this.sizes = sizes;
+                this.torn = torn;
+            }
+        }
+
+        private ReplayChunk(int segment, int start, int end) {
+            this.segment = segment;
+            this.start = start;
+            this.end = end;
+        }
+
+        private void decode(MappedByteBuffer buffer, int partitions) {
+            try {
+                int[][] records = new int[partitions][];
+                int[] sizes = new int[partitions];
+                int expected = 3 * Math.max(4, (end - start) / partitions + 1);
+                boolean torn = false;
+                for (int record = start; record < end; record++) {
+                    int offset = record * RECORD_SIZE;
+                    int amount = buffer.getInt(offset + 8);
+                    int betId = buffer.getInt(offset);
+                    int customerId = buffer.getInt(offset + 4);
+                    long timestamp = buffer.getLong(offset + 16);
+                    if (amount == 0 || buffer.getInt(offset + 12) != checksum(betId, customerId, amount, timestamp)) {
+                        // End of the written part, or a torn write at the tail of a crashed segment
+                        torn = true;
+                        break;
+                    }
+                    int partition = partitionOf(betId, partitions);
+                    int[] target = records[partition];
+                    int size = sizes[partition];
+                    if (target == null) {
+                        target = records[partition] = new int[expected];
+                    } else if (size == target.length) {
+                        target = records[partition] = Arrays.copyOf(target, size * 2);
+                    }
+                    target[size] = betId;
+                    target[size + 1] = customerId;
+                    target[size + 2] = amount;
+                    sizes[partition] = size + 3;
+                }
+                pendingPartitions.set(partitions);
+                decoded.complete(new Decoded(records, sizes, torn));
+            } catch (RuntimeException | Error e) {
+                decoded.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Deletes segments that are no longer needed for recovery, e.g. after a snapshot
+     * @param segmentId Segments with a lower ID are deleted
+     */
+    public void deleteSegmentsBefore(long segmentId) {
+        for (File segment : listSegments()) {
+            if (segmentId(segment) < segmentId && !segment.delete()) {
+                logger.warning("Cannot delete journal segment " + segment);
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment so that every record appended so far lies in
+     * segments with a lower ID than the returned one
+     * @return ID of the new current segment
+     * @throws IOException if the segment cannot be created
+     */
+    public long rollSegment() throws IOException {
+        appendLock.lock();
+        try {
+            roll();
+            return nextSegmentId - 1;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of records appended since the journal was opened
+     */
+    public long getWrittenCount() {
+        appendLock.lock();
+        try {
+            return written;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Forces all appended records to disk and stops the flusher
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Caller holds appendLock
+     */
+    private void roll() throws IOException {
+        pendingForce.add(current);
+        current = mapNewSegment();
+        positionInSegment = 0;
+    }
+
+    private MappedByteBuffer mapNewSegment() throws IOException {
+        File segment = new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX));
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw");
+             FileChannel channel = file.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE);
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            forceUntilClosed();
+        } catch (RuntimeException | Error e) {
+            logger.log(Level.SEVERE, "Stake journal flusher failed, refusing further stakes", e);
+            flusherFailure = e;
+            synchronized (syncMonitor) {
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void forceUntilClosed() {
+        while (true) {
+            long target;
+            MappedByteBuffer segment;
+            boolean stopping;
+            appendLock.lock();
+            try {
+                target = written;
+                segment = current;
+                stopping = closed;
+            } finally {
+                appendLock.unlock();
+            }
+
+            if (target > syncedCount()) {
+                MappedByteBuffer rolled;
+                while ((rolled = pendingForce.poll()) != null) {
+                    rolled.force();
+                }
+                segment.force();
+                synchronized (syncMonitor) {
+                    synced = target;
+                    syncMonitor.notifyAll();
+                }
+            }
+            if (stopping) {
+                return;
+            }
+            LockSupport.parkNanos(syncIntervalNanos);
+        }
+    }
+
+    private long syncedCount() {
+        synchronized (syncMonitor) {
+            return synced;
+        }
+    }
+
+    private void awaitSynced(long sequence) {
+        synchronized (syncMonitor) {
+            boolean interrupted = false;
+            while (synced < sequence && flusher.isAlive()) {
+                try {
+                    syncMonitor.wait(TimeUnit.NANOSECONDS.toMillis(syncIntervalNanos) + 1);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (synced < sequence) {
+                throw new IllegalStateException("Stake was not forced to disk", flusherFailure);
+            }
+        }
+    }
+
+    private File[] listSegments() {
+        File[] segments = directory.listFiles((dir, name) ->
+                name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments, (a, b) -> Long.compare(segmentId(a), segmentId(b)));
+        return segments;
+    }
+
+    private static long segmentId(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    static int partitionOf(int betId, int partitions) {
+        int h = betId * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % partitions;
+    }
+
+    private static int checksum(int betId, int customerId, int amount, long timestamp) {
+        int h = CHECKSUM_SEED;
+        h = 31 * h + betId;
+        h = 31 * h + customerId;
+        h = 31 * h + amount;
+        h = 31 * h + (int) (timestamp ^ (timestamp >>> 32));
+        return h;
+    }
+}
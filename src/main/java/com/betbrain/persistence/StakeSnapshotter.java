@@ -0,0 +1,185 @@
+package com.betbrain.persistence;
+
+import com.betbrain.model.BetEvent;
+import com.betbrain.model.StakeColumns;
+import com.betbrain.service.StakeApplier;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes and restores columnar snapshots of all betting events.
+ * <p>
+ * File layout (big-endian): magic, version, journal segment, event count,
+ * then one block per event: betId, customer count, the customer ID column
+ * and the amount column. Events are exported one at a time while ingestion
+ * continues; since stakes only ever raise a customer's maximum, replaying the
+ * journal from the recorded segment on top of the snapshot converges to the
+ * exact state.
+ * <p>
+ * Snapshots are written to a temporary file, synced and atomically renamed,
+ * so a crash mid-write keeps the previous snapshot.
+ */
+public class StakeSnapshotter {
+
+    private static final Logger logger = Logger.getLogger(StakeSnapshotter.class.getName());
+
+    private static final int MAGIC = 0x42425354;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final String SNAPSHOT_FILE = "stakes.snapshot";
+
+    private final File directory;
+
+    /**
+     * @param directory Snapshot directory, created if missing
+     * @throws IOException if the directory cannot be created
+     */
+    public StakeSnapshotter(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create snapshot directory " + directory);
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Writes a snapshot of the given events
+     * @param events Betting events by bet ID
+     * @param journalSegment First journal segment not fully contained in the snapshot
+     * @return Number of customer stakes written
+     * @throws IOException if the snapshot cannot be written
+     */
+    public long write(Map<Integer, BetEvent> events, long journalSegment) throws IOException {
+        File target = new File(directory, SNAPSHOT_FILE);
+        File temp = new File(directory, SNAPSHOT_FILE + ".tmp");
+        long stakes = 0;
+        int eventCount = 0;
+        try (FileOutputStream file = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalSegment);
+            out.writeInt(0); // event count, patched below
+
+            for (Map.Entry<Integer, BetEvent> entry : events.entrySet()) {
+                StakeColumns columns = entry.getValue().exportStakes();
+                int size = columns.size();
+                out.writeInt(entry.getKey());
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(columns.getCustomerId(i));
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(columns.getAmount(i));
+                }
+                stakes += size;
+                eventCount++;
+            }
+            out.flush();
+            file.getChannel().position(HEADER_BYTES - 4);
+            out.writeInt(eventCount);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.log(Level.INFO, "Wrote snapshot of {0} events with {1} stakes", new Object[]{eventCount, stakes});
+        return stakes;
+    }
+
+    /**
+     * Restores the latest snapshot, restoring events in parallel
+     * @param applier Receives every snapshotted stake
+     * @param parallelism Number of events restored concurrently
+     * @return Journal segment to replay from, or 0 if there is no snapshot
+     * @throws IOException if the snapshot cannot be read
+     */
+    public long restore(StakeApplier applier, int parallelism) throws IOException {
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        if (!snapshot.isFile()) {
+            return 0;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "r");
+             FileChannel channel = file.getChannel()) {
+            if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+                throw new IOException("Not a stake snapshot: " + snapshot);
+            }
+            long journalSegment = file.readLong();
+            int eventCount = file.readInt();
+
+            // Index the blocks first so events can be restored independently
+            int[] betIds = new int[eventCount];
+            int[] sizes = new int[eventCount];
+            long[] offsets = new long[eventCount];
+            long position = HEADER_BYTES;
+            for (int i = 0; i < eventCount; i++) {
+                file.seek(position);
+                betIds[i] = file.readInt();
+                sizes[i] = file.readInt();
+                offsets[i] = position + 8;
+                position = offsets[i] + 8L * sizes[i];
+            }
+
+            long stakes = restoreEvents(channel, betIds, sizes, offsets, applier, parallelism);
+            logger.log(Level.INFO, "Restored {0} events with {1} stakes from snapshot",
+                    new Object[]{eventCount, stakes});
+            return journalSegment;
+        }
+    }
+
+    private static long restoreEvents(FileChannel channel, int[] betIds, int[] sizes, long[] offsets,
+                                      StakeApplier applier, int parallelism) throws IOException {
+        AtomicInteger next = new AtomicInteger();
+        int workerCount = Math.max(1, Math.min(parallelism, betIds.length));
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        try {
+            List<Future<Long>> results = new ArrayList<>(workerCount);
+            for (int w = 0; w < workerCount; w++) {
+                results.add(workers.submit(() -> {
+                    long restored = 0;
+                    int index;
+                    while ((index = next.getAndIncrement()) < betIds.length) {
+                        int size = sizes[index];
+                        IntBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, offsets[index], 8L * size)
+                                .asIntBuffer();
+                        for (int i = 0; i < size; i++) {
+                            applier.apply(betIds[index], block.get(i), block.get(size + i));
+                        }
+                        restored += size;
+                    }
+                    return restored;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get();
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Snapshot restore interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Snapshot restore failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
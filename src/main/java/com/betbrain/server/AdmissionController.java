@@ -0,0 +1,249 @@
+package com.betbrain.server;
+
+import com.betbrain.util.ConfigUtil;
+import com.betbrain.util.HttpUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Admission-control stage placed in front of the Router.
+ * <p>
+ * Every request is timestamped when the HTTP server hands it to the executor
+ * (see {@link #wrap(Executor)}), so the stage knows how long it sat in the queue.
+ * Requests are answered with a fast 503 + Retry-After when their queueing delay
+ * exceeds the latency budget or too many requests are already in flight.
+ * Reads ({@code /highstakes}, {@code /bets}, {@code /stream}) use tighter limits than writes, so they are shed first.
+ * <p>
+ * Configuration (system properties):
+ * <ul>
+ *     <li>{@code betting.admission.enabled} - enable shedding (default true)</li>
+ *     <li>{@code betting.admission.maxInFlight} - in-flight limit for writes (default 1024)</li>
+ *     <li>{@code betting.admission.readInFlightRatio} - read limit as percent of maxInFlight (default 50)</li>
+ *     <li>{@code betting.admission.writeQueueBudgetMs} - max queueing delay for writes (default 500)</li>
+ *     <li>{@code betting.admission.readQueueBudgetMs} - max queueing delay for reads (default 100)</li>
+ *     <li>{@code betting.admission.retryAfterSeconds} - Retry-After header value (default 1)</li>
+ *     <li>{@code betting.admission.rejectionThreads} - threads answering requests rejected by a
+ *     full executor queue (default 2)</li>
+ *     <li>{@code betting.admission.rejectionQueueDepth} - rejected requests waiting for those
+ *     threads before connections are closed without an answer (default 256)</li>
+ * </ul>
+ */
+public class AdmissionController implements HttpHandler {
+
+    private static final Logger logger = Logger.getLogger(AdmissionController.class.getName());
+    private static final String READ_PATH_SUFFIX = "/highstakes";
+    private static final String BETS_PATH_SUFFIX = "/bets";
+    private static final String STREAM_PATH_SUFFIX = "/stream";
+
+    private final HttpHandler next;
+    private final boolean enabled;
+    private final int writeInFlightLimit;
+    private final int readInFlightLimit;
+    private final long writeQueueBudgetNanos;
+    private final long readQueueBudgetNanos;
+    private final String retryAfterSeconds;
+
+    /**
+     * Answers requests the request executor rejected. Reading such a request
+     * blocks on the client, so it must not run on the thread that submitted
+     * it: for the JDK server that is the only dispatcher thread.
+     */
+    private final ThreadPoolExecutor rejectionExecutor;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shedReads = new LongAdder();
+    private final LongAdder shedWrites = new LongAdder();
+    private final LongAdder queueFullRejections = new LongAdder();
+
+    /**
+     * Queueing state of the request running on the current thread:
+     * [0] - enqueue timestamp (nanoTime), [1] - 1 if the executor rejected the task
+     */
+    private final ThreadLocal<long[]> currentTask = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * Creates an admission stage with limits read from configuration
+     * @param next Handler receiving admitted requests
+     */
+    public AdmissionController(HttpHandler next) {
+        this(next,
+                ConfigUtil.getBoolean("betting.admission.enabled", true),
+                ConfigUtil.getInt("betting.admission.maxInFlight", 1024),
+                ConfigUtil.getInt("betting.admission.readInFlightRatio", 50),
+                ConfigUtil.getLong("betting.admission.writeQueueBudgetMs", 500),
+                ConfigUtil.getLong("betting.admission.readQueueBudgetMs", 100),
+                ConfigUtil.getInt("betting.admission.retryAfterSeconds", 1),
+                ConfigUtil.getInt("betting.admission.rejectionThreads", 2),
+                ConfigUtil.getInt("betting.admission.rejectionQueueDepth", 256));
+    }
+
+    AdmissionController(HttpHandler next, boolean enabled, int maxInFlight, int readInFlightRatio,
+                        long writeQueueBudgetMs, long readQueueBudgetMs, int retryAfterSeconds,
+                        int rejectionThreads, int rejectionQueueDepth) {
+        this.next = next;
+        this.enabled = enabled;
+        this.writeInFlightLimit = Math.max(1, maxInFlight);
+        this.readInFlightLimit = Math.max(1, writeInFlightLimit * readInFlightRatio / 100);
+        this.writeQueueBudgetNanos = TimeUnit.MILLISECONDS.toNanos(writeQueueBudgetMs);
+        this.readQueueBudgetNanos = TimeUnit.MILLISECONDS.toNanos(readQueueBudgetMs);
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfterSeconds));
+        int threads = Math.max(1, rejectionThreads);
+        this.rejectionExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, rejectionQueueDepth)), task -> {
+                    Thread thread = new Thread(task, "admission-rejection");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        rejectionExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Wraps the request executor so every task records its enqueue time
+     * @param delegate Executor actually running the requests
+     * @return Executor to hand to the HTTP server
+     */
+    public Executor wrap(Executor delegate) {
+        return task -> delegate.execute(new QueuedTask(task, System.nanoTime()));
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long[] state = currentTask.get();
+        boolean rejected = state[1] != 0;
+        long queueDelay = state[0] == 0 ? 0 : System.nanoTime() - state[0];
+        boolean read = isRead(exchange.getRequestURI().getPath());
+
+        int running = inFlight.incrementAndGet();
+        try {
+            if (rejected || (enabled && shouldShed(read, queueDelay, running))) {
+                (read ? shedReads : shedWrites).increment();
+                sendOverloaded(exchange);
+                return;
+            }
+            admitted.increment();
+            next.handle(exchange);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Decides whether a request must be shed
+     * @param read true for read-only requests, which get the tighter limits
+     * @param queueDelayNanos Time the request waited for an executor thread
+     * @param running In-flight requests including this one
+     * @return true if the request should be answered with 503
+     */
+    boolean shouldShed(boolean read, long queueDelayNanos, int running) {
+        if (read) {
+            return queueDelayNanos > readQueueBudgetNanos || running > readInFlightLimit;
+        }
+        return queueDelayNanos > writeQueueBudgetNanos || running > writeInFlightLimit;
+    }
+
+    private boolean isRead(String path) {
+        return path != null && (path.endsWith(READ_PATH_SUFFIX) || path.endsWith(BETS_PATH_SUFFIX)
+                || path.endsWith(STREAM_PATH_SUFFIX));
+    }
+
+    private void sendOverloaded(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", retryAfterSeconds);
+        HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_OVERLOADED);
+    }
+
+    /**
+     * Stops the threads answering rejected requests
+     */
+    public void shutdown() {
+        rejectionExecutor.shutdownNow();
+    }
+
+    /**
+     * @return Number of requests currently being processed
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return Total requests passed on to the next handler
+     */
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return Total read requests answered with 503
+     */
+    public long getShedReadCount() {
+        return shedReads.sum();
+    }
+
+    /**
+     * @return Total write requests answered with 503
+     */
+    public long getShedWriteCount() {
+        return shedWrites.sum();
+    }
+
+    /**
+     * @return Total tasks rejected by a full executor queue
+     */
+    public long getQueueFullRejectionCount() {
+        return queueFullRejections.sum();
+    }
+
+    /**
+     * Executor task carrying its enqueue timestamp
+     */
+    public final class QueuedTask implements Runnable {
+        private final Runnable task;
+        private final long enqueuedAt;
+
+        private QueuedTask(Runnable task, long enqueuedAt) {
+            this.task = task;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        @Override
+        public void run() {
+            run(false);
+        }
+
+        /**
+         * Hands the task to the rejection threads to run in rejected mode: the
+         * request is parsed and immediately answered with 503 instead of
+         * reaching the Router. Without this the HTTP server drops the task and
+         * the client hangs.
+         * @throws java.util.concurrent.RejectedExecutionException if the rejection
+         *         threads are saturated too, so the server closes the connection
+         */
+        public void runRejected() {
+            queueFullRejections.increment();
+            logger.fine("Executor saturated, answering request with 503");
+            rejectionExecutor.execute(() -> run(true));
+        }
+
+        private void run(boolean rejected) {
+            long[] state = currentTask.get();
+            state[0] = enqueuedAt;
+            state[1] = rejected ? 1 : 0;
+            try {
+                task.run();
+            } finally {
+                state[0] = 0;
+                state[1] = 0;
+            }
+        }
+    }
+}
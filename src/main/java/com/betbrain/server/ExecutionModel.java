@@ -0,0 +1,35 @@
+package com.betbrain.server;
+
+/**
+ * Supported request execution models, selected at startup
+ */
+public enum ExecutionModel {
+    /**
+     * Bounded ThreadPoolExecutor with a fixed-capacity queue
+     */
+    FIXED,
+
+    /**
+     * Work-stealing ForkJoinPool sized to the available cores
+     */
+    FORK_JOIN,
+
+    /**
+     * One virtual thread per request (requires a JVM with virtual thread support)
+     */
+    VIRTUAL;
+
+    /**
+     * Resolves an execution model from its configuration name
+     * @param name Model name, case-insensitive ("fixed", "fork_join"/"forkjoin", "virtual")
+     * @return Matching execution model
+     * @throws IllegalArgumentException for unknown names
+     */
+    public static ExecutionModel fromName(String name) {
+        String normalized = name.trim().toUpperCase().replace('-', '_');
+        if ("FORKJOIN".equals(normalized)) {
+            return FORK_JOIN;
+        }
+        return valueOf(normalized);
+    }
+}
@@ -0,0 +1,110 @@
+package com.betbrain.server;
+
+import com.betbrain.handler.ServiceUnavailableRejectionHandler;
+import com.betbrain.util.ConfigUtil;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds the request executor for the configured execution model.
+ * <p>
+ * Configuration (system properties):
+ * <ul>
+ *     <li>{@code betting.executor} - fixed | forkjoin | virtual (default fixed)</li>
+ *     <li>{@code betting.executor.coreSize} - core threads of the fixed pool (default: cores)</li>
+ *     <li>{@code betting.executor.maxSize} - max threads of the fixed pool (default: 2 x cores)</li>
+ *     <li>{@code betting.executor.queueDepth} - fixed pool queue capacity (default 5000)</li>
+ *     <li>{@code betting.executor.parallelism} - ForkJoinPool parallelism (default: cores)</li>
+ * </ul>
+ */
+public class ExecutorFactory {
+
+    private static final Logger logger = Logger.getLogger(ExecutorFactory.class.getName());
+
+    public static final String PROP_MODEL = "betting.executor";
+    public static final String PROP_CORE_SIZE = "betting.executor.coreSize";
+    public static final String PROP_MAX_SIZE = "betting.executor.maxSize";
+    public static final String PROP_QUEUE_DEPTH = "betting.executor.queueDepth";
+    public static final String PROP_PARALLELISM = "betting.executor.parallelism";
+
+    private static final int DEFAULT_QUEUE_DEPTH = 5000;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * Reads the execution model from configuration
+     * @return Configured execution model, FIXED when unset or unknown
+     */
+    public static ExecutionModel configuredModel() {
+        String name = ConfigUtil.getString(PROP_MODEL, ExecutionModel.FIXED.name());
+        try {
+            return ExecutionModel.fromName(name);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Unknown execution model '" + name + "', falling back to FIXED");
+            return ExecutionModel.FIXED;
+        }
+    }
+
+    /**
+     * Creates an executor for the given model using configured sizes
+     * @param model Requested execution model
+     * @return Executor service ready to accept requests
+     */
+    public static ExecutorService create(ExecutionModel model) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        switch (model) {
+            case FORK_JOIN:
+                int parallelism = Math.max(1, ConfigUtil.getInt(PROP_PARALLELISM, cores));
+                logger.log(Level.INFO, "Using ForkJoinPool executor, parallelism={0}", parallelism);
+                return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                        null, true);
+            case VIRTUAL:
+                ExecutorService virtual = createVirtualThreadExecutor();
+                if (virtual != null) {
+                    logger.info("Using virtual-thread-per-task executor");
+                    return virtual;
+                }
+                logger.warning("Virtual threads not supported by this JVM, falling back to FIXED");
+                return createFixedPool(cores);
+            case FIXED:
+            default:
+                return createFixedPool(cores);
+        }
+    }
+
+    private static ThreadPoolExecutor createFixedPool(int cores) {
+        int coreSize = Math.max(1, ConfigUtil.getInt(PROP_CORE_SIZE, cores));
+        int maxSize = Math.max(coreSize, ConfigUtil.getInt(PROP_MAX_SIZE, cores * 2));
+        int queueDepth = Math.max(1, ConfigUtil.getInt(PROP_QUEUE_DEPTH, DEFAULT_QUEUE_DEPTH));
+        logger.log(Level.INFO, "Using fixed thread pool executor, core={0}, max={1}, queue={2}",
+                new Object[]{coreSize, maxSize, queueDepth});
+        return new ThreadPoolExecutor(
+                coreSize,
+                maxSize,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueDepth),
+                new ServiceUnavailableRejectionHandler()
+        );
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor reflectively so the
+     * server still compiles and runs on JVMs without virtual threads
+     * @return Virtual thread executor, or null if unavailable
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -10,10 +10,20 @@ import java.io.IOException;
 public interface Handler extends HttpHandler {
 
     /**
-     * Processes an HTTP exchange with enhanced routing capabilities
+     * Processes an HTTP exchange with the path parameters extracted by the Router
+     * @param exchange The HTTP exchange containing request/response objects
+     * @param params Integer parameters captured from the route template
+     * @throws IOException If an I/O error occurs during processing
+     */
+    void handle(HttpExchange exchange, PathParams params) throws IOException;
+
+    /**
+     * Processes an HTTP exchange that was not dispatched through the Router
      * @param exchange The HTTP exchange containing request/response objects
      * @throws IOException If an I/O error occurs during processing
      */
     @Override
-    void handle(HttpExchange exchange) throws IOException;
-}
\ No newline at end of file
+    default void handle(HttpExchange exchange) throws IOException {
+        handle(exchange, PathParams.EMPTY);
+    }
+}
@@ -0,0 +1,54 @@
+package com.betbrain.server;
+
+/**
+ * Integer path parameters captured by the Router while matching a route template
+ */
+public class PathParams {
+
+    /**
+     * Parameters of a request that was not dispatched by the Router
+     */
+    public static final PathParams EMPTY = new PathParams(0);
+
+    /**
+     * Marker for a numeric segment that does not fit into an int
+     */
+    static final int OVERFLOW = -1;
+
+    private final int[] values;
+    private String[] names = new String[0];
+
+    PathParams(int capacity) {
+        this.values = new int[capacity];
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    void bind(String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * Gets a captured integer parameter by template name
+     * @param name Parameter name as declared in the template, e.g. "betId" for {betId:int}
+     * @return Non-negative parameter value
+     * @throws IllegalArgumentException if the parameter is missing or out of int range
+     */
+    public int getInt(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                if (values[i] == OVERFLOW) {
+                    throw new IllegalArgumentException("Invalid " + name + " format");
+                }
+                return values[i];
+            }
+        }
+        throw new IllegalArgumentException("Missing " + name + " in path");
+    }
+}
@@ -1,32 +1,85 @@
 package com.betbrain.server;
 
 import com.betbrain.BettingServer;
+import com.betbrain.metrics.Counter;
+import com.betbrain.metrics.LatencyHistogram;
+import com.betbrain.metrics.MetricsRegistry;
 import com.betbrain.util.HttpUtil;
+import com.betbrain.util.LogRateLimiter;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 /**
- * Handles HTTP request routing using regular expression patterns
+ * Handles HTTP request routing using compiled path templates.
+ * <p>
+ * Templates consist of literal segments and integer parameters, e.g.
+ * {@code /{betId:int}/stake}. They are compiled into a segment trie, so a
+ * request path is matched in a single left-to-right scan: literal segments are
+ * compared in place and numeric segments are parsed straight from the path
+ * without creating substrings. Literal segments take precedence over
+ * parameters at the same position.
+ * <p>
+ * Each route records its request latency and error responses in the
+ * {@link MetricsRegistry}, labelled with the route template.
  */
-public class Router implements Handler {
+public class Router implements HttpHandler {
     private static final Logger logger = Logger.getLogger(Router.class.getName());
-    private static final String CONTENT_TYPE = "text/plain";
+    private static final LogRateLimiter errorLog = LogRateLimiter.forCategory("routing-error", 10);
+    private static final String INT_PARAM_SUFFIX = ":int}";
+    private static final String LATENCY_METRIC = "betting_http_request_duration_seconds";
+    private static final String ERROR_METRIC = "betting_http_errors_total";
+    private static final Counter notFound = MetricsRegistry.getInstance().counter(
+            "betting_http_not_found_total", "Requests matching no route");
 
-    private final Map<Pattern, Handler> routeMap = new HashMap<>();
+    private final Node root = new Node();
+    private int maxParams;
 
     /**
-     * Registers a new route pattern with corresponding handler
-     * @param regexPattern Regular expression pattern for URL matching
+     * Parameters reused by each request thread; handlers read them synchronously
+     */
+    private final ThreadLocal<PathParams> threadParams = ThreadLocal.withInitial(() -> new PathParams(maxParams));
+
+    /**
+     * Registers a new route template with corresponding handler
+     * @param template Path template such as /{betId:int}/stake
      * @param handler Request handler implementation
+     * @throws IllegalArgumentException for malformed templates
      */
-    public void addRoute(String regexPattern, Handler handler) {
-        routeMap.put(Pattern.compile(regexPattern), handler);
-        logger.fine(() -> "Route added: " + regexPattern);
+    public void addRoute(String template, Handler handler) {
+        if (template == null || !template.startsWith("/") || template.length() < 2) {
+            throw new IllegalArgumentException("Route template must start with '/': " + template);
+        }
+
+        Node node = root;
+        List<String> paramNames = new ArrayList<>();
+        for (String segment : template.substring(1).split("/", -1)) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("Empty segment in route template: " + template);
+            }
+            if (segment.startsWith("{")) {
+                if (!segment.endsWith(INT_PARAM_SUFFIX) || segment.length() <= 1 + INT_PARAM_SUFFIX.length()) {
+                    throw new IllegalArgumentException("Unsupported parameter '" + segment
+                            + "' in route template: " + template);
+                }
+                paramNames.add(segment.substring(1, segment.length() - INT_PARAM_SUFFIX.length()));
+                node = node.intChild();
+            } else {
+                node = node.literalChild(segment);
+            }
+        }
+
+        node.handler = handler;
+        node.paramNames = paramNames.toArray(new String[0]);
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        node.latency = metrics.histogram(LATENCY_METRIC, "Request handling time by route", "route", template);
+        node.errors = metrics.counter(ERROR_METRIC, "Responses with status 400 or above by route", "route", template);
+        maxParams = Math.max(maxParams, paramNames.size());
+        logger.fine(() -> "Route added: " + template);
     }
 
     /**
@@ -36,33 +89,110 @@ public class Router implements Handler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         if (BettingServer.isShuttingDown()) {
-            sendErrorResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE,
-                    "Service Unavailable - Server is shutting down");
+            HttpUtil.sendResponse(exchange, HttpUtil.SERVICE_UNAVAILABLE, HttpUtil.MESSAGE_SHUTTING_DOWN);
             return;
         }
 
-        String requestPath = exchange.getRequestURI().getPath();
-        Handler matchedHandler = findMatchingHandler(requestPath);
+        String requestPath = exchange.getRequestURI().getRawPath();
+        PathParams params = threadParams.get();
+        if (params.capacity() < maxParams) {
+            params = new PathParams(maxParams);
+            threadParams.set(params);
+        }
+        Node route = findRoute(requestPath, params);
 
-        if (matchedHandler != null) {
-            matchedHandler.handle(exchange);
+        if (route != null) {
+            long start = System.nanoTime();
+            try {
+                route.handler.handle(exchange, params);
+            } finally {
+                route.latency.recordSince(start);
+                if (exchange.getResponseCode() >= HttpUtil.BAD_REQUEST) {
+                    route.errors.increment();
+                }
+            }
         } else {
+            notFound.increment();
             sendErrorResponse(exchange, HttpUtil.NOT_FOUND_CODE,
                     "Not Found - Resource does not exist: " + requestPath);
         }
     }
 
     /**
-     * Finds handler for requested path using pattern matching
-     * @param path Request URL path
+     * Finds the handler for a request path
+     * @param path Raw request URL path
+     * @param params Receives the captured integer parameters
      * @return Matching handler or null if not found
      */
-    private Handler findMatchingHandler(String path) {
-        return routeMap.entrySet().stream()
-                .filter(entry -> entry.getKey().matcher(path).matches())
-                .findFirst()
-                .map(Map.Entry::getValue)
-                .orElse(null);
+    Handler findMatchingHandler(String path, PathParams params) {
+        Node route = findRoute(path, params);
+        return route == null ? null : route.handler;
+    }
+
+    private Node findRoute(String path, PathParams params) {
+        if (path == null) {
+            return null;
+        }
+        Node matched = match(root, path, 0, params, 0);
+        if (matched != null) {
+            params.bind(matched.paramNames);
+        }
+        return matched;
+    }
+
+    /**
+     * Matches the path from position pos against the subtree of node
+     * @return Terminal node holding the handler, or null if nothing matches
+     */
+    private Node match(Node node, String path, int pos, PathParams params, int paramIndex) {
+        int length = path.length();
+        if (pos == length) {
+            return node.handler != null ? node : null;
+        }
+        if (path.charAt(pos) != '/') {
+            return null;
+        }
+
+        int start = pos + 1;
+        int end = start;
+        boolean numeric = true;
+        long value = 0;
+        while (end < length) {
+            char c = path.charAt(end);
+            if (c == '/') {
+                break;
+            }
+            if (numeric) {
+                if (c >= '0' && c <= '9') {
+                    if (value <= Integer.MAX_VALUE) {
+                        value = value * 10 + (c - '0');
+                    }
+                } else {
+                    numeric = false;
+                }
+            }
+            end++;
+        }
+        if (end == start) {
+            return null;
+        }
+
+        int segmentLength = end - start;
+        for (int i = 0; i < node.literals.length; i++) {
+            String literal = node.literals[i];
+            if (literal.length() == segmentLength && path.regionMatches(start, literal, 0, segmentLength)) {
+                Node matched = match(node.literalChildren[i], path, end, params, paramIndex);
+                if (matched != null) {
+                    return matched;
+                }
+            }
+        }
+
+        if (numeric && node.intChild != null) {
+            params.set(paramIndex, value > Integer.MAX_VALUE ? PathParams.OVERFLOW : (int) value);
+            return match(node.intChild, path, end, params, paramIndex + 1);
+        }
+        return null;
     }
 
     /**
@@ -74,14 +204,43 @@ public class Router implements Handler {
     private void sendErrorResponse(HttpExchange exchange, int statusCode, String message)
             throws IOException {
 
-        logger.warning(() -> String.format("Error %d: %s", statusCode, message));
+        if (errorLog.tryAcquire()) {
+            logger.warning(() -> String.format("Error %d: %s", statusCode, message));
+        }
+
+        HttpUtil.sendResponse(exchange, statusCode, message);
+    }
+
+    /**
+     * Trie node for one path segment position
+     */
+    private static final class Node {
+        private String[] literals = new String[0];
+        private Node[] literalChildren = new Node[0];
+        private Node intChild;
+        private Handler handler;
+        private String[] paramNames;
+        private LatencyHistogram latency;
+        private Counter errors;
 
-        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
-        byte[] response = message.getBytes();
+        private Node literalChild(String literal) {
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i].equals(literal)) {
+                    return literalChildren[i];
+                }
+            }
+            literals = Arrays.copyOf(literals, literals.length + 1);
+            literalChildren = Arrays.copyOf(literalChildren, literalChildren.length + 1);
+            literals[literals.length - 1] = literal;
+            literalChildren[literalChildren.length - 1] = new Node();
+            return literalChildren[literalChildren.length - 1];
+        }
 
-        exchange.sendResponseHeaders(statusCode, response.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response);
+        private Node intChild() {
+            if (intChild == null) {
+                intChild = new Node();
+            }
+            return intChild;
         }
     }
-}
\ No newline at end of file
+}
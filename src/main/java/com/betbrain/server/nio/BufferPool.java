@@ -0,0 +1,67 @@
+package com.betbrain.server.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of equally sized direct buffers shared by all event loops and
+ * request threads. Direct buffers are passed to the socket without the
+ * temporary copy the JDK makes for heap buffers, but are expensive to
+ * allocate, so they are recycled instead of left to the garbage collector.
+ */
+final class BufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param bufferSize Capacity of every buffer
+     * @param maxPooled Idle buffers kept for reuse; more are released to the garbage collector
+     */
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @return Cleared buffer in write mode
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer; the caller must not use it afterwards
+     * @param buffer Buffer obtained from {@link #acquire()}
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return Idle buffers currently pooled
+     */
+    int idleCount() {
+        return pooled.get();
+    }
+}
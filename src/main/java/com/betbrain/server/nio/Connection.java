@@ -0,0 +1,389 @@
+package com.betbrain.server.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * One client connection of the {@link NioHttpServer}.
+ * <p>
+ * Bytes are read on the connection's event loop. Requests are handled one at
+ * a time in arrival order: while a request is in flight, pipelined requests
+ * stay buffered, and the next one is dispatched by the thread completing the
+ * current response. Responses are written straight from that thread; the event
+ * loop only takes over when the socket cannot accept the whole response.
+ * <p>
+ * All state is guarded by the connection's monitor. Handlers are always
+ * dispatched after the monitor is released.
+ */
+final class Connection {
+
+    private static final byte[] NO_BODY = new byte[0];
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final NioHttpServer server;
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private SelectionKey key;
+
+    /**
+     * Received bytes not yet parsed, in write mode; null while there are none
+     */
+    private ByteBuffer in;
+    private RequestHead pendingHead;
+    private byte[] pendingBody;
+    private int bodyFilled;
+
+    private boolean inFlight;
+    private boolean readPaused;
+    private boolean inputClosed;
+    private boolean closeWhenFlushed;
+    private boolean closed;
+
+    /**
+     * Response bytes waiting for the socket, each buffer in read mode
+     */
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private long outboundBytes;
+    private long lastActive = System.currentTimeMillis();
+
+    /**
+     * When the socket last accepted response bytes, or when bytes were queued on an empty queue
+     */
+    private long lastWriteProgress;
+
+    Connection(NioHttpServer server, EventLoop loop, SocketChannel channel) {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+    }
+
+    /**
+     * Called by the event loop once the channel is registered
+     */
+    synchronized void attach(SelectionKey key) {
+        this.key = key;
+    }
+
+    BufferPool pool() {
+        return server.pool();
+    }
+
+    boolean isAcceptingRequests() {
+        return !server.isStopping();
+    }
+
+    InetSocketAddress remoteAddress() {
+        try {
+            return (InetSocketAddress) channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    InetSocketAddress localAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Event loop: the channel has bytes to read
+     */
+    void onReadable() {
+        NioHttpExchange next = null;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (in == null) {
+                in = server.pool().acquire();
+            }
+            int read;
+            try {
+                read = channel.read(in);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            lastActive = System.currentTimeMillis();
+            if (read < 0) {
+                inputClosed = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            if (!inFlight) {
+                next = nextExchange();
+                if (next == null && inputClosed) {
+                    closeWhenFlushed = true;
+                    flush();
+                }
+            }
+            if (!closed && !inputClosed && in != null && !in.hasRemaining()) {
+                // Pipelined requests filled the buffer; resume once the current one completes
+                readPaused = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+        if (next != null) {
+            server.dispatch(next);
+        }
+    }
+
+    /**
+     * Event loop: the socket can take more of the pending response bytes
+     */
+    synchronized void onWritable() {
+        if (closed) {
+            return;
+        }
+        flush();
+        if (!closed && outbound.isEmpty()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Sends part of a response that is still being produced
+     * @param staging Response bytes; the buffers are taken over
+     * @throws IOException if the connection is closed or the client stopped reading
+     */
+    void send(OutboundBuffer staging) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                staging.discard();
+                throw new IOException("Connection closed");
+            }
+            if (outboundBytes + staging.size() > server.maxOutboundBytes()) {
+                staging.discard();
+                close();
+                throw new IOException("Client is not reading its responses");
+            }
+            enqueue(staging);
+            flush();
+        }
+    }
+
+    /**
+     * Sends the end of the in-flight response and dispatches the next pipelined request
+     * @param staging Remaining response bytes; the buffers are taken over
+     * @param close true to close the connection once the response is written
+     */
+    void complete(OutboundBuffer staging, boolean close) {
+        NioHttpExchange next = null;
+        synchronized (this) {
+            if (closed) {
+                staging.discard();
+                return;
+            }
+            enqueue(staging);
+            inFlight = false;
+            server.requestCompleted();
+            if (close) {
+                closeWhenFlushed = true;
+            } else {
+                next = nextExchange();
+                if (next == null && inputClosed) {
+                    closeWhenFlushed = true;
+                }
+            }
+            flush();
+            if (!closed && readPaused && (in == null || in.hasRemaining())) {
+                readPaused = false;
+                loop.execute(this::resumeReads);
+            }
+        }
+        if (next != null) {
+            server.dispatch(next);
+        }
+    }
+
+    /**
+     * @param cutoff Time in milliseconds
+     * @return true if no request is in flight and nothing was received since cutoff
+     */
+    synchronized boolean isIdleSince(long cutoff) {
+        return !inFlight && outbound.isEmpty() && lastActive < cutoff;
+    }
+
+    /**
+     * @param cutoff Time in milliseconds
+     * @return true if response bytes are waiting and the client has not read any since cutoff
+     */
+    synchronized boolean isWriteStalledSince(long cutoff) {
+        return !outbound.isEmpty() && lastWriteProgress < cutoff;
+    }
+
+    /**
+     * Closes the connection and returns its buffers to the pool. A request still
+     * in flight fails when its response is sent.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (inFlight) {
+            inFlight = false;
+            server.requestCompleted();
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+        if (in != null) {
+            server.pool().release(in);
+            in = null;
+        }
+        for (ByteBuffer buffer : outbound) {
+            server.pool().release(buffer);
+        }
+        outbound.clear();
+        outboundBytes = 0;
+        server.connectionClosed();
+    }
+
+    private synchronized void resumeReads() {
+        if (!closed && !readPaused && !inputClosed) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Parses the next buffered request. Caller holds the monitor and no request is in flight.
+     * @return Exchange to dispatch, or null if no complete request is buffered
+     */
+    private NioHttpExchange nextExchange() {
+        if (in == null || closeWhenFlushed) {
+            return null;
+        }
+        in.flip();
+        if (pendingHead == null) {
+            RequestHead head;
+            try {
+                head = RequestHead.parse(in, server.maxHeadBytes());
+            } catch (IllegalArgumentException e) {
+                reject(400);
+                return null;
+            }
+            if (head == null) {
+                compactInput();
+                return null;
+            }
+            if (head.chunked) {
+                reject(501);
+                return null;
+            }
+            if (head.contentLength > server.maxBodyBytes()) {
+                reject(413);
+                return null;
+            }
+            pendingHead = head;
+            pendingBody = head.contentLength == 0 ? NO_BODY : new byte[head.contentLength];
+            bodyFilled = 0;
+        }
+
+        int n = Math.min(in.remaining(), pendingBody.length - bodyFilled);
+        in.get(pendingBody, bodyFilled, n);
+        bodyFilled += n;
+        compactInput();
+        if (bodyFilled < pendingBody.length) {
+            if (pendingHead.expectContinue && bodyFilled == 0) {
+                OutboundBuffer interim = new OutboundBuffer(server.pool());
+                interim.put(CONTINUE);
+                enqueue(interim);
+                flush();
+            }
+            return null;
+        }
+
+        NioHttpExchange exchange = new NioHttpExchange(this, pendingHead, pendingBody);
+        pendingHead = null;
+        pendingBody = null;
+        inFlight = true;
+        server.requestStarted();
+        return exchange;
+    }
+
+    /**
+     * Switches the input buffer back to write mode, returning it to the pool when empty
+     */
+    private void compactInput() {
+        in.compact();
+        if (in.position() == 0) {
+            server.pool().release(in);
+            in = null;
+        }
+    }
+
+    /**
+     * Answers a request that cannot be parsed or served and closes the connection
+     */
+    private void reject(int status) {
+        in.clear();
+        OutboundBuffer response = new OutboundBuffer(server.pool());
+        response.putAscii("HTTP/1.1 " + status + " " + NioHttpExchange.reasonPhrase(status)
+                + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+        enqueue(response);
+        closeWhenFlushed = true;
+        flush();
+    }
+
+    private void enqueue(OutboundBuffer staging) {
+        if (outbound.isEmpty()) {
+            lastWriteProgress = System.currentTimeMillis();
+        }
+        outboundBytes += staging.size();
+        staging.drainTo(outbound);
+    }
+
+    /**
+     * Writes queued bytes until the socket is full. Caller holds the monitor.
+     */
+    private void flush() {
+        ByteBuffer buffer;
+        boolean progressed = false;
+        while ((buffer = outbound.peek()) != null) {
+            int written;
+            try {
+                written = channel.write(buffer);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            progressed |= written > 0;
+            if (buffer.hasRemaining()) {
+                if (progressed) {
+                    lastWriteProgress = System.currentTimeMillis();
+                }
+                if (loop.inLoop()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                } else {
+                    loop.execute(this::awaitWritable);
+                }
+                return;
+            }
+            outbound.poll();
+            outboundBytes -= buffer.limit();
+            server.pool().release(buffer);
+        }
+        if (closeWhenFlushed) {
+            close();
+        }
+    }
+
+    private synchronized void awaitWritable() {
+        if (!closed && !outbound.isEmpty()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+}
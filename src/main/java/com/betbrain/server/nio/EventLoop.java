@@ -0,0 +1,168 @@
+package com.betbrain.server.nio;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selector thread serving a share of the connections. Other threads hand it
+ * work through {@link #execute(Runnable)}, which wakes the selector.
+ */
+final class EventLoop implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(EventLoop.class.getName());
+    private static final long SWEEP_INTERVAL_MS = 1000;
+
+    private final NioHttpServer server;
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    EventLoop(NioHttpServer server, int index) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "nio-loop-" + index);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Runs a task on the loop thread
+     * @param task Task touching selection keys of this loop
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Makes this loop the acceptor of a listening channel. Must be called before {@link #start()}.
+     */
+    void listen(ServerSocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Hands an accepted connection to this loop
+     * @param channel Connected channel
+     */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(server, this, channel);
+                connection.attach(channel.register(selector, SelectionKey.OP_READ, connection));
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Cannot register connection", e);
+                server.connectionClosed();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops the loop and closes its connections
+     * @param timeoutMs Time to wait for the loop thread
+     */
+    void shutdown(long timeoutMs) {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL_MS;
+        while (running) {
+            try {
+                selector.select(SWEEP_INTERVAL_MS);
+                runTasks();
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        server.accept((ServerSocketChannel) key.channel());
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        connection.onReadable();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextSweep) {
+                    closeIdle(now - server.idleTimeoutMs(), now - server.writeTimeoutMs());
+                    nextSweep = now + SWEEP_INTERVAL_MS;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Event loop error", e);
+            }
+        }
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Cannot close selector", e);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Closes idle keep-alive connections and connections whose client stopped reading
+     */
+    private void closeIdle(long idleCutoff, long writeCutoff) {
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection) {
+                Connection connection = (Connection) attachment;
+                if (connection.isIdleSince(idleCutoff) || connection.isWriteStalledSince(writeCutoff)) {
+                    connection.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.betbrain.server.nio;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adapts one request received by the {@link NioHttpServer} to the
+ * {@link HttpExchange} API, so the existing handlers run unchanged.
+ * <p>
+ * The response, headers included, is staged in pooled direct buffers and
+ * handed to the connection when the body stream is closed, or earlier on
+ * {@link OutputStream#flush()} for chunked (streaming) responses.
+ */
+final class NioHttpExchange extends HttpExchange {
+
+    private static final Logger logger = Logger.getLogger(NioHttpExchange.class.getName());
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    /**
+     * "Date: ...\r\n" line for the current second, shared by all connections
+     */
+    private static volatile DateLine dateLine = new DateLine(0);
+
+    private final Connection connection;
+    private final RequestHead head;
+    private final byte[] body;
+    private final Headers responseHeaders = new Headers();
+    private final ResponseStream responseStream;
+
+    private URI uri;
+    private InputStream requestStream;
+    private OutputStream userResponseStream;
+    private Map<String, Object> attributes;
+    private int responseCode = -1;
+
+    NioHttpExchange(Connection connection, RequestHead head, byte[] body) {
+        this.connection = connection;
+        this.head = head;
+        this.body = body;
+        this.responseStream = new ResponseStream(new OutboundBuffer(connection.pool()));
+    }
+
+    /**
+     * Runs a handler and makes sure the client receives a response
+     * @param handler Handler of the request
+     */
+    void handle(HttpHandler handler) {
+        try {
+            handler.handle(this);
+        } catch (Exception | Error e) {
+            logger.log(Level.WARNING, "Unhandled error processing " + head.method + " " + head.uri, e);
+            if (responseCode == -1) {
+                sendEmpty(500);
+            } else if (!responseStream.closed) {
+                abort();
+            }
+            return;
+        }
+        if (responseCode == -1) {
+            logger.warning(() -> "No response sent for " + head.method + " " + head.uri);
+            sendEmpty(500);
+        }
+    }
+
+    /**
+     * Answers without a body, e.g. when the executor rejects the request
+     * @param status HTTP status code
+     */
+    void sendEmpty(int status) {
+        try {
+            sendResponseHeaders(status, -1);
+        } catch (IOException e) {
+            abort();
+        }
+    }
+
+    private void abort() {
+        responseStream.closed = true;
+        responseStream.staging.discard();
+        connection.close();
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return head.headers;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        if (uri == null) {
+            uri = URI.create(head.uri);
+        }
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return head.method;
+    }
+
+    /**
+     * Requests are dispatched to a single handler, there are no contexts
+     * @return null
+     */
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            getResponseBody().close();
+        } catch (IOException e) {
+            abort();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        if (requestStream == null) {
+            requestStream = new ByteArrayInputStream(body);
+        }
+        return requestStream;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return userResponseStream != null ? userResponseStream : responseStream;
+    }
+
+    /**
+     * Writes the status line and headers
+     * @param rCode HTTP status code
+     * @param responseLength Body length; 0 for a chunked body of any length, -1 for no body
+     * @throws IOException if headers were already sent or the connection is closed
+     */
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode != -1) {
+            throw new IOException("Response headers already sent");
+        }
+        responseCode = rCode;
+        boolean keepAlive = head.keepAlive && connection.isAcceptingRequests();
+        OutboundBuffer out = responseStream.staging;
+
+        out.putAscii(head.protocol.equals("HTTP/1.0") ? "HTTP/1.0 " : "HTTP/1.1 ");
+        out.putNumber(rCode, 10);
+        out.put((byte) ' ');
+        out.putAscii(reasonPhrase(rCode));
+        out.put(CRLF);
+        out.put(currentDateLine());
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                out.putAscii(header.getKey());
+                out.put((byte) ':');
+                out.put((byte) ' ');
+                out.putAscii(value);
+                out.put(CRLF);
+            }
+        }
+        if (responseLength > 0) {
+            out.putAscii("Content-Length: ");
+            out.putNumber(responseLength, 10);
+            out.put(CRLF);
+        } else if (responseLength == 0) {
+            out.putAscii("Transfer-Encoding: chunked\r\n");
+        } else {
+            out.putAscii("Content-Length: 0\r\n");
+        }
+        if (!keepAlive) {
+            out.putAscii("Connection: close\r\n");
+        } else if (head.protocol.equals("HTTP/1.0")) {
+            out.putAscii("Connection: keep-alive\r\n");
+        }
+        out.put(CRLF);
+
+        responseStream.start(responseLength, keepAlive);
+        if (responseLength < 0) {
+            responseStream.close();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return head.protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestStream = i;
+        }
+        if (o != null) {
+            userResponseStream = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    private static byte[] currentDateLine() {
+        long second = System.currentTimeMillis() / 1000;
+        DateLine line = dateLine;
+        if (line.second != second) {
+            line = new DateLine(second);
+            dateLine = line;
+        }
+        return line.bytes;
+    }
+
+    static String reasonPhrase(int status) {
+        switch (status) {
+            case 100: return "Continue";
+            case 200: return "OK";
+            case 204: return "No Content";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 411: return "Length Required";
+            case 413: return "Payload Too Large";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            default: return "Status";
+        }
+    }
+
+    /**
+     * Formatted Date header of one second
+     */
+    private static final class DateLine {
+        private final long second;
+        private final byte[] bytes;
+
+        private DateLine(long second) {
+            this.second = second;
+            String date = DateTimeFormatter.RFC_1123_DATE_TIME
+                    .format(ZonedDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneOffset.UTC));
+            this.bytes = ("Date: " + date + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Body stream framing the bytes as the headers announced
+     */
+    private final class ResponseStream extends OutputStream {
+        private final OutboundBuffer staging;
+        private long remaining;
+        private boolean chunked;
+        private boolean keepAlive;
+        private boolean started;
+        private boolean closed;
+
+        private ResponseStream(OutboundBuffer staging) {
+            this.staging = staging;
+        }
+
+        private void start(long length, boolean keepAlive) {
+            this.started = true;
+            this.chunked = length == 0;
+            this.remaining = Math.max(0, length);
+            this.keepAlive = keepAlive;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!started) {
+                throw new IOException("Response headers not sent");
+            }
+            if (closed) {
+                throw new IOException("Response stream closed");
+            }
+            if (len == 0) {
+                return;
+            }
+            if (chunked) {
+                staging.putNumber(len, 16);
+                staging.put(CRLF);
+                staging.put(b, off, len);
+                staging.put(CRLF);
+            } else {
+                if (len > remaining) {
+                    throw new IOException("Response body exceeds the announced Content-Length");
+                }
+                staging.put(b, off, len);
+                remaining -= len;
+            }
+        }
+
+        /**
+         * Sends the bytes written so far without ending the response
+         */
+        @Override
+        public void flush() throws IOException {
+            if (started && !closed && staging.size() > 0) {
+                connection.send(staging);
+            }
+        }
+
+        /**
+         * Ends the response; the connection then continues with the next pipelined request
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (!started) {
+                // Closing before sending headers: nothing to answer with, drop the connection
+                closed = true;
+                connection.close();
+                return;
+            }
+            closed = true;
+            if (chunked) {
+                staging.put(LAST_CHUNK);
+            }
+            // A short fixed-length body leaves the client waiting for bytes, so the connection must end
+            connection.complete(staging, !keepAlive || remaining > 0);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.betbrain.server.nio;
+
+import com.betbrain.util.ConfigUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * HTTP/1.1 server on non-blocking NIO, an alternative to {@code com.sun.net.httpserver}.
+ * <p>
+ * A fixed set of event loops, one per core by default, each owns a selector
+ * and a share of the connections; the first loop also accepts. Connections
+ * are kept alive and may pipeline requests, which are answered in order.
+ * Socket reads and responses go through pooled direct buffers.
+ * <p>
+ * Parsed requests are wrapped in an {@link com.sun.net.httpserver.HttpExchange}
+ * adapter and run on the given executor, exactly as the JDK server runs them,
+ * so the admission stage, router and handlers are shared by both transports.
+ * <p>
+ * Configuration (system properties):
+ * <ul>
+ *     <li>{@code betting.nio.loops} - event loops (default: cores)</li>
+ *     <li>{@code betting.nio.bufferBytes} - size of pooled buffers (default 16384)</li>
+ *     <li>{@code betting.nio.maxPooledBuffers} - idle buffers kept for reuse (default 4096)</li>
+ *     <li>{@code betting.nio.maxHeadBytes} - largest request line plus headers (default 8192)</li>
+ *     <li>{@code betting.nio.maxBodyBytes} - largest request body (default 2097152)</li>
+ *     <li>{@code betting.nio.idleTimeoutSec} - idle keep-alive connections are closed after (default 60)</li>
+ *     <li>{@code betting.nio.writeTimeoutSec} - connections whose client reads none of the pending
+ *     response bytes for this long are closed (default 30)</li>
+ * </ul>
+ */
+public class NioHttpServer {
+
+    private static final Logger logger = Logger.getLogger(NioHttpServer.class.getName());
+
+    /**
+     * Unsent response bytes per connection before a streaming client is considered stalled
+     */
+    private static final long MAX_OUTBOUND_BYTES = 8L * 1024 * 1024;
+
+    private final InetSocketAddress address;
+    private final HttpHandler handler;
+    private final Executor executor;
+    private final BufferPool pool;
+    private final EventLoop[] loops;
+    private final int maxHeadBytes;
+    private final int maxBodyBytes;
+    private final long idleTimeoutMs;
+    private final long writeTimeoutMs;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private ServerSocketChannel serverChannel;
+    private int nextLoop;
+    private volatile boolean stopping;
+
+    /**
+     * Creates a server with settings read from configuration
+     * @param address Address to listen on
+     * @param handler Handler of every request
+     * @param executor Runs the handler for each request
+     * @throws IOException if a selector cannot be opened
+     */
+    public NioHttpServer(InetSocketAddress address, HttpHandler handler, Executor executor) throws IOException {
+        this(address, handler, executor,
+                ConfigUtil.getInt("betting.nio.loops", Runtime.getRuntime().availableProcessors()),
+                ConfigUtil.getInt("betting.nio.bufferBytes", 16384),
+                ConfigUtil.getInt("betting.nio.maxPooledBuffers", 4096),
+                ConfigUtil.getInt("betting.nio.maxHeadBytes", 8192),
+                ConfigUtil.getInt("betting.nio.maxBodyBytes", 2 * 1024 * 1024),
+                ConfigUtil.getLong("betting.nio.idleTimeoutSec", 60),
+                ConfigUtil.getLong("betting.nio.writeTimeoutSec", 30));
+    }
+
+    NioHttpServer(InetSocketAddress address, HttpHandler handler, Executor executor, int loopCount,
+                  int bufferBytes, int maxPooledBuffers, int maxHeadBytes, int maxBodyBytes,
+                  long idleTimeoutSec, long writeTimeoutSec) throws IOException {
+        this.address = address;
+        this.handler = handler;
+        this.executor = executor;
+        int bufferSize = Math.max(1024, bufferBytes);
+        this.pool = new BufferPool(bufferSize, Math.max(0, maxPooledBuffers));
+        // A request head must fit into one input buffer
+        this.maxHeadBytes = Math.max(256, Math.min(maxHeadBytes, bufferSize));
+        this.maxBodyBytes = Math.max(0, maxBodyBytes);
+        this.idleTimeoutMs = TimeUnit.SECONDS.toMillis(Math.max(1, idleTimeoutSec));
+        this.writeTimeoutMs = TimeUnit.SECONDS.toMillis(Math.max(1, writeTimeoutSec));
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(this, i);
+        }
+    }
+
+    /**
+     * Tells whether an exchange is served by this transport, whose response
+     * writes never block the calling thread
+     * @param exchange Exchange passed to a handler
+     * @return true for exchanges of a {@link NioHttpServer}
+     */
+    public static boolean isNioExchange(HttpExchange exchange) {
+        return exchange instanceof NioHttpExchange;
+    }
+
+    /**
+     * Binds the listening socket and starts the event loops
+     * @throws IOException if the address cannot be bound
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 1024);
+        loops[0].listen(serverChannel);
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+        logger.log(Level.INFO, "NIO transport listening on {0} with {1} event loops",
+                new Object[]{getAddress(), loops.length});
+    }
+
+    /**
+     * Stops accepting connections, waits for in-flight requests, then closes all connections
+     * @param delaySeconds Maximum time to wait for in-flight requests
+     */
+    public void stop(int delaySeconds) {
+        stopping = true;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Cannot close listening socket", e);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, delaySeconds));
+        while (inFlightRequests.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (EventLoop loop : loops) {
+            loop.shutdown(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * @return Bound address, useful when listening on port 0
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return serverChannel == null ? address : (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            return address;
+        }
+    }
+
+    /**
+     * @return Connections currently open
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * @return Direct buffers idle in the pool
+     */
+    public int getPooledBuffers() {
+        return pool.idleCount();
+    }
+
+    /**
+     * Acceptor loop: takes all pending connections and spreads them over the loops
+     */
+    void accept(ServerSocketChannel channel) throws IOException {
+        SocketChannel client;
+        while ((client = channel.accept()) != null) {
+            if (stopping) {
+                client.close();
+                continue;
+            }
+            openConnections.incrementAndGet();
+            loops[nextLoop].register(client);
+            nextLoop = (nextLoop + 1) % loops.length;
+        }
+    }
+
+    /**
+     * Runs a parsed request on the executor
+     */
+    void dispatch(NioHttpExchange exchange) {
+        try {
+            executor.execute(() -> exchange.handle(handler));
+        } catch (RejectedExecutionException e) {
+            exchange.sendEmpty(503);
+        }
+    }
+
+    void requestStarted() {
+        inFlightRequests.incrementAndGet();
+    }
+
+    void requestCompleted() {
+        inFlightRequests.decrementAndGet();
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    BufferPool pool() {
+        return pool;
+    }
+
+    int maxHeadBytes() {
+        return maxHeadBytes;
+    }
+
+    int maxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    long maxOutboundBytes() {
+        return MAX_OUTBOUND_BYTES;
+    }
+
+    long idleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    long writeTimeoutMs() {
+        return writeTimeoutMs;
+    }
+
+    boolean isStopping() {
+        return stopping;
+    }
+}
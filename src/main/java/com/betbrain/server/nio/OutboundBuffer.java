@@ -0,0 +1,99 @@
+package com.betbrain.server.nio;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Response bytes staged in a chain of pooled direct buffers. Not thread-safe;
+ * owned by the thread producing the response until handed to the connection.
+ */
+final class OutboundBuffer {
+
+    private final BufferPool pool;
+    private final List<ByteBuffer> buffers = new ArrayList<>(2);
+    private ByteBuffer current;
+    private int size;
+
+    OutboundBuffer(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    void put(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer buffer = writable();
+            int n = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, n);
+            offset += n;
+            length -= n;
+            size += n;
+        }
+    }
+
+    void put(byte[] bytes) {
+        put(bytes, 0, bytes.length);
+    }
+
+    void put(byte b) {
+        writable().put(b);
+        size++;
+    }
+
+    /**
+     * Appends an ASCII string, e.g. a header line
+     */
+    void putAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            put((byte) s.charAt(i));
+        }
+    }
+
+    /**
+     * Appends a non-negative number in decimal or hexadecimal
+     */
+    void putNumber(long value, int radix) {
+        putAscii(Long.toString(value, radix));
+    }
+
+    /**
+     * @return Bytes staged since the last {@link #drainTo(Collection)}
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Moves the staged buffers, flipped for reading, to a write queue
+     * @param queue Receives the buffers
+     */
+    void drainTo(Collection<ByteBuffer> queue) {
+        for (ByteBuffer buffer : buffers) {
+            buffer.flip();
+            queue.add(buffer);
+        }
+        buffers.clear();
+        current = null;
+        size = 0;
+    }
+
+    /**
+     * Returns staged buffers to the pool without sending them
+     */
+    void discard() {
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+        buffers.clear();
+        current = null;
+        size = 0;
+    }
+
+    private ByteBuffer writable() {
+        if (current == null || !current.hasRemaining()) {
+            current = pool.acquire();
+            buffers.add(current);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,155 @@
+package com.betbrain.server.nio;
+
+import com.sun.net.httpserver.Headers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request line and headers of one HTTP/1.x request
+ */
+final class RequestHead {
+
+    /**
+     * Scratch copy of the head being parsed, reused by each thread
+     */
+    private static final ThreadLocal<byte[]> scratch = new ThreadLocal<>();
+
+    final String method;
+    final String uri;
+    final String protocol;
+    final Headers headers;
+    final int contentLength;
+    final boolean chunked;
+    final boolean keepAlive;
+    final boolean expectContinue;
+
+    private RequestHead(String method, String uri, String protocol, Headers headers) {
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.headers = headers;
+
+        String length = headers.getFirst("Content-length");
+        try {
+            this.contentLength = length == null ? 0 : Integer.parseInt(length.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid Content-Length: " + length);
+        }
+        if (contentLength < 0) {
+            throw new IllegalArgumentException("Invalid Content-Length: " + length);
+        }
+        String transferEncoding = headers.getFirst("Transfer-encoding");
+        this.chunked = transferEncoding != null && !"identity".equalsIgnoreCase(transferEncoding.trim());
+
+        String connection = headers.getFirst("Connection");
+        if ("HTTP/1.0".equals(protocol)) {
+            this.keepAlive = connection != null && "keep-alive".equalsIgnoreCase(connection.trim());
+        } else {
+            this.keepAlive = connection == null || !"close".equalsIgnoreCase(connection.trim());
+        }
+        String expect = headers.getFirst("Expect");
+        this.expectContinue = expect != null && "100-continue".equalsIgnoreCase(expect.trim());
+    }
+
+    /**
+     * Parses a request head from a buffer in read mode. On success the buffer
+     * is positioned at the first body byte; otherwise its position is unchanged
+     * except for skipped blank lines preceding the request line.
+     * @param in Received bytes
+     * @param maxHeadBytes Largest accepted request head
+     * @return Parsed head, or null if the head is not complete yet
+     * @throws IllegalArgumentException if the head is malformed or too large
+     */
+    static RequestHead parse(ByteBuffer in, int maxHeadBytes) {
+        // Blank lines before the request line are ignored (RFC 7230, 3.5)
+        while (in.hasRemaining() && (in.get(in.position()) == '\r' || in.get(in.position()) == '\n')) {
+            in.position(in.position() + 1);
+        }
+        int start = in.position();
+        int limit = Math.min(in.limit(), start + maxHeadBytes);
+        int end = -1;
+        int lineStart = start;
+        for (int i = start; i < limit; i++) {
+            if (in.get(i) == '\n') {
+                int lineEnd = i > lineStart && in.get(i - 1) == '\r' ? i - 1 : i;
+                if (lineEnd == lineStart) {
+                    end = i + 1;
+                    break;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (end < 0) {
+            if (in.limit() - start >= maxHeadBytes) {
+                throw new IllegalArgumentException("Request head exceeds " + maxHeadBytes + " bytes");
+            }
+            return null;
+        }
+
+        int length = end - start;
+        byte[] bytes = scratch.get();
+        if (bytes == null || bytes.length < length) {
+            bytes = new byte[Math.max(length, 1024)];
+            scratch.set(bytes);
+        }
+        for (int i = 0; i < length; i++) {
+            bytes[i] = in.get(start + i);
+        }
+        in.position(end);
+        return parseHead(bytes, length);
+    }
+
+    private static RequestHead parseHead(byte[] bytes, int length) {
+        int lineEnd = lineEnd(bytes, 0, length);
+        String requestLine = new String(bytes, 0, lineEnd, StandardCharsets.ISO_8859_1);
+        int firstSpace = requestLine.indexOf(' ');
+        int lastSpace = requestLine.lastIndexOf(' ');
+        if (firstSpace <= 0 || lastSpace <= firstSpace + 1) {
+            throw new IllegalArgumentException("Malformed request line: " + requestLine);
+        }
+        String protocol = requestLine.substring(lastSpace + 1);
+        if (!protocol.startsWith("HTTP/1.")) {
+            throw new IllegalArgumentException("Unsupported protocol: " + protocol);
+        }
+
+        Headers headers = new Headers();
+        int pos = next(bytes, lineEnd);
+        while (pos < length) {
+            int end = lineEnd(bytes, pos, length);
+            if (end == pos) {
+                break;
+            }
+            int colon = pos;
+            while (colon < end && bytes[colon] != ':') {
+                colon++;
+            }
+            if (colon == pos || colon == end) {
+                throw new IllegalArgumentException("Malformed header line");
+            }
+            String name = new String(bytes, pos, colon - pos, StandardCharsets.ISO_8859_1);
+            String value = new String(bytes, colon + 1, end - colon - 1, StandardCharsets.ISO_8859_1).trim();
+            headers.add(name, value);
+            pos = next(bytes, end);
+        }
+        return new RequestHead(requestLine.substring(0, firstSpace),
+                requestLine.substring(firstSpace + 1, lastSpace), protocol, headers);
+    }
+
+    /**
+     * @return Index of the CR or LF ending the line starting at pos
+     */
+    private static int lineEnd(byte[] bytes, int pos, int length) {
+        while (pos < length && bytes[pos] != '\r' && bytes[pos] != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return Index of the line following the line end at pos
+     */
+    private static int next(byte[] bytes, int pos) {
+        return bytes[pos] == '\r' ? pos + 2 : pos + 1;
+    }
+}
@@ -0,0 +1,43 @@
+package com.betbrain.service;
+
+/**
+ * Applies every stake synchronously on the submitting request thread
+ */
+public class DirectStakeIngestor implements StakeIngestor {
+
+    private final StakeApplier applier;
+
+    public DirectStakeIngestor(StakeApplier applier) {
+        this.applier = applier;
+    }
+
+    @Override
+    public void submit(int betId, int customerId, int amount) {
+        applier.apply(betId, customerId, amount);
+    }
+
+    @Override
+    public void reserve(int betId) {
+        // Stakes are applied on the caller, there is no queue to fill
+    }
+
+    @Override
+    public void cancelReservation(int betId) {
+        // Nothing was reserved
+    }
+
+    @Override
+    public void submitReserved(int betId, int customerId, int amount) {
+        applier.apply(betId, customerId, amount);
+    }
+
+    @Override
+    public void flush() {
+        // Stakes are applied before submit returns
+    }
+
+    @Override
+    public void shutdown() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,381 @@
+package com.betbrain.service;
+
+import com.betbrain.metrics.Counter;
+import com.betbrain.metrics.MetricsRegistry;
+import com.betbrain.model.LeaderboardListener;
+import com.betbrain.model.LeaderboardSnapshot;
+import com.betbrain.util.AsciiBuffer;
+import com.betbrain.util.ConfigUtil;
+import com.betbrain.util.HttpUtil;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes leaderboard changes to subscribers as server-sent events.
+ * <p>
+ * Each subscribed bet ID has a topic that listens to its {@code BetEvent}.
+ * A change only schedules a send, at most once per interval per event, so a
+ * burst of stakes produces one frame with the latest ranking. The frame is
+ * encoded once and the same bytes go to every subscriber.
+ * <p>
+ * Frames are written by a small pool. A subscriber keeps at most one unsent
+ * frame and newer frames replace it, so a slow client skips intermediate
+ * rankings instead of queueing them. Streams are only served by the NIO
+ * transport, whose writes never block: a client that stops reading has its
+ * connection closed by the transport's write timeout, and the next frame or
+ * heartbeat then drops the subscriber.
+ * <p>
+ * The initial frame and every change are delivered on the timer thread, so a
+ * subscriber never receives an older ranking after a newer one.
+ * <p>
+ * Configuration (system properties):
+ * <ul>
+ *     <li>{@code betting.push.maxRatePerSec} - frames per second per event (default 10)</li>
+ *     <li>{@code betting.push.threads} - threads writing frames (default 2 x cores)</li>
+ *     <li>{@code betting.push.maxSubscribers} - open streams per node (default 10000)</li>
+ *     <li>{@code betting.push.heartbeatSec} - interval of keep-alive comments (default 15)</li>
+ * </ul>
+ */
+public class LeaderboardPushService {
+
+    private static final Logger logger = Logger.getLogger(LeaderboardPushService.class.getName());
+    private static final String CONTENT_TYPE = "text/event-stream; charset=utf-8";
+    private static final byte[] HEARTBEAT = HttpUtil.encode(": keep-alive\n\n");
+    private static final byte[] FRAME_ID = HttpUtil.encode("id: ");
+    private static final byte[] FRAME_DATA = HttpUtil.encode("\nevent: leaderboard\ndata: ");
+
+    private static final class Holder {
+        private static final LeaderboardPushService INSTANCE = new LeaderboardPushService();
+    }
+
+    private final StakeService stakeService = StakeService.getInstance();
+    private final ConcurrentHashMap<Integer, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final long minIntervalNanos;
+    private final int maxSubscribers;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService writers;
+    private final Counter framesEncoded;
+    private final Counter droppedSubscribers;
+
+    private LeaderboardPushService() {
+        minIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, ConfigUtil.getInt("betting.push.maxRatePerSec", 10));
+        maxSubscribers = ConfigUtil.getInt("betting.push.maxSubscribers", 10000);
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "leaderboard-push-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger writerIndex = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(
+                ConfigUtil.getInt("betting.push.threads", 2 * Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread thread = new Thread(r, "leaderboard-push-" + writerIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        long heartbeat = Math.max(1, ConfigUtil.getLong("betting.push.heartbeatSec", 15));
+        timer.scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.SECONDS);
+        stakeService.setLeaderboardListeners(topics::get);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("betting_push_subscribers", "Open leaderboard streams", subscriberCount::get);
+        metrics.gauge("betting_push_topics", "Bet events with at least one stream", topics::size);
+        framesEncoded = metrics.counter("betting_push_frames_total", "Leaderboard frames encoded for fan-out");
+        droppedSubscribers = metrics.counter("betting_push_dropped_total",
+                "Streams closed because the client failed or stopped reading");
+    }
+
+    public static LeaderboardPushService getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Starts a 200 event-stream response and streams an event's leaderboard
+     * on it, beginning with the current one. The exchange must belong to the
+     * NIO transport; it stays open after the handler returns and is closed
+     * when the stream ends.
+     * @param betId Target event ID
+     * @param exchange Exchange whose response headers are not sent yet
+     * @throws IllegalStateException if the subscriber limit is reached
+     */
+    public void subscribe(int betId, HttpExchange exchange) throws IOException {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many leaderboard subscribers");
+        }
+        OutputStream out;
+        try {
+            out = HttpUtil.startStreamingResponse(exchange, HttpUtil.HTTP_OK, CONTENT_TYPE);
+        } catch (IOException | RuntimeException e) {
+            subscriberCount.decrementAndGet();
+            throw e;
+        }
+        Subscriber subscriber = new Subscriber(exchange, out);
+        Topic topic = topics.compute(betId, (id, existing) -> {
+            Topic joined = existing != null ? existing : new Topic(id);
+            subscriber.topic = joined;
+            joined.subscribers.add(subscriber);
+            return joined;
+        });
+        // The event may already exist; events created later get the listener from the factory
+        stakeService.setLeaderboardListener(betId, topic);
+        try {
+            timer.execute(() -> topic.join(subscriber));
+        } catch (RuntimeException e) {
+            // Shutting down
+            subscriber.close();
+        }
+    }
+
+    /**
+     * @return Number of open streams
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Ends every stream, e.g. before the server stops
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        for (Topic topic : topics.values()) {
+            for (Subscriber subscriber : topic.subscribers) {
+                subscriber.close();
+            }
+        }
+        writers.shutdown();
+    }
+
+    private byte[] encode(LeaderboardSnapshot snapshot) {
+        framesEncoded.increment();
+        return new AsciiBuffer(64 + snapshot.getEncoded().length)
+                .append(FRAME_ID).append(HttpUtil.encode(Long.toString(snapshot.getVersion())))
+                .append(FRAME_DATA).append(snapshot.getEncoded())
+                .append('\n').append('\n')
+                .toByteArray();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Topic topic = subscriber.topic;
+        topics.computeIfPresent(topic.betId, (id, current) -> {
+            if (current.subscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            if (!current.subscribers.isEmpty()) {
+                return current;
+            }
+            stakeService.setLeaderboardListener(id, null);
+            return null;
+        });
+    }
+
+    /**
+     * Timer thread: keeps idle streams alive, which also detects closed
+     * connections, closes streams of events that moved to another node and
+     * catches changes whose notification was missed while the listener was
+     * being attached
+     */
+    private void heartbeat() {
+        for (Topic topic : topics.values()) {
+            if (stakeService.getOwnerUrl(topic.betId) != null) {
+                // Clients reconnect and are redirected to the new owner
+                for (Subscriber subscriber : topic.subscribers) {
+                    subscriber.close();
+                }
+                continue;
+            }
+            stakeService.setLeaderboardListener(topic.betId, topic);
+            topic.schedule();
+            for (Subscriber subscriber : topic.subscribers) {
+                if (subscriber.joined) {
+                    subscriber.deliverIfIdle(HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    /**
+     * Subscribers of one event and the coalescing state of its sends
+     */
+    private final class Topic implements LeaderboardListener {
+        private final int betId;
+        private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long lastSentNanos = System.nanoTime() - minIntervalNanos;
+
+        /**
+         * Last snapshot sent; compared by identity since versions restart when an event is recreated
+         */
+        private LeaderboardSnapshot lastSent;
+
+        private Topic(int betId) {
+            this.betId = betId;
+        }
+
+        @Override
+        public void leaderboardChanged(LeaderboardSnapshot snapshot) {
+            schedule();
+        }
+
+        /**
+         * Timer thread: sends the current leaderboard to a new subscriber,
+         * which receives every later send from then on
+         */
+        private void join(Subscriber subscriber) {
+            LeaderboardSnapshot snapshot = stakeService.getLocalTop20Snapshot(betId);
+            subscriber.joined = true;
+            subscriber.deliver(encode(snapshot == null ? LeaderboardSnapshot.EMPTY : snapshot));
+        }
+
+        /**
+         * Schedules one send for all changes until it runs
+         */
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            long delay = Math.max(0, lastSentNanos + minIntervalNanos - System.nanoTime());
+            try {
+                timer.schedule(this::send, delay, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                // Shutting down
+                scheduled.set(false);
+            }
+        }
+
+        /**
+         * Timer thread: encodes the latest leaderboard once and hands it to every subscriber
+         */
+        private void send() {
+            scheduled.set(false);
+            LeaderboardSnapshot snapshot = stakeService.getLocalTop20Snapshot(betId);
+            if (snapshot == null || snapshot == lastSent || subscribers.isEmpty()) {
+                return;
+            }
+            lastSent = snapshot;
+            lastSentNanos = System.nanoTime();
+            byte[] frame = encode(snapshot);
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.joined) {
+                    subscriber.deliver(frame);
+                }
+            }
+        }
+    }
+
+    /**
+     * One open stream. Frames are written by one writer thread at a time;
+     * only the newest unsent frame is kept.
+     */
+    private final class Subscriber {
+        private final HttpExchange exchange;
+        private final OutputStream out;
+        private final AtomicReference<byte[]> pending = new AtomicReference<>();
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Topic topic;
+
+        /**
+         * Set once the initial frame is delivered; timer thread only
+         */
+        private boolean joined;
+
+        private Subscriber(HttpExchange exchange, OutputStream out) {
+            this.exchange = exchange;
+            this.out = out;
+        }
+
+        private void deliver(byte[] frame) {
+            pending.set(frame);
+            startWriting();
+        }
+
+        private void deliverIfIdle(byte[] frame) {
+            if (pending.compareAndSet(null, frame)) {
+                startWriting();
+            }
+        }
+
+        private void startWriting() {
+            if (closed.get() || !writing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                writers.execute(this::writePending);
+            } catch (RuntimeException e) {
+                writing.set(false);
+                close();
+            }
+        }
+
+        /**
+         * Writer thread: writes frames until none is pending. Whoever holds the
+         * writing flag owns the stream, including closing it.
+         */
+        private void writePending() {
+            while (true) {
+                if (closed.get()) {
+                    closeExchange();
+                    return;
+                }
+                byte[] frame = pending.getAndSet(null);
+                if (frame == null) {
+                    writing.set(false);
+                    // A frame or close arriving after the check above would otherwise go unhandled
+                    if ((pending.get() == null && !closed.get()) || !writing.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    out.write(frame);
+                    out.flush();
+                } catch (IOException e) {
+                    if (closed.compareAndSet(false, true)) {
+                        droppedSubscribers.increment();
+                        unsubscribe(this);
+                    }
+                    closeExchange();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Unsubscribes and ends the stream; while a frame is being written
+         * the writer closes it afterwards, which never takes long since
+         * writes do not block
+         */
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            unsubscribe(this);
+            if (writing.compareAndSet(false, true)) {
+                closeExchange();
+            }
+        }
+
+        private void closeExchange() {
+            try {
+                exchange.close();
+            } catch (RuntimeException e) {
+                logger.log(Level.FINE, "Cannot close leaderboard stream", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.betbrain.service;
+
+import com.betbrain.model.BetEvent;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process partition of the betting events, placed on the local hash ring by its name
+ */
+final class LocalStakeShard {
+
+    private final String name;
+
+    /**
+     * Events owned by this shard, keyed by bet ID
+     */
+    final ConcurrentHashMap<Integer, BetEvent> events = new ConcurrentHashMap<>();
+
+    LocalStakeShard(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,239 @@
+package com.betbrain.service;
+
+import com.betbrain.model.LeaderboardSnapshot;
+import com.betbrain.model.RankedStake;
+import com.betbrain.model.RankingPolicy;
+import com.betbrain.model.StakeColumns;
+import com.betbrain.util.AsciiBuffer;
+import com.betbrain.util.ConfigUtil;
+import com.betbrain.util.HttpUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Client of the internal shard API of another BettingServer node.
+ * <p>
+ * Stakes travel as "customerId,amount" lines and rankings come back as the
+ * usual "customerId=amount,..." body. Requests use keep-alive connections
+ * pooled by {@link HttpURLConnection}; the server sizes that pool
+ * ({@code http.maxConnections}) to its request threads at startup.
+ * <p>
+ * Configuration (system properties):
+ * <ul>
+ *     <li>{@code betting.shards.timeoutMs} - connect and read timeout (default 2000)</li>
+ * </ul>
+ */
+final class RemoteStakeShard {
+
+    private static final int TIMEOUT_MS = ConfigUtil.getInt("betting.shards.timeoutMs", 2000);
+
+    private final String baseUrl;
+    private final String secret;
+
+    /**
+     * @param baseUrl Base URL of the node, e.g. http://localhost:8081
+     * @param secret Shared secret expected by the node
+     */
+    RemoteStakeShard(String baseUrl, String secret) {
+        this.baseUrl = baseUrl;
+        this.secret = secret;
+    }
+
+    /**
+     * @return Base URL of the node
+     */
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Records one stake on the owning node
+     * @throws IllegalArgumentException if the node rejects the stake
+     * @throws IllegalStateException if the node cannot be reached
+     */
+    void recordStake(int betId, int customerId, int amount) {
+        importStakes(betId, new StakeColumns(new int[]{customerId}, new int[]{amount}, 1));
+    }
+
+    /**
+     * Sends stakes of one event to the owning node, split into requests of
+     * at most {@link StakeService#MAX_IMPORT_ITEMS} lines
+     * @throws IllegalArgumentException if the node rejects the stakes
+     * @throws IllegalStateException if the node cannot be reached
+     */
+    void importStakes(int betId, StakeColumns stakes) {
+        for (int start = 0; start < stakes.size(); start += StakeService.MAX_IMPORT_ITEMS) {
+            int end = Math.min(stakes.size(), start + StakeService.MAX_IMPORT_ITEMS);
+            AsciiBuffer body = new AsciiBuffer((end - start) * 16);
+            for (int i = start; i < end; i++) {
+                body.appendInt(stakes.getCustomerId(i)).append(',').appendInt(stakes.getAmount(i)).append('\n');
+            }
+            HttpURLConnection connection = open("/shard/" + betId + "/stakes");
+            try {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length());
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.array(), 0, body.length());
+                }
+                int status = connection.getResponseCode();
+                drain(connection, status);
+                if (status == HttpUtil.BAD_REQUEST) {
+                    throw new IllegalArgumentException("Shard " + baseUrl + " rejected stakes for bet " + betId);
+                }
+                if (status != HttpUtil.HTTP_OK) {
+                    throw new IllegalStateException("Shard " + baseUrl + " answered " + status);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Shard " + baseUrl + " is unreachable", e);
+            }
+        }
+    }
+
+    /**
+     * Fetches the top 20 ranking of an event from the owning node
+     * @return Snapshot, or null if the event has no stakes
+     * @throws IllegalStateException if the node cannot be reached
+     */
+    LeaderboardSnapshot getTop20Snapshot(int betId) {
+        HttpURLConnection connection = open("/shard/" + betId + "/highstakes");
+        try {
+            int status = connection.getResponseCode();
+            byte[] body = drain(connection, status);
+            if (status == 204) {
+                return null;
+            }
+            if (status != HttpUtil.HTTP_OK) {
+                throw new IllegalStateException("Shard " + baseUrl + " answered " + status);
+            }
+            String version = connection.getHeaderField(HttpUtil.HEADER_LEADERBOARD_VERSION);
+            return parseRanking(version == null ? 0 : Long.parseLong(version), body);
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Shard " + baseUrl + " is unreachable", e);
+        }
+    }
+
+    /**
+     * Fetches the highest stakes across the events of the node
+     * @throws IllegalStateException if the node cannot be reached
+     */
+    List<RankedStake> getTopStakes() {
+        return parseStakeLines(get("/shard/top"));
+    }
+
+    /**
+     * Fetches a customer's highest stakes on the events of the node
+     * @throws IllegalStateException if the node cannot be reached
+     */
+    List<RankedStake> getCustomerStakes(int customerId) {
+        return parseStakeLines(get("/shard/customer/" + customerId));
+    }
+
+    private byte[] get(String path) {
+        HttpURLConnection connection = open(path);
+        try {
+            int status = connection.getResponseCode();
+            byte[] body = drain(connection, status);
+            if (status != HttpUtil.HTTP_OK) {
+                throw new IllegalStateException("Shard " + baseUrl + " answered " + status);
+            }
+            return body;
+        } catch (IOException e) {
+            throw new IllegalStateException("Shard " + baseUrl + " is unreachable", e);
+        }
+    }
+
+    /**
+     * Parses "betId,customerId,amount" lines
+     */
+    static List<RankedStake> parseStakeLines(byte[] body) {
+        List<RankedStake> stakes = new ArrayList<>();
+        int[] fields = new int[3];
+        int field = 0;
+        long value = 0;
+        for (int i = 0; i <= body.length; i++) {
+            int b = i == body.length ? '\n' : body[i];
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            } else if (b == ',' && field < 2) {
+                fields[field++] = (int) value;
+                value = 0;
+            } else if (b == '\n') {
+                if (field == 2) {
+                    stakes.add(new RankedStake(fields[0], fields[1], (int) value));
+                }
+                field = 0;
+                value = 0;
+            }
+        }
+        return stakes;
+    }
+
+    /**
+     * Parses a "customerId=amount,..." body
+     */
+    static LeaderboardSnapshot parseRanking(long version, byte[] body) {
+        int[] customerIds = new int[20];
+        int[] amounts = new int[20];
+        int size = 0;
+        long value = 0;
+        for (int i = 0; i <= body.length; i++) {
+            int b = i == body.length ? ',' : body[i];
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            } else if (b == '=') {
+                if (size == customerIds.length) {
+                    customerIds = Arrays.copyOf(customerIds, size * 2);
+                    amounts = Arrays.copyOf(amounts, size * 2);
+                }
+                customerIds[size] = (int) value;
+                value = 0;
+            } else if (b == ',') {
+                if (i > 0) {
+                    amounts[size++] = (int) value;
+                }
+                value = 0;
+            }
+        }
+        return new LeaderboardSnapshot(version, customerIds, amounts, size, RankingPolicy.LEADERBOARD_SIZE);
+    }
+
+    private HttpURLConnection open(String path) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty(HttpUtil.HEADER_SHARD_SECRET, secret);
+            return connection;
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid shard URL " + baseUrl, e);
+        }
+    }
+
+    /**
+     * Reads the whole body so the connection can be reused
+     */
+    private static byte[] drain(HttpURLConnection connection, int status) throws IOException {
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream body = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
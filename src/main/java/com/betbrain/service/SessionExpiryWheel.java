@@ -0,0 +1,115 @@
+package com.betbrain.service;
+
+import com.betbrain.model.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Time-bucketed expiry queue for sessions.
+ * <p>
+ * Sessions are placed in the slot of the tick in which they expire, and each
+ * advance drains only the slots whose tick has fully elapsed, so the work per
+ * tick is proportional to the sessions that actually expire. Slots are reused
+ * round-robin; sessions expiring more than one revolution ahead are put back
+ * when their slot comes up early. Renewals need no removal: the renewed
+ * session is a new object in its own slot, and the expiry callback ignores
+ * sessions that are no longer current.
+ */
+class SessionExpiryWheel {
+
+    private final long tickMs;
+    private final Slot[] slots;
+    private final int mask;
+
+    /**
+     * All ticks up to and including this one have been drained. Advanced
+     * under the lock of the slot just drained.
+     */
+    private volatile long processedTick;
+
+    private static final class Slot {
+        private List<Session> sessions = new ArrayList<>();
+    }
+
+    /**
+     * @param tickMs Length of one slot in milliseconds
+     * @param slotCount Number of slots, rounded up to a power of two
+     * @param now Current time in milliseconds
+     */
+    SessionExpiryWheel(long tickMs, int slotCount, long now) {
+        if (tickMs <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("Tick length and slot count must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(2, slotCount) - 1) << 1;
+        this.tickMs = tickMs;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.processedTick = now / tickMs - 1;
+    }
+
+    /**
+     * Schedules a session for expiry
+     * @param session Session to expire at its expiry time
+     */
+    void schedule(Session session) {
+        place(session, processedTick);
+    }
+
+    /**
+     * Puts a session in the slot of its tick, or of the next tick to be
+     * drained if its own has passed
+     * @param session Session to expire at its expiry time
+     * @param drainedTick Last drained tick as seen by the caller, may be stale
+     */
+    void place(Session session, long drainedTick) {
+        long expireTick = session.getExpireTime() / tickMs;
+        while (true) {
+            long tick = Math.max(expireTick, drainedTick + 1);
+            Slot slot = slots[(int) (tick & mask)];
+            synchronized (slot) {
+                // The slot may have been drained since drainedTick was read; joining
+                // it then would keep the session for a whole extra revolution
+                if (tick > processedTick) {
+                    slot.sessions.add(session);
+                    return;
+                }
+            }
+            drainedTick = processedTick;
+        }
+    }
+
+    /**
+     * Drains every slot whose tick has fully elapsed. Called from a single thread.
+     * @param now Current time in milliseconds
+     * @param expire Receives each expired session
+     * @return Number of sessions passed to expire
+     */
+    int advance(long now, Consumer<Session> expire) {
+        long target = now / tickMs - 1;
+        long tick = Math.max(processedTick + 1, target - mask);
+        int expired = 0;
+        for (; tick <= target; tick++) {
+            Slot slot = slots[(int) (tick & mask)];
+            List<Session> due;
+            synchronized (slot) {
+                due = slot.sessions;
+                slot.sessions = new ArrayList<>();
+                processedTick = tick;
+            }
+            for (Session session : due) {
+                if (session.getExpireTime() / tickMs > tick) {
+                    schedule(session);
+                } else {
+                    expire.accept(session);
+                    expired++;
+                }
+            }
+        }
+        return expired;
+    }
+}
@@ -1,13 +1,22 @@
 package com.betbrain.service;
 
+import com.betbrain.metrics.LatencyHistogram;
+import com.betbrain.metrics.MetricsRegistry;
 import com.betbrain.model.Session;
+import com.betbrain.persistence.SessionStore;
+import com.betbrain.util.ConfigUtil;
 import com.betbrain.util.SessionKeyGenerator;
 
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,14 +26,160 @@ import java.util.logging.Logger;
 public class SessionService {
     private static final Logger logger = Logger.getLogger(SessionService.class.getName());
     private static final long DEFAULT_SESSION_TIMEOUT_MS = 600000; // 10 minutes
-    private static final int SESSION_CLEANUP_INTERVAL = 1; // minutes
 
     private static final ConcurrentHashMap<Integer, Session> activeSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Reverse index of active sessions:
+     * Key - Session key (String)
+     * Value - Session owning the key, same instance as in activeSessions
+     */
+    private static final ConcurrentHashMap<String, Session> sessionsByKey = new ConcurrentHashMap<>();
     private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    private static final long EXPIRY_TICK_MS = ConfigUtil.getLong("betting.session.expiryTickMs", 1000);
+
+    /**
+     * Expiry queue of active sessions, bucketed by expiry tick
+     */
+    private static final SessionExpiryWheel expiryWheel = new SessionExpiryWheel(EXPIRY_TICK_MS,
+            ConfigUtil.getInt("betting.session.expirySlots", 1024), System.currentTimeMillis());
+
+    /**
+     * Cost of the expiry work
+     */
+    private static final LongAdder expiredSessions = new LongAdder();
+    private static final LongAdder expiryNanos = new LongAdder();
+    private static volatile long lastExpiryTickNanos;
+    private static final LatencyHistogram expiryDuration = MetricsRegistry.getInstance().histogram(
+            "betting_session_expiry_duration_seconds", "Time spent removing expired sessions per run");
+
+    /**
+     * Stateless token backend, null when sessions are kept in the maps above
+     */
+    private static final SignedSessionTokens signedTokens = createSignedTokens();
+
+    /**
+     * Session file used for warm restarts, null when persistence is disabled
+     */
+    private static final SessionStore sessionStore = createSessionStore();
     private static final SessionService instance = new SessionService();
 
     private SessionService() {
+        restoreSessions();
         initializeSessionCleanup();
+        initializeSessionCheckpoints();
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("betting_sessions_active", "Sessions held in memory", activeSessions::size);
+        metrics.counter("betting_sessions_expired_total", "Sessions removed by expiry", expiredSessions::sum);
+    }
+
+    /**
+     * Configuration (system properties):
+     * <ul>
+     *     <li>{@code betting.session.backend} - memory | signed (default memory)</li>
+     *     <li>{@code betting.session.secret} - HMAC secret shared by all nodes accepting the same tokens
+     *     (default: random per process)</li>
+     * </ul>
+     */
+    private static SignedSessionTokens createSignedTokens() {
+        if (!"signed".equalsIgnoreCase(ConfigUtil.getString("betting.session.backend", "memory"))) {
+            return null;
+        }
+        String secret = ConfigUtil.getString("betting.session.secret", "");
+        byte[] key;
+        if (secret.isEmpty()) {
+            logger.warning("No betting.session.secret set, tokens are only valid on this node until restart");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        return new SignedSessionTokens(key);
+    }
+
+    /**
+     * Configuration (system properties):
+     * <ul>
+     *     <li>{@code betting.session.file} - session file; sessions are kept in memory only when unset</li>
+     *     <li>{@code betting.session.checkpointSec} - time between checkpoints (default 60)</li>
+     * </ul>
+     */
+    private static SessionStore createSessionStore() {
+        String file = ConfigUtil.getString("betting.session.file", "");
+        return file.isEmpty() ? null : new SessionStore(new File(file));
+    }
+
+    /**
+     * Reloads the unexpired sessions of the previous run
+     */
+    private void restoreSessions() {
+        if (sessionStore == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            int restored = restore(sessionStore.load(System.currentTimeMillis()));
+            logger.log(Level.INFO, "Restored {0} sessions in {1} ms",
+                    new Object[]{restored, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot restore sessions, starting empty", e);
+        }
+    }
+
+    /**
+     * Registers loaded sessions. A key already in use is skipped, and of two
+     * sessions for one customer the later-expiring one is kept and the other
+     * key is unregistered, so it no longer authenticates.
+     * @param sessions Sessions read from the session file
+     * @return Number of customers with a restored session
+     */
+    int restore(List<Session> sessions) {
+        int restored = 0;
+        for (Session session : sessions) {
+            Session current = activeSessions.get(session.getCustomerId());
+            if (current != null && current.getExpireTime() >= session.getExpireTime()) {
+                continue;
+            }
+            if (sessionsByKey.putIfAbsent(session.getSessionKey(), session) != null) {
+                continue;
+            }
+            activeSessions.put(session.getCustomerId(), session);
+            expiryWheel.schedule(session);
+            if (current != null) {
+                sessionsByKey.remove(current.getSessionKey(), current);
+            } else {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private void initializeSessionCheckpoints() {
+        if (sessionStore == null) {
+            return;
+        }
+        long interval = ConfigUtil.getLong("betting.session.checkpointSec", 60);
+        scheduler.scheduleWithFixedDelay(SessionService::checkpointSessions, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes all active sessions to the session file, if persistence is enabled
+     */
+    public static void checkpointSessions() {
+        if (sessionStore == null) {
+            return;
+        }
+        try {
+            int saved = sessionStore.save(activeSessions.values());
+            logger.log(Level.FINE, "Checkpointed {0} sessions", saved);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Session checkpoint failed", e);
+        }
     }
 
     public static SessionService getInstance() {
@@ -32,14 +187,25 @@ public class SessionService {
     }
 
     /**
-     * Retrieves or creates a session for the specified customer
+     * Retrieves or creates a session for the specified customer.
+     * With the signed backend every call issues a fresh token.
      * @param customerId Unique customer identifier
      * @return Session key for authentication
      */
     public String getOrCreateSession(int customerId) {
-        return activeSessions.compute(customerId, (key, existing) ->
-                shouldRenewSession(existing) ? createNewSession() : existing
-        ).getSessionKey();
+        if (signedTokens != null) {
+            return signedTokens.issue(customerId, System.currentTimeMillis() + DEFAULT_SESSION_TIMEOUT_MS);
+        }
+        return activeSessions.compute(customerId, (id, existing) -> {
+            if (!shouldRenewSession(existing)) {
+                return existing;
+            }
+            Session renewed = createNewSession(id);
+            if (existing != null) {
+                sessionsByKey.remove(existing.getSessionKey(), existing);
+            }
+            return renewed;
+        }).getSessionKey();
     }
 
     /**
@@ -48,8 +214,7 @@ public class SessionService {
      * @return true if valid and non-expired session exists
      */
     public boolean isValidSession(String sessionKey) {
-        return activeSessions.values().stream()
-                .anyMatch(s -> s.getSessionKey().equals(sessionKey) && !isExpired(s));
+        return authenticate(sessionKey) != -1;
     }
 
     /**
@@ -58,42 +223,110 @@ public class SessionService {
      * @return Customer ID or -1 if not found
      */
     public int getCustomerIdBySessionKey(String sessionKey) {
-        return activeSessions.entrySet().stream()
-                .filter(e -> e.getValue().getSessionKey().equals(sessionKey))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse(-1);
+        if (signedTokens != null) {
+            return signedTokens.verify(sessionKey, System.currentTimeMillis());
+        }
+        Session session = sessionKey == null ? null : sessionsByKey.get(sessionKey);
+        return session == null ? -1 : session.getCustomerId();
     }
 
     /**
-     * Initializes periodic session cleanup task
+     * Resolves a session key to its customer in a single lookup
+     * @param sessionKey Authentication token to validate
+     * @return Customer ID, or -1 if the session is unknown or expired
+     */
+    public int authenticate(String sessionKey) {
+        if (signedTokens != null) {
+            return signedTokens.verify(sessionKey, System.currentTimeMillis());
+        }
+        Session session = sessionKey == null ? null : sessionsByKey.get(sessionKey);
+        if (session == null || isExpired(session)) {
+            return -1;
+        }
+        return session.getCustomerId();
+    }
+
+    /**
+     * Initializes periodic session expiry task
      */
     private void initializeSessionCleanup() {
         scheduler.scheduleAtFixedRate(
-                this::cleanExpiredSessions,
-                SESSION_CLEANUP_INTERVAL,
-                SESSION_CLEANUP_INTERVAL,
-                TimeUnit.MINUTES
+                this::expireDueSessions,
+                EXPIRY_TICK_MS,
+                EXPIRY_TICK_MS,
+                TimeUnit.MILLISECONDS
         );
     }
 
     /**
-     * Removes expired sessions from active session store
+     * Removes the sessions whose expiry tick has elapsed, touching only those sessions
+     * @return Number of sessions removed
+     */
+    public int expireDueSessions() {
+        long start = System.nanoTime();
+        int expired = expiryWheel.advance(System.currentTimeMillis(), this::expireSession);
+        long elapsed = System.nanoTime() - start;
+        expiryNanos.add(elapsed);
+        lastExpiryTickNanos = elapsed;
+        expiryDuration.record(elapsed);
+        return expired;
+    }
+
+    /**
+     * Removes a session unless it has been renewed in the meantime
+     */
+    private void expireSession(Session session) {
+        if (activeSessions.remove(session.getCustomerId(), session)) {
+            logger.log(Level.FINE, "Clearing expired session: Customer={0}, Key={1}",
+                    new Object[]{session.getCustomerId(), session.getSessionKey()});
+            sessionsByKey.remove(session.getSessionKey(), session);
+            expiredSessions.increment();
+        }
+    }
+
+    /**
+     * @return Sessions removed by expiry so far
+     */
+    public long getExpiredSessionCount() {
+        return expiredSessions.sum();
+    }
+
+    /**
+     * @return Total time spent in expiry ticks in nanoseconds
+     */
+    public long getExpiryTimeNanos() {
+        return expiryNanos.sum();
+    }
+
+    /**
+     * @return Duration of the most recent expiry tick in nanoseconds
+     */
+    public long getLastExpiryTickNanos() {
+        return lastExpiryTickNanos;
+    }
+
+    /**
+     * Removes expired sessions by sweeping the whole store. Not scheduled;
+     * regular expiry is handled by {@link #expireDueSessions()}.
      */
     public void cleanExpiredSessions() {
-        final long currentTime = System.currentTimeMillis();
+        long start = System.nanoTime();
         activeSessions.entrySet().removeIf(entry -> {
-            if (isExpired(entry.getValue())) {
+            Session session = entry.getValue();
+            if (isExpired(session)) {
                 logger.log(Level.FINE, "Clearing expired session: Customer={0}, Key={1}",
-                        new Object[]{entry.getKey(), entry.getValue().getSessionKey()});
+                        new Object[]{entry.getKey(), session.getSessionKey()});
+                sessionsByKey.remove(session.getSessionKey(), session);
+                expiredSessions.increment();
                 return true;
             }
             return false;
         });
+        expiryDuration.recordSince(start);
     }
 
     /**
-     * Shuts down session maintenance tasks
+     * Shuts down session maintenance tasks and persists the active sessions
      */
     public static void shutdown() {
         scheduler.shutdown();
@@ -105,6 +338,7 @@ public class SessionService {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        checkpointSessions();
     }
 
     private boolean shouldRenewSession(Session existing) {
@@ -115,10 +349,17 @@ public class SessionService {
         return System.currentTimeMillis() > session.getExpireTime();
     }
 
-    private Session createNewSession() {
-        return new Session(
-                SessionKeyGenerator.generate(),
-                System.currentTimeMillis() + DEFAULT_SESSION_TIMEOUT_MS
-        );
+    /**
+     * Creates a session with a key unique among active sessions and registers it in the reverse index
+     */
+    private Session createNewSession(int customerId) {
+        long expireTime = System.currentTimeMillis() + DEFAULT_SESSION_TIMEOUT_MS;
+        while (true) {
+            Session session = new Session(SessionKeyGenerator.generate(), customerId, expireTime);
+            if (sessionsByKey.putIfAbsent(session.getSessionKey(), session) == null) {
+                expiryWheel.schedule(session);
+                return session;
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.betbrain.service;
+
+import com.betbrain.util.ConsistentHashRing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assignment of bet IDs to the BettingServer nodes of a cluster. Immutable;
+ * a topology change replaces the whole instance.
+ */
+final class ShardTopology {
+
+    private final ConsistentHashRing<String> ring;
+    private final String self;
+    private final Map<String, RemoteStakeShard> remotes = new HashMap<>();
+
+    /**
+     * @param nodes Base URLs of all nodes; a node not in the list owns no events
+     * @param self Base URL of this node
+     * @param secret Shared secret sent to the other nodes
+     * @param virtualNodes Ring points per node
+     */
+    ShardTopology(List<String> nodes, String self, String secret, int virtualNodes) {
+        List<String> normalized = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            normalized.add(normalize(node));
+        }
+        this.self = normalize(self);
+        this.ring = new ConsistentHashRing<>(normalized, virtualNodes);
+        for (String node : normalized) {
+            if (!node.equals(this.self)) {
+                remotes.put(node, new RemoteStakeShard(node, secret));
+            }
+        }
+    }
+
+    /**
+     * @param betId Betting event ID
+     * @return Node owning the event, or null if it is this node
+     */
+    RemoteStakeShard remoteOwnerOf(int betId) {
+        String owner = ring.nodeFor(betId);
+        return owner.equals(self) ? null : remotes.get(owner);
+    }
+
+    /**
+     * @return Base URLs of all nodes
+     */
+    List<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    /**
+     * @return The other nodes
+     */
+    Collection<RemoteStakeShard> getRemotes() {
+        return remotes.values();
+    }
+
+    /**
+     * @return true if this node owns a share of the events
+     */
+    boolean containsSelf() {
+        return ring.getNodes().contains(self);
+    }
+
+    static String normalize(String url) {
+        String trimmed = url.trim();
+        while (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+}
@@ -0,0 +1,287 @@
+package com.betbrain.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single-writer-per-bet ingestion engine.
+ * <p>
+ * Each bet ID is hashed to one of N shards. A shard owns a bounded ring
+ * buffer of primitive (betId, customerId, amount) records and a dedicated
+ * applier thread that drains it in batches, so all stakes for a bet are
+ * applied by one thread and request threads never contend on the event's
+ * locks. {@link #submit} returns once the stake is enqueued; when a shard's
+ * buffer stays full longer than the offer timeout the stake is refused.
+ */
+public class ShardedStakeIngestor implements StakeIngestor {
+
+    private static final Logger logger = Logger.getLogger(ShardedStakeIngestor.class.getName());
+    private static final int RECORD_INTS = 3;
+
+    private final Shard[] shards;
+    private final long offerTimeoutNanos;
+
+    /**
+     * @param applier Applies drained stakes to storage
+     * @param shardCount Number of shards and applier threads
+     * @param queueCapacity Stakes buffered per shard
+     * @param batchSize Maximum stakes drained per batch
+     * @param offerTimeoutMs Maximum time submit waits for space in a full shard
+     */
+    public ShardedStakeIngestor(StakeApplier applier, int shardCount, int queueCapacity,
+                                int batchSize, long offerTimeoutMs) {
+        if (shardCount <= 0 || queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Shard count, queue capacity and batch size must be positive");
+        }
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(applier, queueCapacity, Math.min(batchSize, queueCapacity));
+            Thread thread = new Thread(shards[i], "stake-shard-" + i);
+            thread.setDaemon(true);
+            shards[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    @Override
+    public void submit(int betId, int customerId, int amount) {
+        shards[shardIndex(betId)].offer(betId, customerId, amount, offerTimeoutNanos);
+    }
+
+    @Override
+    public void reserve(int betId) {
+        shards[shardIndex(betId)].reserve(offerTimeoutNanos);
+    }
+
+    @Override
+    public void cancelReservation(int betId) {
+        shards[shardIndex(betId)].cancelReservation();
+    }
+
+    @Override
+    public void submitReserved(int betId, int customerId, int amount) {
+        shards[shardIndex(betId)].publish(betId, customerId, amount);
+    }
+
+    @Override
+    public void flush() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.awaitApplied(shard.enqueuedCount());
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Stakes enqueued but not yet applied, across all shards
+     */
+    public long getBacklog() {
+        long backlog = 0;
+        for (Shard shard : shards) {
+            backlog += shard.enqueuedCount() - shard.applied;
+        }
+        return backlog;
+    }
+
+    private int shardIndex(int betId) {
+        int h = betId * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % shards.length;
+    }
+
+    private static final class Shard implements Runnable {
+        private final StakeApplier applier;
+        private final int[] ring;
+        private final int capacity;
+        private final int[] batch;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+
+        /**
+         * Ring positions, guarded by lock
+         */
+        private long head;
+        private long tail;
+        private int reserved;
+        private boolean running = true;
+
+        /**
+         * Stakes applied so far, written only by the shard thread
+         */
+        private volatile long applied;
+        private Thread thread;
+
+        private Shard(StakeApplier applier, int capacity, int batchSize) {
+            this.applier = applier;
+            this.capacity = capacity;
+            this.ring = new int[capacity * RECORD_INTS];
+            this.batch = new int[batchSize * RECORD_INTS];
+        }
+
+        private void offer(int betId, int customerId, int amount, long timeoutNanos) {
+            lock.lock();
+            try {
+                awaitRoom(timeoutNanos);
+                enqueue(betId, customerId, amount);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void reserve(long timeoutNanos) {
+            lock.lock();
+            try {
+                awaitRoom(timeoutNanos);
+                reserved++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void cancelReservation() {
+            lock.lock();
+            try {
+                reserved--;
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Enqueues into reserved room. Never refuses the stake: once stopped,
+         * the shard thread has exited and the stake only survives in the journal.
+         */
+        private void publish(int betId, int customerId, int amount) {
+            lock.lock();
+            try {
+                reserved--;
+                enqueue(betId, customerId, amount);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until a slot is neither filled nor reserved. Caller holds lock.
+         */
+        private void awaitRoom(long timeoutNanos) {
+            try {
+                long remaining = timeoutNanos;
+                while (tail - head + reserved == capacity) {
+                    if (!running) {
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        throw new IllegalStateException("Stake queue full");
+                    }
+                    remaining = notFull.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while enqueuing stake", e);
+            }
+            if (!running) {
+                throw new IllegalStateException("Stake ingestion stopped");
+            }
+        }
+
+        /**
+         * Writes a stake at the tail. Caller holds lock and has checked for room.
+         */
+        private void enqueue(int betId, int customerId, int amount) {
+            int slot = (int) (tail % capacity) * RECORD_INTS;
+            ring[slot] = betId;
+            ring[slot + 1] = customerId;
+            ring[slot + 2] = amount;
+            if (tail++ == head) {
+                notEmpty.signal();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                int count;
+                lock.lock();
+                try {
+                    while (tail == head && running) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (tail == head) {
+                        return;
+                    }
+                    count = (int) Math.min(tail - head, batch.length / RECORD_INTS);
+                    for (int i = 0; i < count; i++) {
+                        System.arraycopy(ring, (int) ((head + i) % capacity) * RECORD_INTS,
+                                batch, i * RECORD_INTS, RECORD_INTS);
+                    }
+                    head += count;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                applyBatch(count);
+                applied += count;
+            }
+        }
+
+        private void applyBatch(int count) {
+            for (int i = 0; i < count * RECORD_INTS; i += RECORD_INTS) {
+                try {
+                    applier.apply(batch[i], batch[i + 1], batch[i + 2]);
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "Failed to apply stake for bet " + batch[i], e);
+                }
+            }
+        }
+
+        private long enqueuedCount() {
+            lock.lock();
+            try {
+                return tail;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void awaitApplied(long target) throws InterruptedException {
+            while (applied < target && thread.isAlive()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+
+        private void stop() {
+            lock.lock();
+            try {
+                running = false;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.betbrain.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Stateless session backend issuing self-validating tokens.
+ * <p>
+ * A token is the URL-safe Base64 form of 18 bytes: the customer ID, the
+ * expiry in epoch seconds and the first 10 bytes of an HMAC-SHA256 over
+ * both. Any node sharing the secret can verify a token without a session
+ * lookup; verification decodes into per-thread buffers and compares the MAC
+ * in constant time.
+ */
+class SignedSessionTokens {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int PAYLOAD_BYTES = 8;
+    private static final int MAC_BYTES = 10;
+    private static final int TOKEN_BYTES = PAYLOAD_BYTES + MAC_BYTES;
+    private static final int TOKEN_CHARS = 24;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Codec> codecs;
+
+    /**
+     * Per-thread MAC instance and scratch buffers
+     */
+    private static final class Codec {
+        private final Mac mac;
+        private final byte[] token = new byte[TOKEN_BYTES];
+        private final byte[] digest;
+
+        private Codec(SecretKeySpec key) {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC unavailable", e);
+            }
+            digest = new byte[mac.getMacLength()];
+        }
+
+        private void sign() {
+            mac.update(token, 0, PAYLOAD_BYTES);
+            try {
+                mac.doFinal(digest, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC failed", e);
+            }
+        }
+    }
+
+    /**
+     * @param secret HMAC key; nodes that must accept each other's tokens share it
+     */
+    SignedSessionTokens(byte[] secret) {
+        if (secret == null || secret.length < 16) {
+            throw new IllegalArgumentException("Session secret must have at least 16 bytes");
+        }
+        this.key = new SecretKeySpec(secret.clone(), ALGORITHM);
+        this.codecs = ThreadLocal.withInitial(() -> new Codec(key));
+    }
+
+    /**
+     * Issues a token
+     * @param customerId Customer owning the session
+     * @param expireTime Expiration timestamp in milliseconds, stored with second precision
+     * @return Signed token
+     */
+    String issue(int customerId, long expireTime) {
+        Codec codec = codecs.get();
+        byte[] token = codec.token;
+        writeInt(token, 0, customerId);
+        writeInt(token, 4, (int) (expireTime / 1000));
+        codec.sign();
+        System.arraycopy(codec.digest, 0, token, PAYLOAD_BYTES, MAC_BYTES);
+        return ENCODER.encodeToString(token);
+    }
+
+    /**
+     * Verifies a token
+     * @param sessionKey Token presented by the client
+     * @param now Current time in milliseconds
+     * @return Customer ID, or -1 if the token is malformed, forged or expired
+     */
+    int verify(String sessionKey, long now) {
+        if (sessionKey == null || sessionKey.length() != TOKEN_CHARS) {
+            return -1;
+        }
+        Codec codec = codecs.get();
+        byte[] token = codec.token;
+        if (!decode(sessionKey, token)) {
+            return -1;
+        }
+        codec.sign();
+        int difference = 0;
+        for (int i = 0; i < MAC_BYTES; i++) {
+            difference |= codec.digest[i] ^ token[PAYLOAD_BYTES + i];
+        }
+        if (difference != 0) {
+            return -1;
+        }
+        long expireSeconds = readInt(token, 4) & 0xFFFFFFFFL;
+        if (now / 1000 > expireSeconds) {
+            return -1;
+        }
+        return readInt(token, 0);
+    }
+
+    /**
+     * Decodes 24 Base64url characters into 18 bytes
+     */
+    private static boolean decode(String text, byte[] out) {
+        int o = 0;
+        for (int i = 0; i < TOKEN_CHARS; i += 4) {
+            int bits = 0;
+            for (int j = 0; j < 4; j++) {
+                char c = text.charAt(i + j);
+                int value = c < 128 ? DECODE[c] : -1;
+                if (value < 0) {
+                    return false;
+                }
+                bits = (bits << 6) | value;
+            }
+            out[o++] = (byte) (bits >>> 16);
+            out[o++] = (byte) (bits >>> 8);
+            out[o++] = (byte) bits;
+        }
+        return true;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24
+                | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8
+                | (bytes[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,15 @@
+package com.betbrain.service;
+
+/**
+ * Applies a validated stake to the betting event storage
+ */
+@FunctionalInterface
+public interface StakeApplier {
+
+    /**
+     * @param betId ID of the betting event
+     * @param customerId ID of the customer
+     * @param amount Stake amount
+     */
+    void apply(int betId, int customerId, int amount);
+}
@@ -0,0 +1,167 @@
+package com.betbrain.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded feed of raised customer maximums, from the stake path to the
+ * secondary indexes.
+ * <p>
+ * Records are spread over lock-striped ring buffers of primitive
+ * (betId, customerId, amount) triples, so concurrent publishers rarely meet.
+ * Publishing never blocks or signals: a full stripe drops the record and
+ * raises the overflow flag, which tells the consumer to rebuild its indexes
+ * from the events themselves.
+ */
+final class StakeChangeFeed {
+
+    private static final int RECORD_INTS = 3;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final AtomicBoolean overflow = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param stripeCount Number of ring buffers, rounded up to a power of two
+     * @param capacity Records buffered in total
+     */
+    StakeChangeFeed(int stripeCount, int capacity) {
+        int count = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(Math.max(16, capacity / count));
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * Publishes a raised maximum; drops it when the feed is full
+     * @param betId ID of the betting event
+     * @param customerId ID of the customer
+     * @param amount New highest stake
+     */
+    void publish(int betId, int customerId, int amount) {
+        int h = (betId ^ customerId) * 0x9E3779B9;
+        if (!stripes[(h >>> 16) & mask].offer(betId, customerId, amount)) {
+            dropped.increment();
+            overflow.set(true);
+        }
+    }
+
+    /**
+     * Hands every buffered record to the sink. Consumer thread only.
+     * @return Number of records drained
+     */
+    int drainTo(StakeApplier sink) {
+        int drained = 0;
+        for (Stripe stripe : stripes) {
+            drained += stripe.drainTo(sink);
+        }
+        return drained;
+    }
+
+    /**
+     * Marks the indexes stale, e.g. after events left this node
+     */
+    void requestRebuild() {
+        overflow.set(true);
+    }
+
+    /**
+     * Clears the overflow flag. Records dropped before this call belong to
+     * events as they are now, so a full scan started afterwards includes them.
+     * @return true if records were dropped or a rebuild was requested
+     */
+    boolean takeRebuildRequest() {
+        return overflow.getAndSet(false);
+    }
+
+    /**
+     * @return Records dropped because the feed was full
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return Records waiting for the consumer
+     */
+    long getBacklog() {
+        long backlog = 0;
+        for (Stripe stripe : stripes) {
+            backlog += stripe.size();
+        }
+        return backlog;
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        private final int[] ring;
+        private int[] batch = new int[0];
+
+        /**
+         * Ring positions, guarded by lock
+         */
+        private long head;
+        private long tail;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+            this.ring = new int[capacity * RECORD_INTS];
+        }
+
+        private boolean offer(int betId, int customerId, int amount) {
+            lock.lock();
+            try {
+                if (tail - head == capacity) {
+                    return false;
+                }
+                int slot = (int) (tail % capacity) * RECORD_INTS;
+                ring[slot] = betId;
+                ring[slot + 1] = customerId;
+                ring[slot + 2] = amount;
+                tail++;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int drainTo(StakeApplier sink) {
+            int count;
+            lock.lock();
+            try {
+                count = (int) (tail - head);
+                if (count == 0) {
+                    return 0;
+                }
+                if (batch.length < count * RECORD_INTS) {
+                    batch = new int[capacity * RECORD_INTS];
+                }
+                for (int i = 0; i < count; i++) {
+                    System.arraycopy(ring, (int) ((head + i) % capacity) * RECORD_INTS,
+                            batch, i * RECORD_INTS, RECORD_INTS);
+                }
+                head = tail;
+            } finally {
+                lock.unlock();
+            }
+            for (int i = 0; i < count * RECORD_INTS; i += RECORD_INTS) {
+                sink.apply(batch[i], batch[i + 1], batch[i + 2]);
+            }
+            return count;
+        }
+
+        private long size() {
+            lock.lock();
+            try {
+                return tail - head;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
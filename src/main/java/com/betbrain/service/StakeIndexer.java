@@ -0,0 +1,133 @@
+package com.betbrain.service;
+
+import com.betbrain.model.BetEvent;
+import com.betbrain.model.CustomerStakeIndex;
+import com.betbrain.model.GlobalLeaderboard;
+import com.betbrain.model.StakeColumns;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maintains the cross-event indexes from the {@link StakeChangeFeed} on a
+ * background thread, so the stake path only pays for publishing a record.
+ * <p>
+ * Indexes lag the events by at most one poll interval while the feed keeps
+ * up. When records were dropped, fresh indexes are built from a scan of all
+ * events and swapped in; readers keep using the old ones meanwhile.
+ */
+final class StakeIndexer implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(StakeIndexer.class.getName());
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final StakeChangeFeed feed;
+    private final Supplier<Map<Integer, BetEvent>> events;
+    private final int topK;
+    private final Thread thread;
+    private final LongAdder rebuilds = new LongAdder();
+    private volatile boolean running = true;
+
+    private volatile GlobalLeaderboard leaderboard;
+    private volatile CustomerStakeIndex customers = new CustomerStakeIndex();
+
+    /**
+     * Applies drained records to the current indexes
+     */
+    private final StakeApplier indexUpdate = (betId, customerId, amount) -> {
+        leaderboard.offer(betId, customerId, amount);
+        customers.update(betId, customerId, amount);
+    };
+
+    /**
+     * @param feed Source of raised maximums
+     * @param events Supplies all events for a rebuild
+     * @param topK Entries kept in the global leaderboard
+     */
+    StakeIndexer(StakeChangeFeed feed, Supplier<Map<Integer, BetEvent>> events, int topK) {
+        this.feed = feed;
+        this.events = events;
+        this.topK = topK;
+        this.leaderboard = new GlobalLeaderboard(topK);
+        this.thread = new Thread(this, "stake-indexer");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    StakeChangeFeed getFeed() {
+        return feed;
+    }
+
+    GlobalLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    CustomerStakeIndex getCustomers() {
+        return customers;
+    }
+
+    /**
+     * @return Full rebuilds since startup
+     */
+    long getRebuildCount() {
+        return rebuilds.sum();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (feed.takeRebuildRequest()) {
+                    rebuild();
+                }
+                if (feed.drainTo(indexUpdate) > 0) {
+                    leaderboard.publish();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Stake indexing failed, rebuilding", e);
+                feed.requestRebuild();
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    /**
+     * Builds new indexes from every event and swaps them in
+     */
+    private void rebuild() {
+        long start = System.nanoTime();
+        // Buffered records were applied to their events before being published, so the scan covers them
+        feed.drainTo((betId, customerId, amount) -> { });
+        GlobalLeaderboard rebuiltLeaderboard = new GlobalLeaderboard(topK);
+        CustomerStakeIndex rebuiltCustomers = new CustomerStakeIndex();
+        for (Map.Entry<Integer, BetEvent> entry : events.get().entrySet()) {
+            int betId = entry.getKey();
+            StakeColumns stakes = entry.getValue().exportStakes();
+            for (int i = 0; i < stakes.size(); i++) {
+                rebuiltLeaderboard.offer(betId, stakes.getCustomerId(i), stakes.getAmount(i));
+                rebuiltCustomers.update(betId, stakes.getCustomerId(i), stakes.getAmount(i));
+            }
+        }
+        rebuiltLeaderboard.publish();
+        leaderboard = rebuiltLeaderboard;
+        customers = rebuiltCustomers;
+        rebuilds.increment();
+        logger.log(Level.INFO, "Rebuilt stake indexes for {0} customers in {1} ms", new Object[]{
+                rebuiltCustomers.getCustomerCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+    }
+}
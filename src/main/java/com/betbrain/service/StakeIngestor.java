@@ -0,0 +1,51 @@
+package com.betbrain.service;
+
+/**
+ * Ingestion engine deciding when and on which thread stakes are applied
+ */
+public interface StakeIngestor {
+
+    /**
+     * Accepts a validated stake. Returns once the stake is applied or
+     * safely enqueued for application, depending on the engine.
+     * @param betId ID of the betting event
+     * @param customerId ID of the customer
+     * @param amount Stake amount
+     * @throws IllegalStateException if the engine cannot accept the stake (overloaded or stopped)
+     */
+    void submit(int betId, int customerId, int amount);
+
+    /**
+     * Reserves room for one stake of a bet, so that a following
+     * {@link #submitReserved} for it cannot be refused. Used to make sure a
+     * stake is accepted before it is journaled.
+     * @param betId ID of the betting event
+     * @throws IllegalStateException if the engine cannot accept the stake (overloaded or stopped)
+     */
+    void reserve(int betId);
+
+    /**
+     * Releases a reservation that will not be submitted
+     * @param betId ID of the betting event passed to {@link #reserve}
+     */
+    void cancelReservation(int betId);
+
+    /**
+     * Accepts a validated stake into room reserved for its bet; never refuses it
+     * @param betId ID of the betting event
+     * @param customerId ID of the customer
+     * @param amount Stake amount
+     */
+    void submitReserved(int betId, int customerId, int amount);
+
+    /**
+     * Blocks until every stake accepted before this call has been applied
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void flush() throws InterruptedException;
+
+    /**
+     * Applies outstanding stakes and releases engine resources
+     */
+    void shutdown();
+}
@@ -1,33 +1,511 @@
 package com.betbrain.service;
 
+import com.betbrain.metrics.Counter;
+import com.betbrain.metrics.LatencyHistogram;
+import com.betbrain.metrics.MetricsRegistry;
 import com.betbrain.model.BetEvent;
+import com.betbrain.model.LeaderboardListener;
+import com.betbrain.model.LeaderboardSnapshot;
+import com.betbrain.model.RankedStake;
+import com.betbrain.model.RankingPolicy;
+import com.betbrain.model.StakeBatch;
+import com.betbrain.model.StakeColumns;
+import com.betbrain.persistence.StakeJournal;
+import com.betbrain.persistence.StakeSnapshotter;
+import com.betbrain.util.AsciiBuffer;
+import com.betbrain.util.ConfigUtil;
+import com.betbrain.util.ConsistentHashRing;
+import com.betbrain.util.HttpUtil;
+import com.betbrain.util.LogRateLimiter;
 
-import java.util.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
- * Manages betting records and provides top stake rankings
+ * Manages betting records and provides top stake rankings.
+ * <p>
+ * Events are partitioned by consistent hashing of the bet ID, first over
+ * in-process shards and optionally over several BettingServer nodes. Stakes
+ * and ranking reads for an event owned by another node are forwarded to it
+ * through the internal shard API, so every node accepts every request.
+ * <p>
+ * Configuration (system properties):
+ * <ul>
+ *     <li>{@code betting.shards.local} - in-process shards (default 1)</li>
+ *     <li>{@code betting.shards.virtualNodes} - ring points per shard or node (default 128)</li>
+ *     <li>{@code betting.shards.nodes} - comma-separated base URLs of all nodes; single node when unset</li>
+ *     <li>{@code betting.shards.self} - base URL of this node as listed in the nodes</li>
+ *     <li>{@code betting.shards.secret} - shared secret of the internal shard API, required with nodes</li>
+ * </ul>
+ * <p>
+ * Raised customer maximums are also published to a change feed that keeps a
+ * global leaderboard and a per-customer index up to date in the background;
+ * see {@link #createIndexer()}.
  */
 public class StakeService {
 
     private static final Logger logger = Logger.getLogger("StakeService");
+    private static final LogRateLimiter invalidStakeLog = LogRateLimiter.forCategory("invalid-stake", 10);
+    private static final LatencyHistogram recordDuration = MetricsRegistry.getInstance().histogram(
+            "betting_stake_record_duration_seconds", "Time to journal and submit an accepted stake");
+    private static final Counter invalidStakes = MetricsRegistry.getInstance().counter(
+            "betting_stakes_rejected_total", "Stakes not recorded", "reason", "invalid");
+    private static final Counter unavailableStakes = MetricsRegistry.getInstance().counter(
+            "betting_stakes_rejected_total", "Stakes not recorded", "reason", "unavailable");
+    private static final Counter forwardedStakes = MetricsRegistry.getInstance().counter(
+            "betting_stakes_forwarded_total", "Stakes forwarded to the node owning their event");
+    private static final byte[] NO_STAKES_PREFIX = HttpUtil.encode("No stakes for bet ID: ");
+    private static final int VIRTUAL_NODES = ConfigUtil.getInt("betting.shards.virtualNodes", 128);
+    private static final String SHARD_SECRET = ConfigUtil.getString("betting.shards.secret", "");
+    private static final String SELF_NODE = ConfigUtil.getString("betting.shards.self", "");
 
     /**
-     * All betting event records storage:
-     * Key - Betting event ID (Integer)
-     * Value - Corresponding betting data
+     * Most stakes sent in one request of the internal shard API
      */
-    private final ConcurrentHashMap<Integer, BetEvent> betEventData = new ConcurrentHashMap<>();
+    public static final int MAX_IMPORT_ITEMS = 10000;
 
+    /**
+     * In-process shards holding the betting events owned by this node, keyed by bet ID
+     */
+    private volatile ConsistentHashRing<LocalStakeShard> localShards;
+
+    /**
+     * Nodes of the cluster, null when this node owns every event
+     */
+    private volatile ShardTopology topology;
+
+    /**
+     * Serializes shard count and topology changes
+     */
+    private final Object rebalanceLock = new Object();
+
+    /**
+     * Resolves the ranking policy for newly created events, e.g. by event type
+     */
+    private volatile IntFunction<RankingPolicy> rankingPolicies = betId -> RankingPolicy.defaultPolicy();
+
+    /**
+     * Resolves the leaderboard listener of newly created events, null for none
+     */
+    private volatile IntFunction<LeaderboardListener> leaderboardListeners = betId -> null;
+    private final Function<Integer, BetEvent> eventFactory = betId -> {
+        BetEvent event = new BetEvent(rankingPolicies.apply(betId));
+        event.setLeaderboardListener(leaderboardListeners.apply(betId));
+        return event;
+    };
+
+
+    /**
+     * Engine applying validated stakes, chosen at startup
+     */
+    private final StakeIngestor ingestor;
+
+    /**
+     * Write-ahead journal of accepted stakes, null when durability is disabled
+     */
+    private final StakeJournal journal;
+
+    /**
+     * Periodic snapshot writer, null when snapshots are disabled
+     */
+    private final StakeSnapshotter snapshotter;
+    private ScheduledExecutorService snapshotScheduler;
+
+    /**
+     * Held shared while a stake is journaled and submitted, and exclusively
+     * while a snapshot rolls the journal or the shards are rebalanced, so that
+     * every stake accepted before has reached the ingestion engine.
+     * <p>
+     * In group durability the append also waits for the fsync under the shared
+     * lock. A stake is only submitted once it is on disk, and submitting it
+     * after releasing the lock would let a snapshot roll and delete its segment
+     * before it is applied. Writers therefore wait up to one sync interval plus
+     * a force, only on snapshots and rebalances.
+     */
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    /**
+     * Feed of raised customer maximums and its consumer, null when the indexes are disabled
+     */
+    private final StakeChangeFeed changes;
+    private final StakeIndexer indexer;
+
+    /**
+     * Whether stakes take the checkpoint lock: with a journal, or when the
+     * shard API can change the node list at runtime; otherwise the
+     * uncontended path skips it. Resizing the local shards is safe on both
+     * paths, see {@link #storeStake}.
+     */
+    private final boolean lockedStakePath;
+    private ScheduledExecutorService migrationScheduler;
+
+    /**
+     * Lazily created in a holder so StakeService itself is initialized before
+     * the constructor runs: recovery applies stakes from worker threads, which
+     * would otherwise block on the class initialization lock
+     */
+    private static final class Holder {
+        private static final StakeService INSTANCE = new StakeService();
+    }
 
-    private static final StakeService stakeService = new StakeService();
     private StakeService() {
+        localShards = createLocalShards(ConfigUtil.getInt("betting.shards.local", 1), Collections.emptyList());
+        topology = createTopology(parseNodes(ConfigUtil.getString("betting.shards.nodes", "")));
+        snapshotter = openSnapshotter();
+        long journalSegment = restoreSnapshot();
+        journal = openJournal(journalSegment);
+        indexer = createIndexer();
+        changes = indexer == null ? null : indexer.getFeed();
+        ingestor = createIngestor();
+        lockedStakePath = journal != null || !SHARD_SECRET.isEmpty();
+        scheduleSnapshots();
+        scheduleMigration();
+        registerMetrics();
+    }
+
+    /**
+     * Creates the background indexer of cross-event queries; it starts by
+     * indexing the recovered events.
+     * <p>
+     * Configuration (system properties):
+     * <ul>
+     *     <li>{@code betting.index.enabled} - maintain the indexes (default true)</li>
+     *     <li>{@code betting.index.topK} - entries of the global leaderboard (default 100)</li>
+     *     <li>{@code betting.index.feedCapacity} - changes buffered before the indexes are rebuilt (default 65536)</li>
+     * </ul>
+     */
+    private StakeIndexer createIndexer() {
+        if (!ConfigUtil.getBoolean("betting.index.enabled", true)) {
+            return null;
+        }
+        StakeChangeFeed feed = new StakeChangeFeed(4 * Runtime.getRuntime().availableProcessors(),
+                ConfigUtil.getInt("betting.index.feedCapacity", 65536));
+        feed.requestRebuild();
+        StakeIndexer created = new StakeIndexer(feed, this::getLocalEvents, ConfigUtil.getInt("betting.index.topK", 100));
+        created.start();
+        return created;
+    }
+
+    /**
+     * Creates count local shards, reusing existing shards of the same name
+     */
+    private static ConsistentHashRing<LocalStakeShard> createLocalShards(int count, List<LocalStakeShard> existing) {
+        List<LocalStakeShard> shards = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, count); i++) {
+            LocalStakeShard shard = null;
+            for (LocalStakeShard candidate : existing) {
+                if (candidate.toString().equals("shard-" + i)) {
+                    shard = candidate;
+                }
+            }
+            shards.add(shard != null ? shard : new LocalStakeShard("shard-" + i));
+        }
+        return new ConsistentHashRing<>(shards, VIRTUAL_NODES);
+    }
+
+    private static List<String> parseNodes(String nodes) {
+        List<String> parsed = new ArrayList<>();
+        for (String node : nodes.split("[,\\s]+")) {
+            if (!node.isEmpty()) {
+                parsed.add(node);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * @return Topology of the given nodes, or null if this node is alone
+     * @throws IllegalStateException if nodes are configured without a secret or this node's URL
+     */
+    private static ShardTopology createTopology(List<String> nodes) {
+        if (nodes.isEmpty() || (nodes.size() == 1 && ShardTopology.normalize(nodes.get(0))
+                .equals(ShardTopology.normalize(SELF_NODE)))) {
+            return null;
+        }
+        if (SHARD_SECRET.isEmpty() || SELF_NODE.isEmpty()) {
+            throw new IllegalStateException(
+                    "betting.shards.secret and betting.shards.self are required when betting.shards.nodes is set");
+        }
+        ShardTopology created = new ShardTopology(nodes, SELF_NODE, SHARD_SECRET, VIRTUAL_NODES);
+        if (created.containsSelf()) {
+            logger.log(Level.INFO, "Sharding bet events over nodes {0}", created.getNodes());
+        } else {
+            logger.log(Level.WARNING, "This node is not in the shard list {0} and forwards every event",
+                    created.getNodes());
+        }
+        return created;
+    }
+
+    /**
+     * Event sizes are computed when scraped, never on the stake path
+     */
+    private void registerMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("betting_bet_events", "Betting events with at least one stake", () -> {
+            long total = 0;
+            for (LocalStakeShard shard : localShards.getNodes()) {
+                total += shard.events.size();
+            }
+            return total;
+        });
+        metrics.gauge("betting_bet_event_customers", "Customers with a stake, summed over all events", () -> {
+            long total = 0;
+            for (LocalStakeShard shard : localShards.getNodes()) {
+                for (BetEvent event : shard.events.values()) {
+                    total += event.getCustomerCount();
+                }
+            }
+            return total;
+        });
+        metrics.gauge("betting_bet_event_customers_max", "Customers with a stake on the largest event", () -> {
+            long max = 0;
+            for (LocalStakeShard shard : localShards.getNodes()) {
+                for (BetEvent event : shard.events.values()) {
+                    max = Math.max(max, event.getCustomerCount());
+                }
+            }
+            return max;
+        });
+        if (ingestor instanceof ShardedStakeIngestor) {
+            ShardedStakeIngestor sharded = (ShardedStakeIngestor) ingestor;
+            metrics.gauge("betting_ingestion_backlog", "Stakes accepted but not yet applied", sharded::getBacklog);
+        }
+        if (journal != null) {
+            metrics.counter("betting_journal_records_total", "Stakes appended to the journal since startup",
+                    journal::getWrittenCount);
+        }
+        if (indexer != null) {
+            metrics.gauge("betting_index_feed_backlog", "Stake changes not yet indexed", changes::getBacklog);
+            metrics.counter("betting_index_feed_dropped_total", "Stake changes dropped by a full feed",
+                    changes::getDroppedCount);
+            metrics.counter("betting_index_rebuilds_total", "Full rebuilds of the cross-event indexes",
+                    indexer::getRebuildCount);
+        }
+    }
+
+    /**
+     * Opens the configured snapshot directory.
+     * <p>
+     * Configuration (system properties):
+     * <ul>
+     *     <li>{@code betting.snapshot.dir} - snapshot directory; snapshots are disabled when unset</li>
+     *     <li>{@code betting.snapshot.intervalSec} - time between snapshots (default 300)</li>
+     *     <li>{@code betting.snapshot.restoreThreads} - events restored in parallel (default: cores)</li>
+     * </ul>
+     */
+    private StakeSnapshotter openSnapshotter() {
+        String dir = ConfigUtil.getString("betting.snapshot.dir", "");
+        if (dir.isEmpty()) {
+            return null;
+        }
+        try {
+            return new StakeSnapshotter(new File(dir));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open snapshot directory " + dir, e);
+        }
+    }
+
+    /**
+     * @return Journal segment to replay from after the snapshot
+     */
+    private long restoreSnapshot() {
+        if (snapshotter == null) {
+            return 0;
+        }
+        try {
+            return snapshotter.restore(this::storeStake,
+                    ConfigUtil.getInt("betting.snapshot.restoreThreads", Runtime.getRuntime().availableProcessors()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot restore stake snapshot", e);
+        }
+    }
+
+    private void scheduleSnapshots() {
+        if (snapshotter == null) {
+            return;
+        }
+        long interval = ConfigUtil.getLong("betting.snapshot.intervalSec", 300);
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stake-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Stake snapshot failed", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes a snapshot of all events without stopping ingestion and drops
+     * the journal segments it covers
+     * @throws IOException if the snapshot or journal roll fails
+     * @throws InterruptedException if interrupted while waiting for pending stakes
+     */
+    public void takeSnapshot() throws IOException, InterruptedException {
+        if (snapshotter == null) {
+            throw new IllegalStateException("Snapshots are disabled");
+        }
+        long journalSegment = 0;
+        if (journal != null) {
+            checkpointLock.writeLock().lock();
+            try {
+                journalSegment = journal.rollSegment();
+            } finally {
+                checkpointLock.writeLock().unlock();
+            }
+        }
+        // Every stake of the older segments has been submitted; make sure it is applied
+        ingestor.flush();
+        snapshotter.write(getLocalEvents(), journalSegment);
+        if (journal != null) {
+            journal.deleteSegmentsBefore(journalSegment);
+        }
+    }
+
+    /**
+     * Opens the configured stake journal and replays it into memory.
+     * <p>
+     * Configuration (system properties):
+     * <ul>
+     *     <li>{@code betting.journal.dir} - journal directory; durability is disabled when unset</li>
+     *     <li>{@code betting.journal.segmentMb} - size of each segment file (default 64)</li>
+     *     <li>{@code betting.journal.durability} - group | async (default group)</li>
+     *     <li>{@code betting.journal.syncIntervalMs} - maximum time between fsyncs (default 5)</li>
+     *     <li>{@code betting.journal.replayThreads} - bet ID partitions replayed in parallel (default: cores)</li>
+     * </ul>
+     */
+    private StakeJournal openJournal(long fromSegment) {
+        String dir = ConfigUtil.getString("betting.journal.dir", "");
+        if (dir.isEmpty()) {
+            return null;
+        }
+        StakeJournal.Durability durability = "async".equalsIgnoreCase(
+                ConfigUtil.getString("betting.journal.durability", "group"))
+                ? StakeJournal.Durability.ASYNC
+                : StakeJournal.Durability.GROUP;
+        try {
+            StakeJournal opened = new StakeJournal(new File(dir),
+                    ConfigUtil.getLong("betting.journal.segmentMb", 64) << 20,
+                    durability,
+                    ConfigUtil.getLong("betting.journal.syncIntervalMs", 5));
+            opened.replay(this::storeStake,
+                    ConfigUtil.getInt("betting.journal.replayThreads", Runtime.getRuntime().availableProcessors()),
+                    fromSegment);
+            logger.log(Level.INFO, "Stake journal enabled in {0} ({1} durability)", new Object[]{dir, durability});
+            return opened;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open stake journal in " + dir, e);
+        }
+    }
+
+    /**
+     * Creates the configured ingestion engine.
+     * <p>
+     * Configuration (system properties):
+     * <ul>
+     *     <li>{@code betting.ingestion} - direct | sharded (default direct)</li>
+     *     <li>{@code betting.ingestion.shards} - shard count (default: cores)</li>
+     *     <li>{@code betting.ingestion.queueCapacity} - stakes buffered per shard (default 65536)</li>
+     *     <li>{@code betting.ingestion.batchSize} - stakes applied per batch (default 256)</li>
+     *     <li>{@code betting.ingestion.offerTimeoutMs} - wait for space in a full shard (default 100)</li>
+     * </ul>
+     */
+    private StakeIngestor createIngestor() {
+        String engine = ConfigUtil.getString("betting.ingestion", "direct");
+        if (!"sharded".equalsIgnoreCase(engine)) {
+            return new DirectStakeIngestor(this::applyStake);
+        }
+        int shards = ConfigUtil.getInt("betting.ingestion.shards", Runtime.getRuntime().availableProcessors());
+        logger.log(Level.INFO, "Using sharded stake ingestion with {0} shards", shards);
+        return new ShardedStakeIngestor(this::applyStake,
+                shards,
+                ConfigUtil.getInt("betting.ingestion.queueCapacity", 65536),
+                ConfigUtil.getInt("betting.ingestion.batchSize", 256),
+                ConfigUtil.getLong("betting.ingestion.offerTimeoutMs", 100));
+    }
+
+    /**
+     * Retries moving events this node no longer owns, e.g. replayed from the
+     * journal after a topology change, until their owners accept them
+     */
+    private void scheduleMigration() {
+        migrationScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shard-migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        migrationScheduler.scheduleWithFixedDelay(() -> {
+            if (topology == null) {
+                return;
+            }
+            try {
+                migrateForeignEvents();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Shard migration failed", e);
+            }
+        }, 5, 30, TimeUnit.SECONDS);
     }
 
     public static StakeService getInstance() {
-        return stakeService;
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Sets how ranking policies are chosen for events created from now on
+     * @param rankingPolicies Maps a bet ID to the ranking policy of its event type
+     */
+    public void setRankingPolicies(IntFunction<RankingPolicy> rankingPolicies) {
+        this.rankingPolicies = rankingPolicies;
+    }
+
+    /**
+     * Sets how leaderboard listeners are chosen for events created from now on
+     * @param leaderboardListeners Maps a bet ID to its listener, or to null
+     */
+    public void setLeaderboardListeners(IntFunction<LeaderboardListener> leaderboardListeners) {
+        this.leaderboardListeners = leaderboardListeners;
+    }
+
+    /**
+     * Sets the leaderboard listener of an event held by this node, if it exists
+     * @param betId Target event ID
+     * @param listener Listener, or null to stop notifications
+     */
+    public void setLeaderboardListener(int betId, LeaderboardListener listener) {
+        BetEvent event = getLocalEvent(betId);
+        if (event != null) {
+            event.setLeaderboardListener(listener);
+        }
+    }
+
+    /**
+     * @param betId Target event ID
+     * @return Base URL of the node owning the event, or null if it is this node
+     */
+    public String getOwnerUrl(int betId) {
+        ShardTopology nodes = topology;
+        RemoteStakeShard owner = nodes == null ? null : nodes.remoteOwnerOf(betId);
+        return owner == null ? null : owner.getBaseUrl();
     }
 
     /**
@@ -35,20 +513,375 @@ public class StakeService {
      * @param betId ID of the betting event
      * @param customerId ID of the customer
      * @param amount Stake amount (must be positive)
+     * @throws IllegalStateException if the journal or ingestion engine cannot accept the stake
      */
     public void recordStake(int betId, int customerId, int amount) {
         if (betId < 0 || customerId < 0 || amount <= 0) {
-            logger.warning("Invalid stake: betId=" + betId
+            if (invalidStakeLog.tryAcquire()) logger.warning("Invalid stake: betId=" + betId
                     + " customer=" + customerId
                     + " amount=" + amount);
+            invalidStakes.increment();
             throw new IllegalArgumentException();
         }
 
-        betEventData.compute(betId, (id, event) -> {
-            if (event == null) event = new BetEvent();
-            event.updateStake(customerId, amount);
-            return event;
-        });
+        ShardTopology nodes = topology;
+        RemoteStakeShard owner = nodes == null ? null : nodes.remoteOwnerOf(betId);
+        if (owner != null) {
+            try {
+                owner.recordStake(betId, customerId, amount);
+            } catch (IllegalStateException e) {
+                unavailableStakes.increment();
+                throw e;
+            }
+            forwardedStakes.increment();
+            return;
+        }
+        recordLocalStake(betId, customerId, amount);
+    }
+
+    /**
+     * Records a validated stake on this node, whichever node owns the event.
+     * Used by the internal shard API for stakes forwarded by other nodes.
+     * @throws IllegalStateException if the journal or ingestion engine cannot accept the stake
+     */
+    public void recordLocalStake(int betId, int customerId, int amount) {
+        long start = System.nanoTime();
+        try {
+            if (!lockedStakePath) {
+                ingestor.submit(betId, customerId, amount);
+            } else {
+                checkpointLock.readLock().lock();
+                try {
+                    if (journal != null) {
+                        journalAndSubmit(betId, customerId, amount);
+                    } else {
+                        ingestor.submit(betId, customerId, amount);
+                    }
+                } finally {
+                    checkpointLock.readLock().unlock();
+                }
+            }
+        } catch (IllegalStateException e) {
+            unavailableStakes.increment();
+            throw e;
+        }
+        recordDuration.recordSince(start);
+    }
+
+    /**
+     * Journals a stake and submits it. Room is reserved first, so a stake
+     * refused by a full ingestion queue is never journaled and cannot come
+     * back on replay after the client was told it failed.
+     */
+    private void journalAndSubmit(int betId, int customerId, int amount) {
+        ingestor.reserve(betId);
+        try {
+            journal.append(betId, customerId, amount);
+        } catch (RuntimeException e) {
+            ingestor.cancelReservation(betId);
+            throw e;
+        }
+        ingestor.submitReserved(betId, customerId, amount);
+    }
+
+    /**
+     * Records a batch of stakes placed by one customer. Items are grouped by
+     * bet ID; since only a customer's highest stake per event is kept, each
+     * group is recorded once with its largest amount. Every pending item
+     * receives the status of its group.
+     * @param customerId ID of the customer
+     * @param batch Parsed stakes; statuses are filled in
+     */
+    public void recordStakeBatch(int customerId, StakeBatch batch) {
+        int size = batch.size();
+        long[] order = new long[size];
+        int pending = 0;
+        for (int i = 0; i < size; i++) {
+            if (batch.getStatus(i) == StakeBatch.PENDING) {
+                order[pending++] = ((long) batch.getBetId(i) << 32) | i;
+            }
+        }
+        Arrays.sort(order, 0, pending);
+
+        for (int start = 0; start < pending; ) {
+            int betId = (int) (order[start] >>> 32);
+            int end = start;
+            int maxAmount = 0;
+            while (end < pending && (int) (order[end] >>> 32) == betId) {
+                maxAmount = Math.max(maxAmount, batch.getAmount((int) order[end]));
+                end++;
+            }
+
+            int status;
+            try {
+                recordStake(betId, customerId, maxAmount);
+                status = 200;
+            } catch (IllegalArgumentException e) {
+                status = 400;
+            } catch (IllegalStateException e) {
+                status = 503;
+            }
+            for (int i = start; i < end; i++) {
+                batch.setStatus((int) order[i], status);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Applies a validated stake to its betting event and publishes a raised
+     * maximum to the indexes
+     */
+    private void applyStake(int betId, int customerId, int amount) {
+        if (storeStake(betId, customerId, amount) && changes != null) {
+            changes.publish(betId, customerId, amount);
+        }
+    }
+
+    /**
+     * Applies a stake without publishing it; recovery indexes all events once afterwards.
+     * If the local shards were resized while the stake was applied, the event
+     * is handed over to its new shard here, so no stake is left in a shard the
+     * resize has already emptied.
+     * @return true if the stake raised the customer's maximum
+     */
+    private boolean storeStake(int betId, int customerId, int amount) {
+        ConsistentHashRing<LocalStakeShard> ring = localShards;
+        LocalStakeShard shard = ring.nodeFor(betId);
+        // Plain get first: no capturing lambda and no bin lock once the event exists
+        BetEvent event = shard.events.get(betId);
+        if (event == null) {
+            event = shard.events.computeIfAbsent(betId, eventFactory);
+        }
+        boolean raised = event.updateStake(customerId, amount);
+
+        ConsistentHashRing<LocalStakeShard> current;
+        while (event != null && (current = localShards) != ring) {
+            // The shards were resized meanwhile and the resize may already be done with this
+            // shard, e.g. the event was created here after it was moved; hand it over as the resize does
+            LocalStakeShard owner = current.nodeFor(betId);
+            if (owner != shard) {
+                handOver(shard, betId, event, owner);
+            }
+            ring = current;
+            shard = owner;
+            event = owner.events.get(betId);
+        }
+        return raised;
+    }
+
+    /**
+     * @return All events held by this node; the shard map itself when there is one shard
+     */
+    private Map<Integer, BetEvent> getLocalEvents() {
+        List<LocalStakeShard> shards = localShards.getNodes();
+        if (shards.size() == 1) {
+            return shards.get(0).events;
+        }
+        Map<Integer, BetEvent> merged = new HashMap<>();
+        for (LocalStakeShard shard : shards) {
+            merged.putAll(shard.events);
+        }
+        return merged;
+    }
+
+    /**
+     * @param betId Target event ID
+     * @return Event held by this node, or null
+     */
+    BetEvent getLocalEvent(int betId) {
+        return localShards.nodeFor(betId).events.get(betId);
+    }
+
+    /**
+     * Drops all events held by this node
+     */
+    void clearLocalEvents() {
+        for (LocalStakeShard shard : localShards.getNodes()) {
+            shard.events.clear();
+        }
+        if (changes != null) {
+            changes.requestRebuild();
+        }
+    }
+
+    /**
+     * @return Number of in-process shards
+     */
+    public int getLocalShardCount() {
+        return localShards.getNodes().size();
+    }
+
+    /**
+     * Changes the number of in-process shards and moves the events whose
+     * owner changed. Readers keep finding every event while it moves.
+     * @param count New shard count
+     * @return Number of events moved
+     * @throws InterruptedException if interrupted while waiting for pending stakes
+     */
+    public int resizeLocalShards(int count) throws InterruptedException {
+        synchronized (rebalanceLock) {
+            List<LocalStakeShard> previous = localShards.getNodes();
+            ConsistentHashRing<LocalStakeShard> resized = createLocalShards(count, previous);
+            switchOwnership(() -> localShards = resized);
+            // Stakes applied with the previous ring hand their event over themselves
+            int moved = moveLocalEvents(previous, resized);
+            logger.log(Level.INFO, "Resized local shards from {0} to {1}, moved {2} events",
+                    new Object[]{previous.size(), resized.getNodes().size(), moved});
+            return moved;
+        }
+    }
+
+    /**
+     * Replaces the node list and hands over events now owned by other nodes.
+     * A list without this node drains it before it is taken out of service.
+     * @param nodes Base URLs of all nodes; empty for a single node
+     * @return Number of events moved to other nodes
+     * @throws InterruptedException if interrupted while waiting for pending stakes
+     * @throws IllegalStateException if no shard secret or URL of this node is configured
+     */
+    public int updateNodes(List<String> nodes) throws InterruptedException {
+        synchronized (rebalanceLock) {
+            ShardTopology updated = createTopology(nodes);
+            switchOwnership(() -> topology = updated);
+            logger.log(Level.INFO, "Shard nodes changed to {0}", updated == null ? nodes : updated.getNodes());
+            return updated == null ? 0 : migrateForeignEvents();
+        }
+    }
+
+    /**
+     * @return Base URLs of all nodes, empty when this node is alone
+     */
+    public List<String> getNodes() {
+        ShardTopology nodes = topology;
+        return nodes == null ? Collections.emptyList() : nodes.getNodes();
+    }
+
+    /**
+     * Applies an ownership change once no stake is between routing and
+     * submission, then waits until every stake routed the old way is applied
+     */
+    private void switchOwnership(Runnable change) throws InterruptedException {
+        checkpointLock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+        ingestor.flush();
+    }
+
+    /**
+     * Moves events held by the given shards to their owner in the ring
+     */
+    private static int moveLocalEvents(List<LocalStakeShard> from, ConsistentHashRing<LocalStakeShard> ring) {
+        int moved = 0;
+        for (LocalStakeShard shard : from) {
+            for (Map.Entry<Integer, BetEvent> entry : shard.events.entrySet()) {
+                LocalStakeShard owner = ring.nodeFor(entry.getKey());
+                if (owner != shard) {
+                    handOver(shard, entry.getKey(), entry.getValue(), owner);
+                    moved++;
+                }
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Moves one event to its owner shard. The event is visible in its new
+     * shard before it leaves the old one; an event created meanwhile in the
+     * new shard absorbs its stakes. Safe to repeat and to run concurrently,
+     * since only a customer's highest stake is kept.
+     */
+    private static void handOver(LocalStakeShard from, int betId, BetEvent event, LocalStakeShard owner) {
+        BetEvent existing = owner.events.putIfAbsent(betId, event);
+        from.events.remove(betId, event);
+        if (existing != null && existing != event) {
+            StakeColumns stakes = event.exportStakes();
+            for (int i = 0; i < stakes.size(); i++) {
+                existing.updateStake(stakes.getCustomerId(i), stakes.getAmount(i));
+            }
+        }
+    }
+
+    /**
+     * Sends events owned by other nodes to their owner and drops them here.
+     * An event whose owner cannot be reached is put back and retried later.
+     * @return Number of events moved
+     */
+    int migrateForeignEvents() {
+        ShardTopology nodes = topology;
+        if (nodes == null) {
+            return 0;
+        }
+        int moved = 0;
+        boolean failed = false;
+        for (LocalStakeShard shard : localShards.getNodes()) {
+            for (Map.Entry<Integer, BetEvent> entry : shard.events.entrySet()) {
+                int betId = entry.getKey();
+                RemoteStakeShard owner = nodes.remoteOwnerOf(betId);
+                if (owner == null || !shard.events.remove(betId, entry.getValue())) {
+                    continue;
+                }
+                try {
+                    owner.importStakes(betId, entry.getValue().exportStakes());
+                    moved++;
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Cannot move bet " + betId + " to its owner, keeping it", e);
+                    StakeColumns stakes = entry.getValue().exportStakes();
+                    for (int i = 0; i < stakes.size(); i++) {
+                        applyStake(betId, stakes.getCustomerId(i), stakes.getAmount(i));
+                    }
+                    failed = true;
+                    break;
+                }
+            }
+            if (failed) {
+                // The owner is probably down; the next pass retries the rest
+                break;
+            }
+        }
+        if (moved > 0) {
+            if (changes != null) {
+                changes.requestRebuild();
+            }
+            logger.log(Level.INFO, "Moved {0} events to other shard nodes", moved);
+        }
+        return moved;
+    }
+
+    /**
+     * Waits until every accepted stake is visible to readers
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        ingestor.flush();
+    }
+
+    /**
+     * Applies outstanding stakes, stops the ingestion engine, writes a final
+     * snapshot and syncs the journal
+     */
+    public void shutdown() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        migrationScheduler.shutdownNow();
+        if (indexer != null) {
+            indexer.shutdown();
+        }
+        ingestor.shutdown();
+        if (snapshotter != null) {
+            try {
+                takeSnapshot();
+            } catch (IOException | InterruptedException e) {
+                logger.log(Level.SEVERE, "Final stake snapshot failed", e);
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
     }
 
     /**
@@ -58,21 +891,115 @@ public class StakeService {
      *         or message if no stakes exist
      */
     public String getTop20Stakes(int betId) {
-        BetEvent event = betEventData.get(betId);
-        if (event == null) return "No stakes for bet ID: " + betId;
+        LeaderboardSnapshot snapshot = getTop20Snapshot(betId);
+        if (snapshot == null) return noStakesMessage(betId);
 
-        List<Map.Entry<Integer, Integer>> entries = event.getTop20();
-        return formatEntries(entries);
+        return snapshot.toString();
     }
 
     /**
-     * Formats stake entries to string
-     * @param entries List of customer-amount pairs
-     * @return Comma-separated "customerId=amount" values
+     * Gets the cached top 20 ranking of a betting event, asking the owning
+     * node when the event lives elsewhere
+     * @param betId Target event ID
+     * @return Snapshot with pre-encoded response body, or null if no stakes exist
+     * @throws IllegalStateException if the owning node cannot be reached
+     */
+    public LeaderboardSnapshot getTop20Snapshot(int betId) {
+        ShardTopology nodes = topology;
+        RemoteStakeShard owner = nodes == null ? null : nodes.remoteOwnerOf(betId);
+        return owner != null ? owner.getTop20Snapshot(betId) : getLocalTop20Snapshot(betId);
+    }
+
+    /**
+     * Gets the top 20 ranking held by this node, whichever node owns the event
+     * @param betId Target event ID
+     * @return Snapshot, or null if this node holds no stakes for the event
+     */
+    public LeaderboardSnapshot getLocalTop20Snapshot(int betId) {
+        BetEvent event = getLocalEvent(betId);
+        return event == null ? null : event.getTop20Snapshot();
+    }
+
+    /**
+     * Gets the highest stakes across all events of all nodes
+     * @return Up to K (event, customer) maximums, largest first
+     * @throws IllegalStateException if the indexes are disabled or a node cannot be reached
+     */
+    public List<RankedStake> getTopStakes() {
+        List<RankedStake> merged = new ArrayList<>(getLocalTopStakes());
+        ShardTopology nodes = topology;
+        if (nodes == null) {
+            return merged;
+        }
+        for (RemoteStakeShard remote : nodes.getRemotes()) {
+            merged.addAll(remote.getTopStakes());
+        }
+        merged.sort(RankedStake.BY_AMOUNT_DESC);
+        int limit = indexer.getLeaderboard().getCapacity();
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    /**
+     * Gets the highest stakes across the events held by this node
+     * @return Up to K (event, customer) maximums, largest first
+     * @throws IllegalStateException if the indexes are disabled
+     */
+    public List<RankedStake> getLocalTopStakes() {
+        return requireIndexer().getLeaderboard().getTop();
+    }
+
+    /**
+     * Gets a customer's highest stake on every event of all nodes
+     * @param customerId ID of the customer
+     * @return One entry per event, ordered by bet ID
+     * @throws IllegalStateException if the indexes are disabled or a node cannot be reached
+     */
+    public List<RankedStake> getCustomerStakes(int customerId) {
+        List<RankedStake> stakes = getLocalCustomerStakes(customerId);
+        ShardTopology nodes = topology;
+        if (nodes == null) {
+            return stakes;
+        }
+        List<RankedStake> merged = new ArrayList<>(stakes);
+        for (RemoteStakeShard remote : nodes.getRemotes()) {
+            merged.addAll(remote.getCustomerStakes(customerId));
+        }
+        merged.sort(RankedStake.BY_BET_ID);
+        return merged;
+    }
+
+    /**
+     * Gets a customer's highest stake on every event held by this node
+     * @param customerId ID of the customer
+     * @return One entry per event, ordered by bet ID
+     * @throws IllegalStateException if the indexes are disabled
+     */
+    public List<RankedStake> getLocalCustomerStakes(int customerId) {
+        return requireIndexer().getCustomers().getStakes(customerId);
+    }
+
+    private StakeIndexer requireIndexer() {
+        if (indexer == null) {
+            throw new IllegalStateException("Stake indexes are disabled");
+        }
+        return indexer;
+    }
+
+    /**
+     * @param betId Target event ID
+     * @return Message returned for events without stakes
+     */
+    public static String noStakesMessage(int betId) {
+        return "No stakes for bet ID: " + betId;
+    }
+
+    /**
+     * Writes the no-stakes message without building a String
+     * @param buffer Receives the message
+     * @param betId Target event ID
+     * @return The buffer
      */
-    private String formatEntries(List<Map.Entry<Integer, Integer>> entries) {
-        return entries.stream()
-                .map(e -> e.getKey() + "=" + e.getValue())
-                .collect(Collectors.joining(","));
+    public static AsciiBuffer writeNoStakesMessage(AsciiBuffer buffer, int betId) {
+        return buffer.append(NO_STAKES_PREFIX).appendInt(betId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.betbrain.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer for building ASCII response bodies.
+ * <p>
+ * Numbers are written as digits straight into the buffer, without going
+ * through String or StringBuilder. Each thread can reuse one instance via
+ * {@link #forThread()}; callers must finish with it before handing the
+ * thread to other code that might use it.
+ */
+public class AsciiBuffer {
+
+    private static final ThreadLocal<AsciiBuffer> THREAD_BUFFER = ThreadLocal.withInitial(() -> new AsciiBuffer(256));
+    private static final byte[] MIN_INT = HttpUtil.encode(String.valueOf(Integer.MIN_VALUE));
+
+    private byte[] bytes;
+    private int length;
+
+    /**
+     * @param initialCapacity Initial size of the backing array
+     */
+    public AsciiBuffer(int initialCapacity) {
+        bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * @return This thread's buffer, emptied
+     */
+    public static AsciiBuffer forThread() {
+        AsciiBuffer buffer = THREAD_BUFFER.get();
+        buffer.length = 0;
+        return buffer;
+    }
+
+    /**
+     * @param b ASCII character to append
+     * @return This buffer
+     */
+    public AsciiBuffer append(char b) {
+        ensureCapacity(1);
+        bytes[length++] = (byte) b;
+        return this;
+    }
+
+    /**
+     * @param data Pre-encoded bytes to append
+     * @return This buffer
+     */
+    public AsciiBuffer append(byte[] data) {
+        ensureCapacity(data.length);
+        System.arraycopy(data, 0, bytes, length, data.length);
+        length += data.length;
+        return this;
+    }
+
+    /**
+     * Appends the decimal digits of a number
+     * @param value Number to append
+     * @return This buffer
+     */
+    public AsciiBuffer appendInt(int value) {
+        if (value == Integer.MIN_VALUE) {
+            return append(MIN_INT);
+        }
+        ensureCapacity(11);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int position = length + digits;
+        length = position;
+        do {
+            bytes[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return this;
+    }
+
+    /**
+     * @return Number of bytes written
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return Backing array; only the first length() bytes are valid
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    /**
+     * @return Copy of the written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * @param out Stream receiving the written bytes
+     * @throws IOException if writing fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length << 1));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.betbrain.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Handler;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * java.util.logging handler that hands records to a background thread.
+ * <p>
+ * Request threads only enqueue into a bounded ring buffer and never block:
+ * when the buffer is full the record is dropped and counted. The writer
+ * thread publishes to the wrapped handlers (e.g. the console handler), so
+ * their locks and I/O stay off the request path.
+ * <p>
+ * Configuration (system properties):
+ * <ul>
+ *     <li>{@code betting.log.async} - enable asynchronous logging (default true)</li>
+ *     <li>{@code betting.log.queueCapacity} - buffered records (default 8192)</li>
+ * </ul>
+ */
+public class AsyncLogHandler extends Handler {
+
+    private static final LongAdder dropped = new LongAdder();
+
+    private final Handler[] delegates;
+    private final BlockingQueue<LogRecord> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * @param delegates Handlers that receive the records on the writer thread
+     * @param capacity Maximum number of buffered records
+     */
+    public AsyncLogHandler(Handler[] delegates, int capacity) {
+        this.delegates = delegates.clone();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drain, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Moves the root logger's handlers behind an asynchronous handler, unless disabled
+     * @return The installed handler, or null if asynchronous logging is disabled
+     */
+    public static AsyncLogHandler install() {
+        if (!ConfigUtil.getBoolean("betting.log.async", true)) {
+            return null;
+        }
+        Logger root = LogManager.getLogManager().getLogger("");
+        Handler[] handlers = root.getHandlers();
+        for (Handler handler : handlers) {
+            if (handler instanceof AsyncLogHandler) {
+                return (AsyncLogHandler) handler;
+            }
+        }
+        AsyncLogHandler async = new AsyncLogHandler(handlers, ConfigUtil.getInt("betting.log.queueCapacity", 8192));
+        for (Handler handler : handlers) {
+            root.removeHandler(handler);
+        }
+        root.addHandler(async);
+        return async;
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        // Report the logger as source instead of walking the stack on the writer thread
+        if (record.getSourceClassName() == null) {
+            record.setSourceClassName(record.getLoggerName());
+        }
+        if (!queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                LogRecord record = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    for (Handler delegate : delegates) {
+                        delegate.publish(record);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                reportError("Log delegate failed", e, 0);
+            }
+        }
+    }
+
+    /**
+     * @return Records dropped because the buffer was full, across all instances
+     */
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return Records waiting to be written
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Waits until buffered records are handed to the delegates, then flushes them
+     */
+    @Override
+    public void flush() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!queue.isEmpty() && writer.isAlive() && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        for (Handler delegate : delegates) {
+            delegate.flush();
+        }
+    }
+
+    /**
+     * Writes the remaining records and closes the delegates
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler delegate : delegates) {
+            delegate.close();
+        }
+    }
+}
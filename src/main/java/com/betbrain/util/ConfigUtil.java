@@ -0,0 +1,71 @@
+package com.betbrain.util;
+
+import java.util.logging.Logger;
+
+/**
+ * Reads server configuration from JVM system properties (-Dname=value)
+ */
+public class ConfigUtil {
+
+    private static final Logger logger = Logger.getLogger(ConfigUtil.class.getName());
+
+    /**
+     * Reads a string property
+     * @param name Property name
+     * @param defaultValue Value used when the property is not set
+     * @return Configured or default value
+     */
+    public static String getString(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Reads an integer property, falling back to the default on malformed values
+     * @param name Property name
+     * @param defaultValue Value used when the property is missing or invalid
+     * @return Configured or default value
+     */
+    public static int getInt(String name, int defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid integer for " + name + ", using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Reads a long property, falling back to the default on malformed values
+     * @param name Property name
+     * @param defaultValue Value used when the property is missing or invalid
+     * @return Configured or default value
+     */
+    public static long getLong(String name, long defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid long for " + name + ", using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Reads a boolean property
+     * @param name Property name
+     * @param defaultValue Value used when the property is not set
+     * @return Configured or default value
+     */
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,94 @@
+package com.betbrain.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Immutable consistent hash ring mapping int keys to nodes.
+ * <p>
+ * Every node is placed on the ring at a number of pseudo-random points
+ * derived from its {@code toString()}; a key belongs to the node owning the
+ * first point at or after the key's hash. Adding or removing one of n nodes
+ * therefore moves only about 1/n of the keys, all of them to or from that node.
+ * Lookups are a binary search over a sorted int array.
+ *
+ * @param <T> Node type, identified by its string form
+ */
+public class ConsistentHashRing<T> {
+
+    private final List<T> nodes;
+    private final int[] points;
+    private final int[] owners;
+
+    /**
+     * @param nodes Distinct nodes, at least one
+     * @param virtualNodes Points placed on the ring per node
+     * @throws IllegalArgumentException if there are no nodes or two nodes share a name
+     */
+    public ConsistentHashRing(List<T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring needs at least one node");
+        }
+        if (new HashSet<>(nodes).size() != nodes.size()) {
+            throw new IllegalArgumentException("Duplicate node in hash ring: " + nodes);
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        int replicas = Math.max(1, virtualNodes);
+        long[] placed = new long[nodes.size() * replicas];
+        int count = 0;
+        for (int node = 0; node < nodes.size(); node++) {
+            int seed = mix(String.valueOf(nodes.get(node)).hashCode());
+            for (int replica = 0; replica < replicas; replica++) {
+                // Hash in the high half so sorting orders by point, ties broken by node index
+                placed[count++] = ((long) mix(seed + replica * 0x9E3779B9) << 32) | node;
+            }
+        }
+        Arrays.sort(placed);
+        points = new int[count];
+        owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = (int) (placed[i] >> 32);
+            owners[i] = (int) placed[i];
+        }
+    }
+
+    /**
+     * @param key Key to place, e.g. a bet ID
+     * @return Node owning the key
+     */
+    public T nodeFor(int key) {
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+        int pos = Arrays.binarySearch(points, mix(key));
+        if (pos < 0) {
+            pos = -pos - 1;
+            if (pos == points.length) {
+                pos = 0;
+            }
+        }
+        return nodes.get(owners[pos]);
+    }
+
+    /**
+     * @return Nodes in the order given at construction
+     */
+    public List<T> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Murmur3 finalizer, spreads consecutive keys over the whole ring
+     */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -15,10 +15,41 @@ public class HttpUtil {
     public static final int UNAUTHORIZED = 401;
     public static final int NOT_FOUND_CODE = 404;
     public static final int INTERNAL_SERVER_ERROR = 500;
+    public static final int NOT_IMPLEMENTED = 501;
     public static final int SERVICE_UNAVAILABLE = 503;
 
+    /**
+     * Header carrying the shared secret on requests between shard nodes
+     */
+    public static final String HEADER_SHARD_SECRET = "X-Shard-Secret";
+
+    /**
+     * Header carrying the ranking version of a forwarded leaderboard
+     */
+    public static final String HEADER_LEADERBOARD_VERSION = "X-Leaderboard-Version";
+
     public static final String ERROR_MESSAGE_INTERNAL_SERVER_ERROR = "Server is currently unavailable. Please try again later.";
 
+    /**
+     * Pre-encoded bodies of fixed responses, shared by all requests; must not be modified
+     */
+    public static final byte[] MESSAGE_OVERLOADED = encode(ERROR_MESSAGE_INTERNAL_SERVER_ERROR);
+    public static final byte[] MESSAGE_AUTHENTICATION_FAILED = encode("Authentication failed");
+    public static final byte[] MESSAGE_SERVICE_UNAVAILABLE = encode("Service unavailable");
+    public static final byte[] MESSAGE_INTERNAL_SERVER_ERROR = encode("Internal server error");
+    public static final byte[] MESSAGE_INVALID_BET_ID = encode("Invalid bet ID format");
+    public static final byte[] MESSAGE_INVALID_CUSTOMER_ID = encode("Invalid customer ID format");
+    public static final byte[] MESSAGE_SHUTTING_DOWN = encode("Service Unavailable - Server is shutting down");
+
+    /**
+     * Encodes a fixed message once, typically into a constant
+     * @param message Message text
+     * @return UTF-8 bytes
+     */
+    public static byte[] encode(String message) {
+        return message.getBytes(StandardCharsets.UTF_8);
+    }
+
     /**
      * Sends HTTP response with specified status and content
      *
@@ -27,16 +58,66 @@ public class HttpUtil {
      * @param content    Response body content
      */
     public static void sendResponse(HttpExchange exchange, int statusCode, String content) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
-        boolean hasContent = content != null && !content.isEmpty();
-        if (hasContent) {
-            byte[] responseBytes = content.getBytes(StandardCharsets.UTF_8);
-            exchange.sendResponseHeaders(statusCode, responseBytes.length);
+        sendResponse(exchange, statusCode, content == null ? null : encode(content));
+    }
+
+    /**
+     * Sends HTTP response with pre-encoded content
+     *
+     * @param exchange      HTTP exchange object
+     * @param statusCode    HTTP response code
+     * @param responseBytes UTF-8 encoded response body, null or empty for no body
+     */
+    public static void sendResponse(HttpExchange exchange, int statusCode, byte[] responseBytes) throws IOException {
+        sendResponse(exchange, statusCode, responseBytes, responseBytes == null ? 0 : responseBytes.length);
+    }
+
+    /**
+     * Sends the bytes written to a buffer, e.g. this thread's {@link AsciiBuffer}
+     *
+     * @param exchange   HTTP exchange object
+     * @param statusCode HTTP response code
+     * @param buffer     Response body
+     */
+    public static void sendResponse(HttpExchange exchange, int statusCode, AsciiBuffer buffer) throws IOException {
+        sendResponse(exchange, statusCode, buffer.array(), buffer.length());
+    }
+
+    /**
+     * Sends HTTP response with the first length bytes of an array as body
+     *
+     * @param exchange      HTTP exchange object
+     * @param statusCode    HTTP response code
+     * @param responseBytes Encoded response body
+     * @param length        Number of bytes to send, 0 for no body
+     */
+    public static void sendResponse(HttpExchange exchange, int statusCode, byte[] responseBytes, int length)
+            throws IOException {
+        if (length > 0) {
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(statusCode, length);
             try (OutputStream os = exchange.getResponseBody()) {
-                os.write(responseBytes);
+                os.write(responseBytes, 0, length);
             }
         } else {
+            // No body, so no Content-Type header to allocate
             exchange.sendResponseHeaders(statusCode, -1);
         }
     }
+
+    /**
+     * Starts a chunked response for bodies that are produced incrementally or
+     * are too large to buffer. The caller writes the body and closes the stream.
+     *
+     * @param exchange    HTTP exchange object
+     * @param statusCode  HTTP response code
+     * @param contentType Content-Type header value
+     * @return Stream receiving the response body
+     */
+    public static OutputStream startStreamingResponse(HttpExchange exchange, int statusCode, String contentType)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(statusCode, 0);
+        return exchange.getResponseBody();
+    }
 }
@@ -0,0 +1,147 @@
+package com.betbrain.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int to int hash map with linear probing.
+ * <p>
+ * Keys and values are stored in plain int arrays, so neither lookups nor
+ * updates box. Entries cannot be removed. Not thread-safe: callers guard
+ * access themselves (e.g. by lock striping).
+ */
+public class IntIntHashMap {
+
+    private static final int EMPTY_KEY = Integer.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Creates an empty map
+     * @param initialCapacity Expected number of entries
+     * @param missingValue Value returned by get for absent keys
+     */
+    public IntIntHashMap(int initialCapacity, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(tableSizeFor((int) (Math.max(2, initialCapacity) / LOAD_FACTOR) + 1));
+    }
+
+    /**
+     * @param key Key to look up (must not be Integer.MIN_VALUE)
+     * @return Mapped value, or the configured missing value if absent
+     */
+    public int get(int key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            int existing = keys[index];
+            if (existing == key) {
+                return values[index];
+            }
+            if (existing == EMPTY_KEY) {
+                return missingValue;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value
+     * @param key Key (must not be Integer.MIN_VALUE)
+     * @param value Value to store
+     * @throws IllegalArgumentException for the reserved key
+     */
+    public void put(int key, int value) {
+        if (key == EMPTY_KEY) {
+            throw new IllegalArgumentException("Reserved key: " + key);
+        }
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            int existing = keys[index];
+            if (existing == key) {
+                values[index] = value;
+                return;
+            }
+            if (existing == EMPTY_KEY) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size > resizeThreshold) {
+                    rehash();
+                }
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @return Number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies all entries into parallel arrays
+     * @param keysOut Receives the keys
+     * @param valuesOut Receives the values at the same positions
+     * @param offset First position written
+     * @return Position after the last entry written
+     */
+    public int copyTo(int[] keysOut, int[] valuesOut, int offset) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) {
+                keysOut[offset] = keys[i];
+                valuesOut[offset++] = values[i];
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * @return Approximate heap used by the backing arrays in bytes
+     */
+    public long backingBytes() {
+        return 4L * (keys.length + values.length);
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                int index = hash(key) & mask;
+                while (keys[index] != EMPTY_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        int highest = Integer.highestOneBit(n);
+        return highest == n ? n : highest << 1;
+    }
+}
@@ -0,0 +1,87 @@
+package com.betbrain.util;
+
+import com.betbrain.metrics.MetricsRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many messages of one category are logged per second, so floods
+ * such as failed authentications cannot swamp the log. Messages over the
+ * limit are only counted.
+ * <p>
+ * The limit of a category is read from {@code betting.log.rate.<category>}.
+ * Classes logging the same category share one limiter, see {@link #forCategory}.
+ */
+public class LogRateLimiter {
+
+    private static final ConcurrentHashMap<String, LogRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final String category;
+    private final int perSecond;
+
+    /**
+     * Second of the current window in the high 32 bits, messages admitted in it in the low 32 bits
+     */
+    private final AtomicLong window = new AtomicLong();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * Gets the limiter of a category, creating it on first use
+     * @param category Category name, e.g. "auth-failure"
+     * @param defaultPerSecond Messages per second allowed unless configured otherwise; the first caller's value wins
+     * @return Limiter shared by every caller of the category
+     */
+    public static LogRateLimiter forCategory(String category, int defaultPerSecond) {
+        return limiters.computeIfAbsent(category, name -> new LogRateLimiter(name, defaultPerSecond));
+    }
+
+    /**
+     * @param category Category name, e.g. "auth-failure"
+     * @param defaultPerSecond Messages per second allowed unless configured otherwise
+     */
+    LogRateLimiter(String category, int defaultPerSecond) {
+        this.category = category;
+        this.perSecond = Math.max(0, ConfigUtil.getInt("betting.log.rate." + category, defaultPerSecond));
+        MetricsRegistry.getInstance().counter("betting_log_suppressed_total",
+                "Log messages dropped by rate limits", "category", category, suppressed::sum);
+    }
+
+    /**
+     * Checks whether a message of this category may be logged now
+     * @return true if under the limit, false if the message should be dropped
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.currentTimeMillis());
+    }
+
+    boolean tryAcquire(long nowMillis) {
+        long second = nowMillis / 1000;
+        while (true) {
+            long current = window.get();
+            long count = (current >>> 32) == second ? current & 0xFFFFFFFFL : 0;
+            if (count >= perSecond) {
+                suppressed.increment();
+                return false;
+            }
+            if (window.compareAndSet(current, (second << 32) | (count + 1))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Category name
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return Messages dropped by this limiter so far
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+}
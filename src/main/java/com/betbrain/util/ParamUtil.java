@@ -1,109 +1,201 @@
 package com.betbrain.util;
 
+import com.betbrain.model.StakeBatch;
 import com.sun.net.httpserver.HttpExchange;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 public class ParamUtil {
 
+    private static final String SESSION_KEY_PARAM = "sessionkey=";
 
     /**
-     * Extracts bet ID from request path
-     * @param exchange HTTP exchange object
-     * @return Validated bet ID
-     * @throws IllegalArgumentException for invalid ID formats
+     * Longest accepted single-stake body: ten digits plus surrounding whitespace
      */
-    public static int parseBetIdFromPath(HttpExchange exchange) throws IllegalArgumentException {
-        String[] pathSegments = exchange.getRequestURI().getPath().split("/");
+    private static final int MAX_STAKE_BODY_BYTES = 64;
+    private static final int MAX_BATCH_BODY_BYTES = ConfigUtil.getInt("betting.batch.maxBodyBytes", 1 << 20);
 
-        if (pathSegments.length < 2) {
-            throw new IllegalArgumentException("Missing bet ID in path");
-        }
+    /**
+     * Per-thread read buffer shared by the body parsers
+     */
+    private static final ThreadLocal<byte[]> READ_BUFFER = ThreadLocal.withInitial(() -> new byte[4096]);
 
-        try {
-            return Integer.parseUnsignedInt(pathSegments[1]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid bet ID format", e);
-        }
+    /**
+     * Extracts session key from request
+     *
+     * @param exchange HTTP exchange object
+     * @return session key
+     * @throws IllegalArgumentException for invalid session key formats
+     */
+    public static String extractSessionKey(HttpExchange exchange) {
+        return extractSessionKey(exchange.getRequestURI().getRawQuery());
     }
 
-    public static int parseBetIdFromPath(String path) {
-        String[] segments = path.split("/");
-        if (segments.length < 3) {
-            throw new IllegalArgumentException("Invalid path format");
-        }
-
-        try {
-            return Integer.parseUnsignedInt(segments[1]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid bet ID format");
+    /**
+     * Finds the sessionkey parameter in a query string without splitting it
+     *
+     * @param query Raw query string, may be null
+     * @return session key
+     * @throws IllegalArgumentException if the parameter is missing or empty
+     */
+    public static String extractSessionKey(String query) {
+        if (query != null) {
+            int start = 0;
+            while (start < query.length()) {
+                int end = query.indexOf('&', start);
+                if (end < 0) {
+                    end = query.length();
+                }
+                if (query.startsWith(SESSION_KEY_PARAM, start) && end > start + SESSION_KEY_PARAM.length()) {
+                    return query.substring(start + SESSION_KEY_PARAM.length(), end);
+                }
+                start = end + 1;
+            }
         }
+        throw new IllegalArgumentException("Missing session key");
     }
 
     /**
-     * Extracts customer ID from request path
+     * read stake amount from request body
      *
      * @param exchange HTTP exchange object
-     * @return Validated customer ID
-     * @throws IllegalArgumentException for invalid ID formats
+     * @return stake amount
+     * @throws IllegalArgumentException for invalid stake amount
      */
-    public static int extractCustomerId(HttpExchange exchange) throws IllegalArgumentException {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathSegments = path.split("/");
-
-        if (pathSegments.length < 2) {
-            throw new IllegalArgumentException("Missing customer ID in path");
+    public static int readStakeAmount(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            return readStakeAmount(is);
         }
+    }
 
-        try {
-            int customerId = Integer.parseInt(pathSegments[1]);
-            if (customerId < 0) {
-                throw new IllegalArgumentException("Customer ID cannot be negative");
+    /**
+     * Parses ASCII digits straight from a stream into an int. Leading and
+     * trailing whitespace is allowed; anything else, an overflow or a body
+     * longer than 64 bytes is rejected as soon as it is seen.
+     *
+     * @param is Request body
+     * @return stake amount
+     * @throws IllegalArgumentException for invalid stake amount
+     */
+    public static int readStakeAmount(InputStream is) throws IOException {
+        byte[] data = READ_BUFFER.get();
+        long value = 0;
+        int digits = 0;
+        boolean trailing = false;
+        int total = 0;
+        int bytesRead;
+        while ((bytesRead = is.read(data, 0, Math.min(data.length, MAX_STAKE_BODY_BYTES + 1 - total))) > 0) {
+            total += bytesRead;
+            if (total > MAX_STAKE_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            for (int i = 0; i < bytesRead; i++) {
+                int b = data[i];
+                if (b >= '0' && b <= '9' && !trailing) {
+                    value = value * 10 + (b - '0');
+                    if (value > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("Invalid stake amount format");
+                    }
+                    digits++;
+                } else if (b >= 0 && b <= ' ') {
+                    trailing = digits > 0;
+                } else {
+                    throw new IllegalArgumentException("Invalid stake amount format");
+                }
             }
-            return customerId;
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid customer ID format", e);
         }
+        if (digits == 0) {
+            throw new IllegalArgumentException("Invalid stake amount format");
+        }
+        return (int) value;
     }
 
     /**
-     * Extracts session key from request
+     * Reads a batch of stakes, one "betId,amount" line each. Malformed lines
+     * are kept as items with status 400 so statuses line up with the request.
      *
      * @param exchange HTTP exchange object
-     * @return session key
-     * @throws IllegalArgumentException for invalid session key formats
+     * @param maxItems Maximum number of items accepted
+     * @return Parsed batch
+     * @throws IllegalArgumentException if the batch is empty or too large
      */
-    public static String extractSessionKey(HttpExchange exchange) {
-        String query = exchange.getRequestURI().getQuery();
-        if (query == null || !query.startsWith("sessionkey=")) {
-            throw new IllegalArgumentException("Missing session key");
+    public static StakeBatch readStakeBatch(HttpExchange exchange, int maxItems) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            return readStakeBatch(is, maxItems);
         }
-        return query.substring("sessionkey=".length());
     }
 
     /**
-     * read stake amount from request body
+     * Parses a batch of "betId,amount" lines from a stream in a single pass
+     * over a per-thread buffer
      *
-     * @param exchange HTTP exchange object
-     * @return stake amount
-     * @throws IllegalArgumentException for invalid stake amount
+     * @param is Request body
+     * @param maxItems Maximum number of items accepted
+     * @return Parsed batch
+     * @throws IllegalArgumentException if the batch is empty, has too many items or exceeds the body size limit
      */
-    public static int readStakeAmount(HttpExchange exchange) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        try (InputStream is = exchange.getRequestBody()) {
-            byte[] data = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = is.read(data, 0, data.length)) != -1) {
-                buffer.write(data, 0, bytesRead);
+    public static StakeBatch readStakeBatch(InputStream is, int maxItems) throws IOException {
+        StakeBatch batch = new StakeBatch(64);
+        byte[] data = READ_BUFFER.get();
+        long total = 0;
+        int field = 0;
+        long betId = 0;
+        long value = 0;
+        int digits = 0;
+        boolean blank = true;
+        boolean malformed = false;
+        int bytesRead;
+        do {
+            bytesRead = is.read(data, 0, data.length);
+            total += Math.max(0, bytesRead);
+            if (total > MAX_BATCH_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
             }
+            int end = bytesRead == -1 ? 1 : bytesRead;
+            for (int i = 0; i < end; i++) {
+                int b = bytesRead == -1 ? '\n' : data[i];
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    if (value > Integer.MAX_VALUE) {
+                        malformed = true;
+                        value = 0;
+                    }
+                    digits++;
+                    blank = false;
+                } else if (b == ',') {
+                    malformed |= field != 0 || digits == 0;
+                    betId = value;
+                    field = 1;
+                    value = 0;
+                    digits = 0;
+                    blank = false;
+                } else if (b == '\n') {
+                    if (!blank) {
+                        if (batch.size() == maxItems) {
+                            throw new IllegalArgumentException("Too many stakes in batch");
+                        }
+                        if (malformed || field != 1 || digits == 0 || value == 0) {
+                            batch.reject(HttpUtil.BAD_REQUEST);
+                        } else {
+                            batch.add((int) betId, (int) value);
+                        }
+                    }
+                    field = 0;
+                    value = 0;
+                    digits = 0;
+                    blank = true;
+                    malformed = false;
+                } else if (b != ' ' && b != '\t' && b != '\r') {
+                    malformed = true;
+                    blank = false;
+                }
+            }
+        } while (bytesRead != -1);
 
-            String amountStr = buffer.toString("UTF-8").trim();
-            return Integer.parseUnsignedInt(amountStr);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid stake amount format");
+        if (batch.size() == 0) {
+            throw new IllegalArgumentException("Empty stake batch");
         }
+        return batch;
     }
-
 }
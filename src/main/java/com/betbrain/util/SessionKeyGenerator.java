@@ -1,15 +1,46 @@
 package com.betbrain.util;
 
 import java.security.SecureRandom;
-import java.util.Objects;
 
 /**
- * Generates cryptographically-secure random session keys
+ * Generates cryptographically-secure random session keys.
+ * <p>
+ * Each thread owns a SecureRandom and draws random bytes from it in bulk, so
+ * concurrent logins do not serialize on one generator. Bytes are mapped to
+ * the 36-symbol alphabet by rejection sampling (values at or above 252, the
+ * largest multiple of 36, are skipped), which keeps every symbol equally
+ * likely. Keys are built in a per-thread char array.
  */
 public class SessionKeyGenerator {
-    private static final String CHARACTER_POOL = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final char[] CHARACTER_POOL = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
     private static final int DEFAULT_KEY_LENGTH = 7;
-    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int ACCEPT_LIMIT = 256 - 256 % CHARACTER_POOL.length;
+    private static final int ENTROPY_BYTES = 256;
+
+    private static final ThreadLocal<Entropy> ENTROPY = ThreadLocal.withInitial(Entropy::new);
+
+    /**
+     * Per-thread random source and buffers
+     */
+    private static final class Entropy {
+        private final SecureRandom random = new SecureRandom();
+        private final byte[] bytes = new byte[ENTROPY_BYTES];
+        private int position = ENTROPY_BYTES;
+        private char[] chars = new char[DEFAULT_KEY_LENGTH];
+
+        private int nextSymbol() {
+            while (true) {
+                if (position == ENTROPY_BYTES) {
+                    random.nextBytes(bytes);
+                    position = 0;
+                }
+                int value = bytes[position++] & 0xFF;
+                if (value < ACCEPT_LIMIT) {
+                    return value % CHARACTER_POOL.length;
+                }
+            }
+        }
+    }
 
     /**
      * Generates a random session key with default length
@@ -30,10 +61,15 @@ public class SessionKeyGenerator {
             throw new IllegalArgumentException("Key length must be positive");
         }
 
-        return RANDOM.ints(length, 0, CHARACTER_POOL.length())
-                .mapToObj(CHARACTER_POOL::charAt)
-                .collect(StringBuilder::new, StringBuilder::append, StringBuilder::append)
-                .toString();
+        Entropy entropy = ENTROPY.get();
+        if (entropy.chars.length < length) {
+            entropy.chars = new char[length];
+        }
+        char[] chars = entropy.chars;
+        for (int i = 0; i < length; i++) {
+            chars[i] = CHARACTER_POOL[entropy.nextSymbol()];
+        }
+        return new String(chars, 0, length);
     }
 
-}
\ No newline at end of file
+}
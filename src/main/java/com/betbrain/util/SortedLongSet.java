@@ -0,0 +1,205 @@
+package com.betbrain.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ordered set of primitive longs stored in sorted blocks.
+ * <p>
+ * Each block is a sorted long array of bounded size, and the blocks are kept
+ * in ascending order, so an insert or removal costs a binary search plus one
+ * bounded array copy, and iteration from the largest element is sequential.
+ * <p>
+ * Block arrays grow on demand, full blocks are split in half and a block that
+ * falls to a quarter full is merged into a neighbour when the result leaves
+ * room, so removals cannot leave long runs of nearly empty blocks. Uses about
+ * 8-16 bytes per element while it grows; removals can leave blocks a quarter
+ * full, which bounds it at about 32. Never boxes. Not thread-safe.
+ */
+public class SortedLongSet {
+
+    private static final int BLOCK_CAPACITY = 512;
+    private static final int INITIAL_BLOCK_CAPACITY = 16;
+    private static final int MERGE_THRESHOLD = BLOCK_CAPACITY / 4;
+    private static final int MERGED_CAPACITY = BLOCK_CAPACITY * 3 / 4;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private int size;
+
+    /**
+     * Adds a value
+     * @param value Value to add
+     * @return true if the value was not present
+     */
+    public boolean add(long value) {
+        if (blocks.isEmpty()) {
+            blocks.add(new Block());
+        }
+        int blockIndex = blockFor(value);
+        Block block = blocks.get(blockIndex);
+        int pos = Arrays.binarySearch(block.values, 0, block.size, value);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (block.size == BLOCK_CAPACITY) {
+            Block upper = block.split();
+            blocks.add(blockIndex + 1, upper);
+            if (pos > block.size) {
+                pos -= block.size;
+                block = upper;
+            }
+        }
+        block.insert(pos, value);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a value
+     * @param value Value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(long value) {
+        if (blocks.isEmpty()) {
+            return false;
+        }
+        int blockIndex = blockFor(value);
+        Block block = blocks.get(blockIndex);
+        int pos = Arrays.binarySearch(block.values, 0, block.size, value);
+        if (pos < 0) {
+            return false;
+        }
+        block.delete(pos);
+        if (block.size == 0 && blocks.size() > 1) {
+            blocks.remove(blockIndex);
+        } else if (block.size <= MERGE_THRESHOLD) {
+            // Merging leaves a quarter of a block free, so the next inserts do not split it again
+            if (!merge(blockIndex) && blockIndex > 0) {
+                merge(blockIndex - 1);
+            }
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the block after the given one into it if both fit in
+     * three quarters of a block
+     * @return true if the blocks were merged
+     */
+    private boolean merge(int lowerIndex) {
+        if (lowerIndex + 1 >= blocks.size()) {
+            return false;
+        }
+        Block lower = blocks.get(lowerIndex);
+        Block upper = blocks.get(lowerIndex + 1);
+        if (lower.size + upper.size > MERGED_CAPACITY) {
+            return false;
+        }
+        lower.append(upper);
+        blocks.remove(lowerIndex + 1);
+        return true;
+    }
+
+    /**
+     * Copies the largest values in descending order
+     * @param out Destination array
+     * @param limit Maximum number of values to copy
+     * @return Number of values copied
+     */
+    public int copyDescending(long[] out, int limit) {
+        int count = 0;
+        for (int b = blocks.size() - 1; b >= 0 && count < limit; b--) {
+            Block block = blocks.get(b);
+            for (int i = block.size - 1; i >= 0 && count < limit; i--) {
+                out[count++] = block.values[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of values in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Approximate heap used by the blocks in bytes
+     */
+    public long backingBytes() {
+        long bytes = 0;
+        for (Block block : blocks) {
+            bytes += 8L * block.values.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Finds the block whose range should hold the value: the last block whose
+     * first element is not greater than the value, or the first block
+     */
+    private int blockFor(long value) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            Block block = blocks.get(mid);
+            if (block.size > 0 && block.values[0] <= value) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static final class Block {
+        private long[] values;
+        private int size;
+
+        private Block() {
+            this(INITIAL_BLOCK_CAPACITY);
+        }
+
+        private Block(int capacity) {
+            values = new long[capacity];
+        }
+
+        private void insert(int pos, long value) {
+            ensureCapacity(size + 1);
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            values[pos] = value;
+            size++;
+        }
+
+        private void delete(int pos) {
+            System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+            size--;
+        }
+
+        private void append(Block upper) {
+            ensureCapacity(size + upper.size);
+            System.arraycopy(upper.values, 0, values, size, upper.size);
+            size += upper.size;
+        }
+
+        private Block split() {
+            int half = size >>> 1;
+            Block upper = new Block(size);
+            upper.size = size - half;
+            System.arraycopy(values, half, upper.values, 0, upper.size);
+            size = half;
+            return upper;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed > values.length) {
+                values = Arrays.copyOf(values, Math.min(BLOCK_CAPACITY, Math.max(needed, values.length << 1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.betbrain.metrics;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketUpperBoundsAreInclusive() {
+        assertEquals(0, LatencyHistogram.bucketIndex(0));
+        assertEquals(0, LatencyHistogram.bucketIndex(1024));
+        assertEquals(1, LatencyHistogram.bucketIndex(1025));
+        assertEquals(1, LatencyHistogram.bucketIndex(2048));
+        int last = LatencyHistogram.MAX_SHIFT - LatencyHistogram.MIN_SHIFT;
+        assertEquals(last, LatencyHistogram.bucketIndex(1L << LatencyHistogram.MAX_SHIFT));
+        assertEquals(last + 1, LatencyHistogram.bucketIndex((1L << LatencyHistogram.MAX_SHIFT) + 1));
+        assertEquals(last + 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testConcurrentRecordingLosesNoValues() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(4L * (99_999L * 100_000L / 2), histogram.getSumNanos());
+    }
+}
@@ -0,0 +1,49 @@
+package com.betbrain.metrics;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testRendersPrometheusTextFormat() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("requests_total", "Requests", "route", "/{betId:int}/stake").add(3);
+        registry.gauge("queue_depth", "Queued", () -> 7);
+        registry.histogram("latency_seconds", "Latency").record(1_500_000);
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# HELP requests_total Requests\n# TYPE requests_total counter\n"));
+        assertTrue(text.contains("requests_total{route=\"/{betId:int}/stake\"} 3\n"));
+        assertTrue(text.contains("# TYPE queue_depth gauge\nqueue_depth 7\n"));
+        assertTrue(text.contains("# TYPE latency_seconds histogram\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"0.001048576\"} 0\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"0.002097152\"} 1\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("latency_seconds_sum 0.0015\n"));
+        assertTrue(text.contains("latency_seconds_count 1\n"));
+    }
+
+    @Test
+    public void testRegisteringAgainReturnsSameMetricAndReplacesSuppliers() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("errors_total", "Errors", "route", "/a");
+        assertSame(counter, registry.counter("errors_total", "Errors", "route", "/a"));
+        assertNotSame(counter, registry.counter("errors_total", "Errors", "route", "/b"));
+
+        AtomicLong value = new AtomicLong(1);
+        registry.gauge("sessions", "Sessions", () -> 99);
+        registry.gauge("sessions", "Sessions", value::get);
+        assertTrue(registry.scrape().contains("sessions 1\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsConflictingTypes() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("things", "Things");
+        registry.histogram("things", "Things");
+    }
+}
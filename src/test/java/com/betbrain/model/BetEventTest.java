@@ -4,10 +4,11 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
-import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Random;
 
 public class BetEventTest {
     private BetEvent betEvent;
@@ -20,21 +21,21 @@ public class BetEventTest {
     @Test
     public void testUpdateStakeNewCustomerStoresMaxAmount() {
         betEvent.updateStake(1, 100);
-        assertEquals(100, (int) getCustomerMaxAmounts().get(1));
+        assertEquals(100, betEvent.getMaxStake(1));
     }
 
     @Test
     public void testUpdateStakeHigherAmountUpdatesExistingCustomer() {
         betEvent.updateStake(1, 100);
         betEvent.updateStake(1, 200);
-        assertEquals(200, (int) getCustomerMaxAmounts().get(1));
+        assertEquals(200, betEvent.getMaxStake(1));
     }
 
     @Test
     public void testUpdateStakeLowerAmountPreservesExistingValue() {
         betEvent.updateStake(1, 200);
         betEvent.updateStake(1, 150);
-        assertEquals(200, (int) getCustomerMaxAmounts().get(1));
+        assertEquals(200, betEvent.getMaxStake(1));
     }
 
     @Test
@@ -59,15 +60,173 @@ public class BetEventTest {
         assertEquals(20, results.size());
     }
 
-    // 쳣İ汾
-    private ConcurrentHashMap<Integer, Integer> getCustomerMaxAmounts() {
-        try {
-            Field field = BetEvent.class.getDeclaredField("customerMaxAmounts");
-            field.setAccessible(true);
-            return (ConcurrentHashMap<Integer, Integer>) field.get(betEvent);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            throw new RuntimeException("Reflection access failed", e);
+    @Test
+    public void testTop20SnapshotIsPreEncoded() {
+        betEvent.updateStake(1, 300);
+        betEvent.updateStake(2, 400);
+
+        LeaderboardSnapshot snapshot = betEvent.getTop20Snapshot();
+        assertEquals("2=400,1=300", new String(snapshot.getEncoded(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testTop20SnapshotUnchangedByStakeBelowCutoff() {
+        for (int i = 1; i <= 20; i++) {
+            betEvent.updateStake(i, 1000 + i);
+        }
+        LeaderboardSnapshot before = betEvent.getTop20Snapshot();
+
+        betEvent.updateStake(99, 5);
+        assertSame(before, betEvent.getTop20Snapshot());
+
+        betEvent.updateStake(99, 5000);
+        LeaderboardSnapshot after = betEvent.getTop20Snapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(99, after.getCustomerId(0));
+        assertEquals(20, after.size());
+    }
+
+    @Test
+    public void testTop20SnapshotReflectsRaisedTopCustomer() {
+        betEvent.updateStake(1, 100);
+        betEvent.updateStake(2, 200);
+        betEvent.updateStake(1, 300);
+
+        LeaderboardSnapshot snapshot = betEvent.getTop20Snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(1, snapshot.getCustomerId(0));
+        assertEquals(300, snapshot.getAmount(0));
+    }
+
+    @Test
+    public void testTopKModeMatchesFullModeRanking() {
+        BetEvent full = new BetEvent(new RankingPolicy(RankingPolicy.Mode.FULL, 20));
+        BetEvent topK = new BetEvent(new RankingPolicy(RankingPolicy.Mode.TOP_K, 20));
+        Random random = new Random(11);
+
+        for (int i = 0; i < 20000; i++) {
+            int customerId = random.nextInt(500);
+            int amount = 1 + random.nextInt(10000);
+            full.updateStake(customerId, amount);
+            topK.updateStake(customerId, amount);
+        }
+
+        assertEquals(full.getTop20Snapshot().toString(), topK.getTop20Snapshot().toString());
+        assertEquals(full.getCustomerCount(), topK.getCustomerCount());
+    }
+
+    @Test
+    public void testConcurrentFullModeRankingMatchesSequentialTopK() throws Exception {
+        BetEvent full = new BetEvent(new RankingPolicy(RankingPolicy.Mode.FULL, 20));
+        BetEvent expected = new BetEvent(new RankingPolicy(RankingPolicy.Mode.TOP_K, 20));
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            Random random = new Random(t);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    full.updateStake(random.nextInt(500), 1 + random.nextInt(100000));
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
         }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int customerId = 0; customerId < 500; customerId++) {
+            expected.updateStake(customerId, full.getMaxStake(customerId));
+        }
+
+        assertEquals(expected.getTop20Snapshot().toString(), full.getTop20Snapshot().toString());
+    }
+
+    @Test
+    public void testDeeperRankingStillPublishesTop20() {
+        BetEvent deep = new BetEvent(new RankingPolicy(RankingPolicy.Mode.TOP_K, 50));
+        BetEvent expected = new BetEvent(new RankingPolicy(RankingPolicy.Mode.FULL, 20));
+        for (int i = 1; i <= 100; i++) {
+            deep.updateStake(i, i * 10);
+            expected.updateStake(i, i * 10);
+        }
+        // Enters the top 50 but not the top 20, so the leaderboard keeps its version
+        long version = deep.getTop20Snapshot().getVersion();
+        deep.updateStake(40, 700);
+        expected.updateStake(40, 700);
+        assertEquals(version, deep.getTop20Snapshot().getVersion());
+
+        deep.updateStake(60, 5000);
+        expected.updateStake(60, 5000);
+        assertEquals(20, deep.getTop20Snapshot().size());
+        assertEquals(expected.getTop20Snapshot().toString(), deep.getTop20Snapshot().toString());
+    }
+
+    @Test
+    public void testEachModeServesLeaderboardAndCutoffFromItsOwnRanking() {
+        BetEvent full = new BetEvent(new RankingPolicy(RankingPolicy.Mode.FULL, 50));
+        BetEvent topK = new BetEvent(new RankingPolicy(RankingPolicy.Mode.TOP_K, 50));
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            full.updateStake(i, i * 10);
+            topK.updateStake(i, i * 10);
+        }
+        for (int i = 100; i > 80; i--) {
+            expected.append(expected.length() == 0 ? "" : ",").append(i).append('=').append(i * 10);
+        }
+
+        assertEquals(expected.toString(), full.getTop20Snapshot().toString());
+        assertEquals(expected.toString(), topK.getTop20Snapshot().toString());
+        // Full mode ranks every customer, so only the leaderboard's last entry bounds it
+        assertEquals(810, full.getCutoff());
+        assertEquals(full.getTop20Snapshot().getCutoff(), full.getCutoff());
+        // Top-K mode can only admit stakes reaching its K-th entry
+        assertEquals(510, topK.getCutoff());
+
+        // A customer from far below the leaderboard moves to the top and pushes the cutoff up
+        full.updateStake(5, 2000);
+        assertEquals(5, full.getTop20Snapshot().getCustomerId(0));
+        assertEquals(820, full.getCutoff());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRankingShallowerThanTheLeaderboardIsRejected() {
+        new RankingPolicy(RankingPolicy.Mode.TOP_K, 3);
     }
 
+    @Test
+    public void testBackingArraysStayCompact() {
+        int customers = 100_000;
+        BetEvent full = new BetEvent(new RankingPolicy(RankingPolicy.Mode.FULL, 20));
+        BetEvent topK = new BetEvent(new RankingPolicy(RankingPolicy.Mode.TOP_K, 20));
+        Random random = new Random(7);
+        for (int i = 0; i < customers; i++) {
+            int amount = 1 + random.nextInt(100_000);
+            full.updateStake(i, amount);
+            topK.updateStake(i, amount);
+        }
+
+        // Maximums: 8 bytes per slot, at least 35% of slots used right after a resize
+        double maximumsPerCustomer = (double) topK.backingBytes() / customers;
+        assertTrue("maximums use " + maximumsPerCustomer + " B/customer", maximumsPerCustomer <= 24);
+        // Full ranking: 8 bytes per entry in blocks at least half full while growing
+        double rankingPerCustomer = (double) (full.backingBytes() - topK.backingBytes()) / customers;
+        assertTrue("full ranking uses " + rankingPerCustomer + " B/customer", rankingPerCustomer <= 16);
+    }
+
+    @Test
+    public void testListenerIsNotifiedOnlyWhenTheLeaderboardChanges() {
+        List<LeaderboardSnapshot> changes = new ArrayList<>();
+        BetEvent topK = new BetEvent(new RankingPolicy(RankingPolicy.Mode.TOP_K, 20));
+        topK.setLeaderboardListener(changes::add);
+        for (int i = 1; i <= 20; i++) {
+            topK.updateStake(i, 100 + i);
+        }
+        topK.updateStake(21, 100);
+        assertEquals(20, changes.size());
+        assertSame(topK.getTop20Snapshot(), changes.get(19));
+
+        topK.setLeaderboardListener(null);
+        topK.updateStake(21, 400);
+        assertEquals(20, changes.size());
+    }
 }
@@ -0,0 +1,27 @@
+package com.betbrain.model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CustomerStakeIndexTest {
+
+    @Test
+    public void testKeepsHighestStakePerEventOrderedByBetId() {
+        CustomerStakeIndex index = new CustomerStakeIndex();
+        index.update(30, 7, 100);
+        index.update(10, 7, 200);
+        index.update(20, 7, 50);
+        index.update(30, 7, 400);
+        index.update(10, 7, 150);
+        index.update(10, 8, 999);
+
+        assertEquals(Arrays.asList(new RankedStake(10, 7, 200), new RankedStake(20, 7, 50),
+                new RankedStake(30, 7, 400)), index.getStakes(7));
+        assertEquals(Collections.singletonList(new RankedStake(10, 8, 999)), index.getStakes(8));
+        assertTrue(index.getStakes(9).isEmpty());
+        assertEquals(2, index.getCustomerCount());
+    }
+}
@@ -0,0 +1,36 @@
+package com.betbrain.model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+public class GlobalLeaderboardTest {
+
+    @Test
+    public void testKeepsHighestStakesAcrossEvents() {
+        GlobalLeaderboard leaderboard = new GlobalLeaderboard(3);
+        leaderboard.offer(1, 10, 100);
+        leaderboard.offer(2, 10, 500);
+        leaderboard.offer(3, 11, 300);
+        leaderboard.offer(1, 12, 50);
+        leaderboard.offer(4, 13, 400);
+        assertTrue("Unpublished updates are not visible", leaderboard.getTop().isEmpty());
+
+        leaderboard.publish();
+        assertEquals(Arrays.asList(new RankedStake(2, 10, 500), new RankedStake(4, 13, 400),
+                new RankedStake(3, 11, 300)), leaderboard.getTop());
+    }
+
+    @Test
+    public void testRaisedStakeReplacesItsEntry() {
+        GlobalLeaderboard leaderboard = new GlobalLeaderboard(2);
+        leaderboard.offer(1, 10, 100);
+        leaderboard.offer(2, 11, 200);
+        leaderboard.offer(1, 10, 300);
+        leaderboard.offer(1, 10, 250);
+        leaderboard.publish();
+
+        assertEquals(Arrays.asList(new RankedStake(1, 10, 300), new RankedStake(2, 11, 200)), leaderboard.getTop());
+    }
+}
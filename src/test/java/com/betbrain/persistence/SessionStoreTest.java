@@ -0,0 +1,72 @@
+package com.betbrain.persistence;
+
+import com.betbrain.model.Session;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SessionStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoadSkipsExpiredSessions() throws Exception {
+        long now = 1_000_000L;
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sessions.add(new Session("KEY" + i, i, i % 2 == 0 ? now + 60_000 : now - 1));
+        }
+        SessionStore store = new SessionStore(new File(folder.getRoot(), "sessions/sessions.bin"));
+        assertEquals(1000, store.save(sessions));
+
+        List<Session> loaded = store.load(now);
+        assertEquals(500, loaded.size());
+        for (Session session : loaded) {
+            assertEquals(0, session.getCustomerId() % 2);
+            assertEquals("KEY" + session.getCustomerId(), session.getSessionKey());
+            assertEquals(now + 60_000, session.getExpireTime());
+        }
+    }
+
+    @Test
+    public void testLoadWithoutFileIsEmpty() throws Exception {
+        assertTrue(new SessionStore(new File(folder.getRoot(), "missing.bin")).load(0).isEmpty());
+    }
+
+    @Test
+    public void testTruncatedOrCorruptFileFailsWithIOException() throws Exception {
+        File file = new File(folder.getRoot(), "sessions.bin");
+        SessionStore store = new SessionStore(file);
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sessions.add(new Session("KEY" + i, i, Long.MAX_VALUE));
+        }
+        store.save(sessions);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+        assertLoadFails(store);
+
+        ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE);
+        Files.write(file.toPath(), bytes);
+        assertLoadFails(store);
+    }
+
+    private static void assertLoadFails(SessionStore store) {
+        try {
+            store.load(0);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Startup falls back to no sessions
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.betbrain.persistence;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StakeJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplayRestoresStakesAcrossRolledSegments() throws Exception {
+        File dir = folder.getRoot();
+        // 10 records per segment forces several rolls
+        StakeJournal journal = new StakeJournal(dir, 10 * StakeJournal.RECORD_SIZE,
+                StakeJournal.Durability.GROUP, 1);
+        for (int i = 0; i < 95; i++) {
+            journal.append(i % 7, i, i + 1);
+        }
+        assertEquals(95, journal.getWrittenCount());
+        journal.close();
+
+        StakeJournal reopened = new StakeJournal(dir, 10 * StakeJournal.RECORD_SIZE,
+                StakeJournal.Durability.ASYNC, 1);
+        ConcurrentHashMap<Integer, Integer> amountByCustomer = new ConcurrentHashMap<>();
+        long replayed = reopened.replay((betId, customerId, amount) -> {
+            assertEquals(customerId % 7, betId);
+            amountByCustomer.put(customerId, amount);
+        }, 4);
+        reopened.close();
+
+        assertEquals(95, replayed);
+        for (int i = 0; i < 95; i++) {
+            assertEquals(Integer.valueOf(i + 1), amountByCustomer.get(i));
+        }
+    }
+
+    @Test
+    public void testEachBetIsReplayedInOrderByOnePartition() throws Exception {
+        StakeJournal journal = new StakeJournal(folder.getRoot(), 1 << 16, StakeJournal.Durability.ASYNC, 1);
+        for (int i = 0; i < 1000; i++) {
+            journal.append(i % 5, 1, i + 1);
+        }
+        journal.close();
+
+        ConcurrentHashMap<Integer, List<Integer>> amountsByBet = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Integer, Thread> replayers = new ConcurrentHashMap<>();
+        try (StakeJournal reopened = new StakeJournal(folder.getRoot(), 1 << 16, StakeJournal.Durability.ASYNC, 1)) {
+            reopened.replay((betId, customerId, amount) -> {
+                assertSame(replayers.computeIfAbsent(betId, id -> Thread.currentThread()), Thread.currentThread());
+                amountsByBet.computeIfAbsent(betId, id -> new ArrayList<>()).add(amount);
+            }, 3);
+        }
+
+        assertEquals(5, amountsByBet.size());
+        for (List<Integer> amounts : amountsByBet.values()) {
+            assertEquals(200, amounts.size());
+            for (int i = 1; i < amounts.size(); i++) {
+                assertTrue(amounts.get(i - 1) < amounts.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testReplayStopsAtTornRecord() throws Exception {
+        StakeJournal journal = new StakeJournal(folder.getRoot(), 1 << 12, StakeJournal.Durability.GROUP, 1);
+        for (int i = 0; i < 3; i++) {
+            journal.append(1, i, 100);
+        }
+        journal.close();
+
+        File[] segments = folder.getRoot().listFiles();
+        assertNotNull(segments);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            // Corrupt the customer ID of the last record as a partial write would
+            file.seek(2 * StakeJournal.RECORD_SIZE + 4);
+            file.writeInt(12345);
+        }
+
+        AtomicLong applied = new AtomicLong();
+        long replayed;
+        try (StakeJournal reopened = new StakeJournal(folder.getRoot(), 1 << 12, StakeJournal.Durability.ASYNC, 1)) {
+            replayed = reopened.replay((betId, customerId, amount) -> applied.incrementAndGet(), 2);
+        }
+        assertEquals(2, replayed);
+        assertEquals(2, applied.get());
+    }
+
+    @Test
+    public void testChunkedReplaySkipsOnlyTheTornSegment() throws Exception {
+        // 10 records per segment, replayed in chunks of 3 records
+        StakeJournal journal = new StakeJournal(folder.getRoot(), 10 * StakeJournal.RECORD_SIZE,
+                StakeJournal.Durability.ASYNC, 1);
+        for (int i = 0; i < 30; i++) {
+            journal.append(i % 4, i, i + 1);
+        }
+        journal.close();
+
+        File[] segments = folder.getRoot().listFiles();
+        assertNotNull(segments);
+        java.util.Arrays.sort(segments);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            file.seek(4 * StakeJournal.RECORD_SIZE + 4);
+            file.writeInt(12345);
+        }
+
+        ConcurrentHashMap<Integer, Integer> amountByCustomer = new ConcurrentHashMap<>();
+        long replayed;
+        try (StakeJournal reopened = new StakeJournal(folder.getRoot(), 10 * StakeJournal.RECORD_SIZE,
+                StakeJournal.Durability.ASYNC, 1)) {
+            replayed = reopened.replay((betId, customerId, amount) -> amountByCustomer.put(customerId, amount),
+                    3, 0, 3);
+        }
+        assertEquals(24, replayed);
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i < 4 || i >= 10 ? Integer.valueOf(i + 1) : null, amountByCustomer.get(i));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAppendFailsAfterClose() throws Exception {
+        StakeJournal journal = new StakeJournal(folder.getRoot(), 1 << 12, StakeJournal.Durability.ASYNC, 1);
+        journal.close();
+        journal.append(1, 1, 1);
+    }
+}
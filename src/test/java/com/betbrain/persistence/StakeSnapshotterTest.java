@@ -0,0 +1,54 @@
+package com.betbrain.persistence;
+
+import com.betbrain.model.BetEvent;
+import com.betbrain.model.RankingPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StakeSnapshotterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final RankingPolicy FULL = new RankingPolicy(RankingPolicy.Mode.FULL, 20);
+
+    @Test
+    public void testRestoreRebuildsEventsAndLeaderboards() throws Exception {
+        ConcurrentHashMap<Integer, BetEvent> events = new ConcurrentHashMap<>();
+        for (int betId = 0; betId < 10; betId++) {
+            BetEvent event = new BetEvent(FULL);
+            for (int customerId = 0; customerId < 500; customerId++) {
+                event.updateStake(customerId, 1 + (customerId * 31 + betId) % 1000);
+            }
+            events.put(betId, event);
+        }
+
+        StakeSnapshotter snapshotter = new StakeSnapshotter(folder.getRoot());
+        assertEquals(5000, snapshotter.write(events, 7));
+
+        ConcurrentHashMap<Integer, BetEvent> restored = new ConcurrentHashMap<>();
+        long journalSegment = new StakeSnapshotter(folder.getRoot()).restore((betId, customerId, amount) ->
+                restored.computeIfAbsent(betId, id -> new BetEvent(FULL)).updateStake(customerId, amount), 4);
+
+        assertEquals(7, journalSegment);
+        assertEquals(events.size(), restored.size());
+        for (int betId = 0; betId < 10; betId++) {
+            BetEvent original = events.get(betId);
+            BetEvent copy = restored.get(betId);
+            assertEquals(original.getCustomerCount(), copy.getCustomerCount());
+            for (int customerId = 0; customerId < 500; customerId++) {
+                assertEquals(original.getMaxStake(customerId), copy.getMaxStake(customerId));
+            }
+            assertEquals(original.getTop20Snapshot().toString(), copy.getTop20Snapshot().toString());
+        }
+    }
+
+    @Test
+    public void testRestoreWithoutSnapshotReplaysWholeJournal() throws Exception {
+        long journalSegment = new StakeSnapshotter(folder.getRoot()).restore((betId, customerId, amount) -> fail(), 2);
+        assertEquals(0, journalSegment);
+    }
+}
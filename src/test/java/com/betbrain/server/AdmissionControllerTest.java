@@ -0,0 +1,103 @@
+package com.betbrain.server;
+
+import com.betbrain.handler.ServiceUnavailableRejectionHandler;
+import com.betbrain.util.HttpUtil;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionControllerTest {
+    private AdmissionController controller;
+
+    @Before
+    public void setUp() {
+        controller = new AdmissionController(exchange -> { }, true, 100, 50, 500, 100, 1, 1, 16);
+    }
+
+    @Test
+    public void testAdmitsRequestsWithinBudgets() {
+        assertFalse(controller.shouldShed(true, TimeUnit.MILLISECONDS.toNanos(10), 10));
+        assertFalse(controller.shouldShed(false, TimeUnit.MILLISECONDS.toNanos(10), 10));
+    }
+
+    @Test
+    public void testShedsReadsBeforeWritesOnQueueDelay() {
+        long delay = TimeUnit.MILLISECONDS.toNanos(200);
+        assertTrue(controller.shouldShed(true, delay, 1));
+        assertFalse(controller.shouldShed(false, delay, 1));
+    }
+
+    @Test
+    public void testShedsReadsBeforeWritesOnInFlight() {
+        assertTrue(controller.shouldShed(true, 0, 60));
+        assertFalse(controller.shouldShed(false, 0, 60));
+        assertTrue(controller.shouldShed(false, 0, 101));
+    }
+
+    @Test
+    public void testSlowRejectedClientDoesNotBlockOtherConnections() throws Exception {
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AdmissionController admission = new AdmissionController(exchange -> {
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            HttpUtil.sendResponse(exchange, 200, (byte[]) null, 0);
+        }, true, 100, 50, 60000, 60000, 1, 2, 16);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1), new ServiceUnavailableRejectionHandler());
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(admission.wrap(pool));
+        server.createContext("/", admission);
+        server.start();
+        int port = server.getAddress().getPort();
+        try (Socket running = new Socket("localhost", port);
+             Socket queued = new Socket("localhost", port);
+             Socket slow = new Socket("localhost", port)) {
+            send(running, "GET /1/stake HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(busy.await(5, TimeUnit.SECONDS));
+            send(queued, "GET /1/stake HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            while (pool.getQueue().isEmpty()) {
+                Thread.sleep(5);
+            }
+            // Rejected, and never finishes its headers
+            send(slow, "GET /1/stake HTTP/1.1\r\n");
+            while (admission.getQueueFullRejectionCount() == 0) {
+                Thread.sleep(5);
+            }
+
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/2/stake")
+                    .openConnection();
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(5000);
+            assertEquals(503, connection.getResponseCode());
+            assertEquals("1", connection.getHeaderField("Retry-After"));
+        } finally {
+            release.countDown();
+            server.stop(0);
+            pool.shutdownNow();
+            admission.shutdown();
+        }
+    }
+
+    private static void send(Socket socket, String request) throws Exception {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,57 @@
+package com.betbrain.server;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RouterTest {
+    private Router router;
+    private final Handler stakeHandler = (exchange, params) -> { };
+    private final Handler highStakesHandler = (exchange, params) -> { };
+    private final Handler statsHandler = (exchange, params) -> { };
+
+    @Before
+    public void setUp() {
+        router = new Router();
+        router.addRoute("/{betId:int}/stake", stakeHandler);
+        router.addRoute("/{betId:int}/highstakes", highStakesHandler);
+        router.addRoute("/stats/{betId:int}", statsHandler);
+    }
+
+    @Test
+    public void testMatchesTemplateAndExtractsId() {
+        PathParams params = new PathParams(1);
+        assertSame(stakeHandler, router.findMatchingHandler("/1234/stake", params));
+        assertEquals(1234, params.getInt("betId"));
+    }
+
+    @Test
+    public void testDispatchesByLiteralSegment() {
+        PathParams params = new PathParams(1);
+        assertSame(highStakesHandler, router.findMatchingHandler("/7/highstakes", params));
+        assertSame(statsHandler, router.findMatchingHandler("/stats/7", params));
+        assertEquals(7, params.getInt("betId"));
+    }
+
+    @Test
+    public void testRejectsNonMatchingPaths() {
+        PathParams params = new PathParams(1);
+        assertNull(router.findMatchingHandler("/abc/stake", params));
+        assertNull(router.findMatchingHandler("/12/stake/", params));
+        assertNull(router.findMatchingHandler("//stake", params));
+        assertNull(router.findMatchingHandler("/12/unknown", params));
+        assertNull(router.findMatchingHandler("/", params));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverflowingIdIsReportedAsInvalid() {
+        PathParams params = new PathParams(1);
+        assertSame(stakeHandler, router.findMatchingHandler("/99999999999/stake", params));
+        params.getInt("betId");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnsupportedParameterType() {
+        router.addRoute("/{name:string}/x", stakeHandler);
+    }
+}
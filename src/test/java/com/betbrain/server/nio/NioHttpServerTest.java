@@ -0,0 +1,246 @@
+package com.betbrain.server.nio;
+
+import com.betbrain.util.HttpUtil;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class NioHttpServerTest {
+    private NioHttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Answers with the request path and body after a random delay, so that
+     * pipelined requests finish out of order on the worker pool
+     */
+    private final HttpHandler echo = exchange -> {
+        byte[] body = readAll(exchange.getRequestBody());
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        HttpUtil.sendResponse(exchange, HttpUtil.HTTP_OK,
+                exchange.getRequestURI().getPath() + ":" + new String(body, StandardCharsets.UTF_8));
+    };
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testKeepAliveServesSequentialRequestsOnOneConnection() throws IOException {
+        start(echo);
+        try (Socket socket = connect()) {
+            for (int i = 0; i < 3; i++) {
+                write(socket, "POST /" + i + "/stake HTTP/1.1\r\nHost: x\r\nContent-Length: 3\r\n\r\n10" + i);
+                assertEquals("/" + i + "/stake:10" + i, readResponse(socket.getInputStream()));
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedRequestsAreAnsweredInOrder() throws IOException {
+        start(echo);
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            requests.append("POST /").append(i).append("/stake HTTP/1.1\r\nContent-Length: 1\r\n\r\n").append(i % 10);
+        }
+        try (Socket socket = connect()) {
+            write(socket, requests.toString());
+            for (int i = 0; i < 20; i++) {
+                assertEquals("/" + i + "/stake:" + (i % 10), readResponse(socket.getInputStream()));
+            }
+        }
+    }
+
+    @Test
+    public void testChunkedResponseIsStreamedBeforeItEnds() throws IOException {
+        start(exchange -> {
+            try (OutputStream out = HttpUtil.startStreamingResponse(exchange, HttpUtil.HTTP_OK, "text/plain")) {
+                out.write("first".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                out.write("second".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        try (Socket socket = connect()) {
+            write(socket, "GET /stream HTTP/1.1\r\n\r\n");
+            assertEquals("firstsecond", readResponse(socket.getInputStream()));
+        }
+    }
+
+    @Test
+    public void testClientThatStopsReadingIsDisconnected() throws Exception {
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        CountDownLatch failed = new CountDownLatch(1);
+        executor = Executors.newFixedThreadPool(2);
+        server = new NioHttpServer(new InetSocketAddress("localhost", 0), exchange -> {
+            OutputStream out = HttpUtil.startStreamingResponse(exchange, HttpUtil.HTTP_OK, "text/plain");
+            byte[] chunk = new byte[16384];
+            try {
+                // Far more than the socket buffers hold, far less than the outbound limit
+                for (int i = 0; i < 256; i++) {
+                    out.write(chunk);
+                    out.flush();
+                }
+                while (true) {
+                    Thread.sleep(100);
+                    out.write(chunk, 0, 1);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                failure.set(e);
+                failed.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor, 2, 4096, 64, 4096, 1024, 60, 1);
+        server.start();
+
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(1024);
+            socket.connect(new InetSocketAddress("localhost", server.getAddress().getPort()));
+            write(socket, "GET /stream HTTP/1.1\r\n\r\n");
+            assertTrue("Stalled connection was not closed", failed.await(10, TimeUnit.SECONDS));
+            assertEquals("Connection closed", failure.get().getMessage());
+        }
+    }
+
+    @Test
+    public void testWorksWithJdkHttpClient() throws IOException {
+        start(echo);
+        URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/7/stake");
+        for (int i = 0; i < 3; i++) {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write("42".getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                assertEquals("/7/stake:42", new String(readAll(in), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedRequestIsRejectedAndClosed() throws IOException {
+        start(echo);
+        try (Socket socket = connect()) {
+            write(socket, "NONSENSE\r\n\r\n");
+            String response = new String(readAll(socket.getInputStream()), StandardCharsets.ISO_8859_1);
+            assertTrue(response.startsWith("HTTP/1.1 400 "));
+            assertTrue(response.contains("Connection: close"));
+        }
+    }
+
+    private void start(HttpHandler handler) throws IOException {
+        executor = Executors.newFixedThreadPool(4);
+        server = new NioHttpServer(new InetSocketAddress("localhost", 0), handler, executor,
+                2, 4096, 64, 4096, 1024, 60, 60);
+        server.start();
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", server.getAddress().getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static void write(Socket socket, String text) throws IOException {
+        socket.getOutputStream().write(text.getBytes(StandardCharsets.ISO_8859_1));
+        socket.getOutputStream().flush();
+    }
+
+    /**
+     * Reads one response and returns its body, asserting status 200
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        assertTrue(statusLine, statusLine.startsWith("HTTP/1.1 200 "));
+        int contentLength = -1;
+        boolean chunked = false;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            String lower = line.toLowerCase();
+            if (lower.startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            } else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) {
+                chunked = true;
+            }
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (chunked) {
+            int size;
+            while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+                body.write(readBytes(in, size));
+                readLine(in);
+            }
+            readLine(in);
+        } else {
+            body.write(readBytes(in, contentLength));
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static byte[] readBytes(InputStream in, int count) throws IOException {
+        byte[] bytes = new byte[count];
+        int read = 0;
+        while (read < count) {
+            int n = in.read(bytes, read, count - read);
+            if (n < 0) {
+                throw new IOException("Connection closed");
+            }
+            read += n;
+        }
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
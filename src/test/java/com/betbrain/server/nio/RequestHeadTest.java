@@ -0,0 +1,62 @@
+package com.betbrain.server.nio;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class RequestHeadTest {
+
+    @Test
+    public void testParsesRequestLineAndHeaders() {
+        ByteBuffer in = buffer("\r\nPOST /12/stake?sessionkey=ABC HTTP/1.1\r\nHost: x\r\n"
+                + "content-length: 4\r\nExpect: 100-continue\r\n\r\n1500");
+
+        RequestHead head = RequestHead.parse(in, 8192);
+
+        assertNotNull(head);
+        assertEquals("POST", head.method);
+        assertEquals("/12/stake?sessionkey=ABC", head.uri);
+        assertEquals("HTTP/1.1", head.protocol);
+        assertEquals(4, head.contentLength);
+        assertEquals("x", head.headers.getFirst("Host"));
+        assertTrue(head.keepAlive);
+        assertTrue(head.expectContinue);
+        assertEquals(4, in.remaining());
+        assertEquals('1', in.get(in.position()));
+    }
+
+    @Test
+    public void testIncompleteHeadLeavesBufferUnconsumed() {
+        ByteBuffer in = buffer("GET /1/highstakes HTTP/1.1\r\nHost: x\r\n");
+
+        assertNull(RequestHead.parse(in, 8192));
+        assertEquals(0, in.position());
+    }
+
+    @Test
+    public void testConnectionHeaderAndProtocolDecideKeepAlive() {
+        assertFalse(RequestHead.parse(buffer("GET / HTTP/1.1\r\nConnection: close\r\n\r\n"), 8192).keepAlive);
+        assertFalse(RequestHead.parse(buffer("GET / HTTP/1.0\r\n\r\n"), 8192).keepAlive);
+        assertTrue(RequestHead.parse(buffer("GET / HTTP/1.0\nConnection: Keep-Alive\n\n"), 8192).keepAlive);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsMalformedRequestLine() {
+        RequestHead.parse(buffer("GARBAGE\r\n\r\n"), 8192);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsOversizedHead() {
+        StringBuilder head = new StringBuilder("GET / HTTP/1.1\r\n");
+        while (head.length() < 300) {
+            head.append("X-Filler: 0123456789\r\n");
+        }
+        RequestHead.parse(buffer(head.toString()), 256);
+    }
+
+    private static ByteBuffer buffer(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
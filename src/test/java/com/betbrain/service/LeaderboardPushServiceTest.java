@@ -0,0 +1,94 @@
+package com.betbrain.service;
+
+import com.betbrain.handler.LeaderboardStreamHandler;
+import com.betbrain.server.Router;
+import com.betbrain.server.nio.NioHttpServer;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class LeaderboardPushServiceTest {
+    private final Router router = new Router();
+    private ExecutorService executor;
+    private NioHttpServer server;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        router.addRoute("/{betId:int}/highstakes/stream", new LeaderboardStreamHandler());
+        executor = Executors.newFixedThreadPool(2);
+        server = new NioHttpServer(new InetSocketAddress("localhost", 0), router, executor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+        StakeService.getInstance().clearLocalEvents();
+    }
+
+    @Test
+    public void testStreamSendsCurrentLeaderboardThenChanges() throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/78001/highstakes/stream").openConnection();
+        connection.setReadTimeout(5000);
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/event-stream"));
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertEquals("", nextData(reader));
+
+            StakeService stakeService = StakeService.getInstance();
+            for (int amount = 1; amount <= 200; amount++) {
+                stakeService.recordStake(78001, 1 + amount % 2, amount);
+            }
+            stakeService.flush();
+            // Bursts are coalesced, so intermediate rankings may be skipped but the last one arrives
+            String data;
+            while (!"1=200,2=199".equals(data = nextData(reader))) {
+                assertNotNull(data);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testJdkTransportRefusesStreams() throws Exception {
+        HttpServer jdkServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        jdkServer.createContext("/", router);
+        jdkServer.start();
+        try {
+            URL url = new URL("http://localhost:" + jdkServer.getAddress().getPort() + "/78002/highstakes/stream");
+            assertEquals(501, ((HttpURLConnection) url.openConnection()).getResponseCode());
+        } finally {
+            jdkServer.stop(0);
+        }
+    }
+
+    /**
+     * @return Data of the next leaderboard frame, or null at the end of the stream
+     */
+    private static String nextData(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("data: ")) {
+                return line.substring(6);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package com.betbrain.service;
+
+import com.betbrain.handler.ShardHandler;
+import com.betbrain.model.LeaderboardSnapshot;
+import com.betbrain.model.StakeColumns;
+import com.betbrain.server.Router;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+public class RemoteStakeShardTest {
+    private HttpServer server;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty("betting.shards.secret", "test-secret");
+        Router router = new Router();
+        router.addRoute("/shard/{betId:int}/stakes", new ShardHandler(ShardHandler.Operation.STAKES));
+        router.addRoute("/shard/{betId:int}/highstakes", new ShardHandler(ShardHandler.Operation.HIGHSTAKES));
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", router);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        System.clearProperty("betting.shards.secret");
+        StakeService.getInstance().clearLocalEvents();
+    }
+
+    @Test
+    public void testImportedStakesAreRankedByTheReceivingNode() throws Exception {
+        RemoteStakeShard shard = new RemoteStakeShard(baseUrl, "test-secret");
+        shard.importStakes(77001, new StakeColumns(new int[]{1, 2, 3}, new int[]{50, 300, 70}, 3));
+        shard.recordStake(77001, 1, 500);
+        StakeService.getInstance().flush();
+
+        assertEquals("1=500,2=300,3=70", StakeService.getInstance().getLocalTop20Snapshot(77001).toString());
+        LeaderboardSnapshot fetched = shard.getTop20Snapshot(77001);
+        assertEquals("1=500,2=300,3=70", fetched.toString());
+        assertEquals(3, fetched.size());
+        assertEquals(300, fetched.getAmount(1));
+        assertNull(shard.getTop20Snapshot(77002));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongSecretIsRefused() {
+        new RemoteStakeShard(baseUrl, "wrong").recordStake(77003, 1, 10);
+    }
+
+    @Test
+    public void testTopologyRoutesOnlyForeignEventsToRemoteNodes() {
+        ShardTopology topology = new ShardTopology(Arrays.asList("http://a:1", "http://b:1/"), "http://a:1/", "s", 64);
+        assertTrue(topology.containsSelf());
+        int remote = 0;
+        for (int betId = 0; betId < 1000; betId++) {
+            if (topology.remoteOwnerOf(betId) != null) {
+                remote++;
+            }
+        }
+        assertTrue("Remote events: " + remote, remote > 300 && remote < 700);
+    }
+}
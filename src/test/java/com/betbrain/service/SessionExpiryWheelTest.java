@@ -0,0 +1,67 @@
+package com.betbrain.service;
+
+import com.betbrain.model.Session;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SessionExpiryWheelTest {
+
+    @Test
+    public void testAdvanceExpiresOnlyElapsedTicks() {
+        SessionExpiryWheel wheel = new SessionExpiryWheel(100, 16, 0);
+        Session early = new Session("early", 1, 150);
+        Session late = new Session("late", 2, 950);
+        wheel.schedule(early);
+        wheel.schedule(late);
+
+        List<Session> expired = new ArrayList<>();
+        assertEquals(0, wheel.advance(150, expired::add));
+        assertEquals(1, wheel.advance(200, expired::add));
+        assertSame(early, expired.get(0));
+
+        assertEquals(1, wheel.advance(1000, expired::add));
+        assertSame(late, expired.get(1));
+    }
+
+    @Test
+    public void testSessionsBeyondOneRevolutionWaitForTheirTick() {
+        SessionExpiryWheel wheel = new SessionExpiryWheel(10, 4, 0);
+        Session distant = new Session("distant", 1, 1000);
+        wheel.schedule(distant);
+
+        List<Session> expired = new ArrayList<>();
+        for (long now = 0; now <= 1000; now += 10) {
+            wheel.advance(now, expired::add);
+        }
+        assertTrue(expired.isEmpty());
+        assertEquals(1, wheel.advance(1010, expired::add));
+    }
+
+    @Test
+    public void testLargeTimeJumpDrainsEverySlotOnce() {
+        SessionExpiryWheel wheel = new SessionExpiryWheel(10, 4, 0);
+        for (int i = 0; i < 100; i++) {
+            wheel.schedule(new Session("k" + i, i, i * 7));
+        }
+        List<Session> expired = new ArrayList<>();
+        assertEquals(100, wheel.advance(10_000, expired::add));
+        assertEquals(0, wheel.advance(20_000, expired::add));
+    }
+
+    @Test
+    public void testSessionScheduledWhileItsSlotDrainsExpiresOnTheNextTick() {
+        SessionExpiryWheel wheel = new SessionExpiryWheel(10, 16, 0);
+        List<Session> expired = new ArrayList<>();
+        wheel.advance(30, expired::add);
+
+        // Scheduled on a view taken before tick 2 was drained
+        Session late = new Session("late", 1, 5);
+        wheel.place(late, 1);
+
+        assertEquals(1, wheel.advance(40, expired::add));
+        assertSame(late, expired.get(0));
+    }
+}
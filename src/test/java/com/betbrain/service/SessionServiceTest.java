@@ -6,6 +6,7 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class SessionServiceTest {
@@ -37,7 +38,7 @@ public class SessionServiceTest {
 
     @Test
     public void testIsValidSessionReturnsFalseForExpiredSession() throws Exception {
-        Session expiredSession = new Session("expired", System.currentTimeMillis() - 1);
+        Session expiredSession = new Session("expired", 1, System.currentTimeMillis() - 1);
         forceAddSession(1, expiredSession);
 
         assertFalse(sessionService.isValidSession("expired"));
@@ -45,8 +46,8 @@ public class SessionServiceTest {
 
     @Test
     public void testCleanExpiredSessionsRemovesOldEntries() throws Exception {
-        Session validSession = new Session("valid", System.currentTimeMillis() + 10000);
-        Session expiredSession = new Session("expired", System.currentTimeMillis() - 1);
+        Session validSession = new Session("valid", 1, System.currentTimeMillis() + 10000);
+        Session expiredSession = new Session("expired", 2, System.currentTimeMillis() - 1);
         forceAddSession(1, validSession);
         forceAddSession(2, expiredSession);
 
@@ -54,21 +55,88 @@ public class SessionServiceTest {
         assertEquals(1, getActiveSessionCount());
     }
 
+    @Test
+    public void testAuthenticateResolvesCustomerForValidSession() {
+        String sessionKey = sessionService.getOrCreateSession(42);
+        assertEquals(42, sessionService.authenticate(sessionKey));
+        assertEquals(-1, sessionService.authenticate("unknown"));
+    }
+
+    @Test
+    public void testAuthenticateRejectsExpiredSession() throws Exception {
+        forceAddSession(1, new Session("expired", 1, System.currentTimeMillis() - 1));
+        assertEquals(-1, sessionService.authenticate("expired"));
+    }
+
+    @Test
+    public void testRenewalReplacesKeyInReverseIndex() throws Exception {
+        forceAddSession(7, new Session("stale", 7, System.currentTimeMillis() - 1));
+
+        String renewedKey = sessionService.getOrCreateSession(7);
+        assertNotEquals("stale", renewedKey);
+        assertEquals(7, sessionService.getCustomerIdBySessionKey(renewedKey));
+        assertEquals(-1, sessionService.getCustomerIdBySessionKey("stale"));
+    }
+
+    @Test
+    public void testCleanExpiredSessionsDropsReverseIndexEntries() throws Exception {
+        forceAddSession(1, new Session("valid", 1, System.currentTimeMillis() + 10000));
+        forceAddSession(2, new Session("expired", 2, System.currentTimeMillis() - 1));
+
+        sessionService.cleanExpiredSessions();
+        assertEquals(1, getStaticMap("sessionsByKey").size());
+        assertEquals(-1, sessionService.getCustomerIdBySessionKey("expired"));
+    }
+
+    @Test
+    public void testExpireDueSessionsLeavesLiveSessions() throws Exception {
+        String key = sessionService.getOrCreateSession(9);
+        long expired = sessionService.getExpiredSessionCount();
+
+        // Nothing is due yet, so the wheel leaves the live session alone
+        sessionService.expireDueSessions();
+        assertEquals(9, sessionService.authenticate(key));
+        assertEquals(expired, sessionService.getExpiredSessionCount());
+        assertTrue(sessionService.getExpiryTimeNanos() > 0);
+    }
+
+    @Test
+    public void testRestoreKeepsTheLaterExpiringSessionOfACustomer() throws Exception {
+        long now = System.currentTimeMillis();
+        int restored = sessionService.restore(Arrays.asList(
+                new Session("RESTA01", 7, now + 60000),
+                new Session("RESTA02", 7, now + 120000),
+                new Session("RESTB01", 8, now + 60000),
+                new Session("RESTB02", 8, now + 30000)));
+
+        assertEquals(2, restored);
+        assertEquals(2, getActiveSessionCount());
+        assertEquals(-1, sessionService.authenticate("RESTA01"));
+        assertEquals(7, sessionService.authenticate("RESTA02"));
+        assertEquals(8, sessionService.authenticate("RESTB01"));
+        assertEquals(-1, sessionService.authenticate("RESTB02"));
+    }
+
     private void resetSingletonState() throws Exception {
-        Field field = SessionService.class.getDeclaredField("activeSessions");
-        field.setAccessible(true);
-        ((ConcurrentHashMap) field.get(null)).clear();
+        getStaticMap("activeSessions").clear();
+        getStaticMap("sessionsByKey").clear();
     }
 
     private void forceAddSession(int customerId, Session session) throws Exception {
-        Field field = SessionService.class.getDeclaredField("activeSessions");
+        getStaticMap("activeSessions").put(customerId, session);
+        getStaticMap("sessionsByKey").put(session.getSessionKey(), session);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K> ConcurrentHashMap<K, Session> getStaticMap(String name) throws Exception {
+        Field field = SessionService.class.getDeclaredField(name);
         field.setAccessible(true);
-        ((ConcurrentHashMap) field.get(null)).put(customerId, session);
+        return (ConcurrentHashMap<K, Session>) field.get(null);
     }
 
     private int getActiveSessionCount() throws Exception {
         Field field = SessionService.class.getDeclaredField("activeSessions");
         field.setAccessible(true);
-        return ((ConcurrentHashMap) field.get(null)).size();
+        return ((ConcurrentHashMap<?, ?>) field.get(null)).size();
     }
 }
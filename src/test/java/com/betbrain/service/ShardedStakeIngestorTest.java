@@ -0,0 +1,135 @@
+package com.betbrain.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ShardedStakeIngestorTest {
+    private ShardedStakeIngestor ingestor;
+
+    @After
+    public void tearDown() {
+        if (ingestor != null) {
+            ingestor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFlushAppliesAllSubmittedStakes() throws Exception {
+        AtomicInteger applied = new AtomicInteger();
+        ingestor = new ShardedStakeIngestor((betId, customerId, amount) -> applied.incrementAndGet(),
+                4, 64, 16, 1000);
+
+        for (int i = 0; i < 10000; i++) {
+            ingestor.submit(i % 37, i, 1 + i);
+        }
+        ingestor.flush();
+
+        assertEquals(10000, applied.get());
+        assertEquals(0, ingestor.getBacklog());
+    }
+
+    @Test
+    public void testStakesForOneBetAreAppliedInOrderByOneThread() throws Exception {
+        ConcurrentHashMap<Integer, List<Integer>> amountsByBet = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Integer, Thread> writers = new ConcurrentHashMap<>();
+        // Recorded and asserted here: an AssertionError on a shard thread would only end that thread
+        AtomicReference<String> violation = new AtomicReference<>();
+        AtomicInteger applied = new AtomicInteger();
+        ingestor = new ShardedStakeIngestor((betId, customerId, amount) -> {
+            amountsByBet.computeIfAbsent(betId, id -> new ArrayList<>()).add(amount);
+            if (writers.computeIfAbsent(betId, id -> Thread.currentThread()) != Thread.currentThread()) {
+                violation.compareAndSet(null, "Bet " + betId + " applied by two threads");
+            }
+            applied.incrementAndGet();
+        }, 3, 128, 32, 1000);
+
+        for (int i = 0; i < 3000; i++) {
+            ingestor.submit(i % 5, 1, i);
+        }
+        ingestor.flush();
+
+        assertNull(violation.get());
+        assertEquals(3000, applied.get());
+        for (List<Integer> amounts : amountsByBet.values()) {
+            for (int i = 1; i < amounts.size(); i++) {
+                assertTrue(amounts.get(i - 1) < amounts.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSubmitFailsAfterShutdown() {
+        ingestor = new ShardedStakeIngestor((betId, customerId, amount) -> { }, 1, 4, 4, 10);
+        ingestor.shutdown();
+        ingestor.submit(1, 1, 1);
+    }
+
+    @Test
+    public void testReservedRoomIsNotGivenToOtherStakes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger applied = new AtomicInteger();
+        ingestor = new ShardedStakeIngestor((betId, customerId, amount) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            applied.incrementAndGet();
+        }, 1, 2, 1, 10);
+        // The first stake is taken by the blocked shard thread, the ring holds two more
+        ingestor.submit(1, 1, 1);
+        while (!tryReserveAndCancel()) {
+            Thread.sleep(1);
+        }
+        ingestor.submit(1, 2, 1);
+        ingestor.reserve(1);
+        try {
+            ingestor.submit(1, 3, 1);
+            fail("Expected the reserved slot to refuse other stakes");
+        } catch (IllegalStateException e) {
+            assertEquals("Stake queue full", e.getMessage());
+        }
+        try {
+            ingestor.reserve(1);
+            fail("Expected no room for a second reservation");
+        } catch (IllegalStateException e) {
+            assertEquals("Stake queue full", e.getMessage());
+        }
+
+        ingestor.submitReserved(1, 4, 1);
+        release.countDown();
+        ingestor.flush();
+        assertEquals(3, applied.get());
+
+        ingestor.reserve(1);
+        ingestor.cancelReservation(1);
+        ingestor.submit(1, 5, 1);
+        ingestor.submit(1, 6, 1);
+        ingestor.flush();
+        assertEquals(5, applied.get());
+    }
+
+    /**
+     * @return true once the ring has room for two stakes besides the one being applied
+     */
+    private boolean tryReserveAndCancel() {
+        ingestor.reserve(1);
+        try {
+            ingestor.reserve(1);
+            ingestor.cancelReservation(1);
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        } finally {
+            ingestor.cancelReservation(1);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.betbrain.service;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+public class SignedSessionTokensTest {
+    private final SignedSessionTokens tokens =
+            new SignedSessionTokens("0123456789abcdef-test-secret".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void testIssuedTokenVerifiesToCustomer() {
+        String token = tokens.issue(123456, 10_000_000L);
+        assertEquals(24, token.length());
+        assertEquals(123456, tokens.verify(token, 9_000_000L));
+    }
+
+    @Test
+    public void testTokenIsAcceptedByNodeSharingTheSecret() {
+        SignedSessionTokens otherNode =
+                new SignedSessionTokens("0123456789abcdef-test-secret".getBytes(StandardCharsets.UTF_8));
+        SignedSessionTokens foreignNode =
+                new SignedSessionTokens("another-secret-of-16-bytes".getBytes(StandardCharsets.UTF_8));
+        String token = tokens.issue(7, 10_000_000L);
+        assertEquals(7, otherNode.verify(token, 0));
+        assertEquals(-1, foreignNode.verify(token, 0));
+    }
+
+    @Test
+    public void testExpiredTokenIsRejected() {
+        String token = tokens.issue(1, 10_000_000L);
+        assertEquals(-1, tokens.verify(token, 10_001_000L));
+    }
+
+    @Test
+    public void testTamperedOrMalformedTokenIsRejected() {
+        String token = tokens.issue(1, 10_000_000L);
+        assertEquals(-1, tokens.verify(flip(token, 2), 0));
+        assertEquals(-1, tokens.verify(flip(token, 20), 0));
+        assertEquals(-1, tokens.verify("ABCDEFG", 0));
+        assertEquals(-1, tokens.verify(token.substring(0, 5) + '!' + token.substring(6), 0));
+        assertEquals(-1, tokens.verify(null, 0));
+    }
+
+    private static String flip(String token, int index) {
+        char replacement = token.charAt(index) == 'A' ? 'B' : 'A';
+        return token.substring(0, index) + replacement + token.substring(index + 1);
+    }
+}
@@ -0,0 +1,37 @@
+package com.betbrain.service;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StakeChangeFeedTest {
+
+    @Test
+    public void testDrainsPublishedChanges() {
+        StakeChangeFeed feed = new StakeChangeFeed(4, 1024);
+        for (int i = 0; i < 100; i++) {
+            feed.publish(i, i + 1, i + 2);
+        }
+        assertEquals(100, feed.getBacklog());
+
+        List<String> drained = new ArrayList<>();
+        assertEquals(100, feed.drainTo((betId, customerId, amount) -> drained.add(betId + ":" + customerId + ":" + amount)));
+        assertTrue(drained.contains("42:43:44"));
+        assertEquals(0, feed.getBacklog());
+        assertFalse(feed.takeRebuildRequest());
+    }
+
+    @Test
+    public void testFullFeedDropsAndRequestsRebuild() {
+        StakeChangeFeed feed = new StakeChangeFeed(1, 16);
+        for (int i = 0; i < 20; i++) {
+            feed.publish(1, i, 10);
+        }
+        assertEquals(4, feed.getDroppedCount());
+        assertTrue(feed.takeRebuildRequest());
+        assertFalse(feed.takeRebuildRequest());
+        assertEquals(16, feed.drainTo((betId, customerId, amount) -> { }));
+    }
+}
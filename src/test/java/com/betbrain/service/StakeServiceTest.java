@@ -1,12 +1,13 @@
 package com.betbrain.service;
 
 // StakeServiceTest.java (޸İ)
-import com.betbrain.model.BetEvent;
+import com.betbrain.model.RankedStake;
+import com.betbrain.model.StakeBatch;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
-import java.lang.reflect.Field;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.List;
 
 public class StakeServiceTest {
     private StakeService stakeService;
@@ -25,7 +26,7 @@ public class StakeServiceTest {
     @Test
     public void testRecordStakeCreatesNewBetEventWhenMissing() throws Exception {
         stakeService.recordStake(1, 1, 100);
-        assertNotNull(getBetEventData().get(1));
+        assertNotNull(stakeService.getLocalEvent(1));
     }
 
     @Test
@@ -43,17 +44,98 @@ public class StakeServiceTest {
         assertEquals("No stakes for bet ID: 999", result);
     }
 
-    // ͨõ״̬
-    private void resetBetEventData() throws Exception {
-        Field field = StakeService.class.getDeclaredField("betEventData");
-        field.setAccessible(true);
-        ((ConcurrentHashMap) field.get(stakeService)).clear();
+    @Test
+    public void testRecordStakeBatchGroupsByBetAndReportsStatuses() throws Exception {
+        StakeBatch batch = new StakeBatch(4);
+        batch.add(5, 300);
+        batch.reject(400);
+        batch.add(6, 50);
+        batch.add(5, 700);
+        stakeService.recordStakeBatch(42, batch);
+
+        assertEquals(200, batch.getStatus(0));
+        assertEquals(400, batch.getStatus(1));
+        assertEquals(200, batch.getStatus(2));
+        assertEquals(200, batch.getStatus(3));
+        assertEquals("200\n400\n200\n200\n", new String(batch.encodeStatuses(), "US-ASCII"));
+        assertEquals(700, stakeService.getLocalEvent(5).getMaxStake(42));
+        assertEquals(50, stakeService.getLocalEvent(6).getMaxStake(42));
+    }
+
+    @Test
+    public void testResizingLocalShardsKeepsEveryEventReadable() throws Exception {
+        for (int betId = 100; betId < 300; betId++) {
+            stakeService.recordStake(betId, 1, betId);
+        }
+        try {
+            assertTrue(stakeService.resizeLocalShards(4) > 0);
+            assertEquals(4, stakeService.getLocalShardCount());
+            for (int betId = 100; betId < 300; betId++) {
+                stakeService.recordStake(betId, 2, betId + 1);
+            }
+        } finally {
+            stakeService.resizeLocalShards(1);
+        }
+        for (int betId = 100; betId < 300; betId++) {
+            assertEquals("2=" + (betId + 1) + ",1=" + betId, stakeService.getTop20Stakes(betId));
+        }
+    }
+
+    @Test
+    public void testStakesRacingResizesAreNotLost() throws Exception {
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final int customerId = 500 + t;
+            writers[t] = new Thread(() -> {
+                for (int amount = 1; amount <= 50; amount++) {
+                    for (int betId = 2000; betId < 2200; betId++) {
+                        stakeService.recordStake(betId, customerId, amount);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        try {
+            int[] counts = {3, 1, 5, 2, 4};
+            for (int i = 0; writers[0].isAlive() || i < counts.length; i++) {
+                stakeService.resizeLocalShards(counts[i % counts.length]);
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        } finally {
+            stakeService.resizeLocalShards(1);
+        }
+        stakeService.flush();
+        for (int betId = 2000; betId < 2200; betId++) {
+            for (int t = 0; t < writers.length; t++) {
+                assertEquals(50, stakeService.getLocalEvent(betId).getMaxStake(500 + t));
+            }
+        }
+    }
+
+    @Test
+    public void testCrossEventIndexesFollowRecordedStakes() throws Exception {
+        stakeService.recordStake(901, 77, 900000001);
+        stakeService.recordStake(902, 77, 5);
+        stakeService.recordStake(902, 77, 900000002);
+        stakeService.recordStake(903, 78, 900000003);
+
+        List<RankedStake> expected = Arrays.asList(new RankedStake(901, 77, 900000001),
+                new RankedStake(902, 77, 900000002));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!stakeService.getCustomerStakes(77).equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, stakeService.getCustomerStakes(77));
+        while (stakeService.getTopStakes().size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(new RankedStake(903, 78, 900000003), stakeService.getTopStakes().get(0));
+        assertEquals(new RankedStake(902, 77, 900000002), stakeService.getTopStakes().get(1));
     }
 
-    // ȡڲ״̬ڶԣ
-    private ConcurrentHashMap<Integer, BetEvent> getBetEventData() throws Exception {
-        Field field = StakeService.class.getDeclaredField("betEventData");
-        field.setAccessible(true);
-        return (ConcurrentHashMap<Integer, BetEvent>) field.get(stakeService);
+    private void resetBetEventData() {
+        stakeService.clearLocalEvents();
     }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.betbrain.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+public class AsyncLogHandlerTest {
+
+    @Test
+    public void testRecordsReachDelegateInOrder() {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        AsyncLogHandler handler = new AsyncLogHandler(new Handler[]{new Capture(messages, null)}, 16);
+        try {
+            for (int i = 0; i < 10; i++) {
+                handler.publish(new LogRecord(Level.INFO, "message " + i));
+            }
+            handler.flush();
+        } finally {
+            handler.close();
+        }
+
+        assertEquals(10, messages.size());
+        assertEquals("message 0", messages.get(0));
+        assertEquals("message 9", messages.get(9));
+    }
+
+    @Test
+    public void testPublishDropsInsteadOfBlockingWhenFull() {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncLogHandler handler = new AsyncLogHandler(new Handler[]{new Capture(messages, release)}, 2);
+        long droppedBefore = AsyncLogHandler.getDroppedCount();
+        try {
+            for (int i = 0; i < 10; i++) {
+                handler.publish(new LogRecord(Level.INFO, "message " + i));
+            }
+            // Writer holds at most one record, the queue two more
+            assertTrue(AsyncLogHandler.getDroppedCount() - droppedBefore >= 7);
+        } finally {
+            release.countDown();
+            handler.close();
+        }
+        assertTrue(messages.size() <= 3);
+    }
+
+    /**
+     * Collects messages, optionally blocking until released
+     */
+    private static final class Capture extends Handler {
+        private final List<String> messages;
+        private final CountDownLatch release;
+
+        private Capture(List<String> messages, CountDownLatch release) {
+            this.messages = messages;
+            this.release = release;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
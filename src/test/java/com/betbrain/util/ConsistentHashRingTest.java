@@ -0,0 +1,44 @@
+package com.betbrain.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    public void testSpreadsKeysEvenly() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(Arrays.asList("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int key = 0; key < 100000; key++) {
+            counts.merge(ring.nodeFor(key), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("Unbalanced: " + counts, count > 17500 && count < 32500);
+        }
+    }
+
+    @Test
+    public void testAddingNodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(Arrays.asList("a", "b", "c"), 128);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(Arrays.asList("a", "b", "c", "d"), 128);
+        int moved = 0;
+        for (int key = 0; key < 100000; key++) {
+            String owner = after.nodeFor(key);
+            if (!owner.equals(before.nodeFor(key))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+        assertTrue("Moved " + moved, moved > 17500 && moved < 32500);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsDuplicateNodes() {
+        new ConsistentHashRing<>(Arrays.asList("a", "a"), 16);
+    }
+}
@@ -0,0 +1,32 @@
+package com.betbrain.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IntIntHashMapTest {
+
+    @Test
+    public void testGrowsAndKeepsValues() {
+        IntIntHashMap map = new IntIntHashMap(2, -1);
+        for (int i = 0; i < 10000; i++) {
+            map.put(i * 31, i);
+        }
+        assertEquals(10000, map.size());
+        assertEquals(77, map.get(77 * 31));
+        assertEquals(-1, map.get(5));
+    }
+
+    @Test
+    public void testPutReplacesExistingValue() {
+        IntIntHashMap map = new IntIntHashMap(4, 0);
+        map.put(7, 100);
+        map.put(7, 200);
+        assertEquals(1, map.size());
+        assertEquals(200, map.get(7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsReservedKey() {
+        new IntIntHashMap(4, 0).put(Integer.MIN_VALUE, 1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.betbrain.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LogRateLimiterTest {
+
+    @Test
+    public void testLimitsMessagesPerSecondAndCountsTheRest() {
+        LogRateLimiter limiter = new LogRateLimiter("test-limit", 3);
+        long now = 1_700_000_000_123L;
+
+        assertTrue(limiter.tryAcquire(now));
+        assertTrue(limiter.tryAcquire(now + 10));
+        assertTrue(limiter.tryAcquire(now + 20));
+        assertFalse(limiter.tryAcquire(now + 30));
+        assertFalse(limiter.tryAcquire(now + 40));
+        assertEquals(2, limiter.getSuppressedCount());
+    }
+
+    @Test
+    public void testNextSecondStartsANewWindow() {
+        LogRateLimiter limiter = new LogRateLimiter("test-window", 1);
+        long now = 1_700_000_000_000L;
+
+        assertTrue(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now + 999));
+        assertTrue(limiter.tryAcquire(now + 1000));
+        assertEquals(1, limiter.getSuppressedCount());
+    }
+
+    @Test
+    public void testCategoryIsSharedByAllCallers() {
+        LogRateLimiter first = LogRateLimiter.forCategory("test-shared", 1);
+        LogRateLimiter second = LogRateLimiter.forCategory("test-shared", 5);
+        assertSame(first, second);
+
+        long now = 1_700_000_000_000L;
+        assertTrue(first.tryAcquire(now));
+        assertFalse(second.tryAcquire(now + 1));
+    }
+}
@@ -0,0 +1,79 @@
+package com.betbrain.util;
+
+import com.betbrain.model.StakeBatch;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class ParamUtilTest {
+
+    @Test
+    public void testReadStakeBatchParsesLinesAndFlagsMalformedOnes() throws IOException {
+        StakeBatch batch = readBatch("1,100\r\n 2 , 200\n\nx,5\n3,0\n4\n99999999999,1\n5,500", 100);
+
+        assertEquals(7, batch.size());
+        assertEquals(1, batch.getBetId(0));
+        assertEquals(100, batch.getAmount(0));
+        assertEquals(2, batch.getBetId(1));
+        assertEquals(200, batch.getAmount(1));
+        for (int i = 2; i <= 5; i++) {
+            assertEquals(HttpUtil.BAD_REQUEST, batch.getStatus(i));
+        }
+        assertEquals(5, batch.getBetId(6));
+        assertEquals(StakeBatch.PENDING, batch.getStatus(6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadStakeBatchRejectsTooManyItems() throws IOException {
+        readBatch("1,1\n2,2\n3,3\n", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadStakeBatchRejectsEmptyBody() throws IOException {
+        readBatch("\n\n", 10);
+    }
+
+    @Test
+    public void testReadStakeAmountParsesDigitsWithSurroundingWhitespace() throws IOException {
+        assertEquals(5000, readAmount("5000"));
+        assertEquals(42, readAmount(" \t42\r\n"));
+        assertEquals(Integer.MAX_VALUE, readAmount("2147483647"));
+        assertEquals(0, readAmount("0"));
+    }
+
+    @Test
+    public void testReadStakeAmountRejectsMalformedBodies() throws IOException {
+        String[] invalid = {"", "   ", "12a", "1 2", "-5", "2147483648", "99999999999999999999", "1.5",
+                "1" + new String(new char[100]).replace('\0', ' ')};
+        for (String body : invalid) {
+            try {
+                readAmount(body);
+                fail("Accepted: " + body);
+            } catch (IllegalArgumentException expected) {
+                // rejected
+            }
+        }
+    }
+
+    @Test
+    public void testExtractSessionKeyFindsParameterAnywhereInQuery() {
+        assertEquals("ABC1234", ParamUtil.extractSessionKey("sessionkey=ABC1234"));
+        assertEquals("ABC1234", ParamUtil.extractSessionKey("x=1&sessionkey=ABC1234&y=2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExtractSessionKeyRejectsMissingParameter() {
+        ParamUtil.extractSessionKey("x=1&sessionkey=");
+    }
+
+    private static int readAmount(String body) throws IOException {
+        return ParamUtil.readStakeAmount(new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static StakeBatch readBatch(String body, int maxItems) throws IOException {
+        return ParamUtil.readStakeBatch(new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII)), maxItems);
+    }
+}
@@ -0,0 +1,67 @@
+package com.betbrain.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+public class SessionKeyGeneratorTest {
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    @Test
+    public void testKeysUseAlphabetAndRequestedLength() {
+        for (int length = 1; length <= 32; length++) {
+            String key = SessionKeyGenerator.generate(length);
+            assertEquals(length, key.length());
+            for (int i = 0; i < length; i++) {
+                assertTrue(ALPHABET.indexOf(key.charAt(i)) >= 0);
+            }
+        }
+        assertEquals(7, SessionKeyGenerator.generate().length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveLength() {
+        SessionKeyGenerator.generate(0);
+    }
+
+    /**
+     * Statistical check of one million keys. The bounds are set so that an
+     * ideal generator fails less than once in ten million runs: at most
+     * 1.9e-8 from the collision count and 7.1e-8 from the symbol counts.
+     */
+    @Test
+    public void testCollisionsAndSymbolFrequenciesMatchAUniformGenerator() {
+        int count = 1_000_000;
+        long[] keys = new long[count];
+        long[] symbolCounts = new long[ALPHABET.length()];
+        for (int i = 0; i < count; i++) {
+            String key = SessionKeyGenerator.generate();
+            long encoded = 0;
+            for (int j = 0; j < key.length(); j++) {
+                int symbol = ALPHABET.indexOf(key.charAt(j));
+                symbolCounts[symbol]++;
+                encoded = encoded * ALPHABET.length() + symbol;
+            }
+            keys[i] = encoded;
+        }
+
+        Arrays.sort(keys);
+        int duplicates = 0;
+        for (int i = 1; i < count; i++) {
+            if (keys[i] == keys[i - 1]) {
+                duplicates++;
+            }
+        }
+        // 36^7 possible keys: collisions are Poisson with mean n^2 / 2N = 6.4, and P(X >= 25) = 1.9e-8
+        assertTrue("Too many duplicate keys: " + duplicates, duplicates < 25);
+
+        // Each symbol count is binomial(7n, 1/36); 6 standard deviations fail with 2e-9 per symbol
+        double p = 1.0 / ALPHABET.length();
+        double perSymbol = 7.0 * count * p;
+        double tolerance = 6 * Math.sqrt(perSymbol * (1 - p));
+        for (long symbolCount : symbolCounts) {
+            assertEquals(perSymbol, symbolCount, tolerance);
+        }
+    }
+}
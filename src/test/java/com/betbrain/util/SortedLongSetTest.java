@@ -0,0 +1,38 @@
+package com.betbrain.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+public class SortedLongSetTest {
+
+    @Test
+    public void testMatchesTreeSetUnderRandomOperations() {
+        SortedLongSet set = new SortedLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50000; i++) {
+            long value = random.nextInt(20000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        long[] top = new long[100];
+        int count = set.copyDescending(top, top.length);
+        assertEquals(100, count);
+        int i = 0;
+        for (long value : expected.descendingSet()) {
+            if (i == count) {
+                break;
+            }
+            assertEquals(value, top[i++]);
+        }
+    }
+}